@@ -0,0 +1,34 @@
+#!/usr/bin/env bash
+# Roda o mesmo teste k6 contra a aplicação com threads de plataforma (Java 17) e com
+# threads virtuais (Java 21 + perfil virtual-threads) e guarda os resumos em loadtest/results.
+#
+# Pré-requisitos: k6 no PATH, JAVA17_HOME e JAVA21_HOME apontando para os JDKs, banco
+# configurado em application.properties e as variáveis EMAIL, PASSWORD e ACCOUNTS do script k6.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+SCENARIO="${SCENARIO:-connections}"
+RESULTS=loadtest/results
+mkdir -p "$RESULTS"
+
+run() {
+    local name="$1" java_home="$2" maven_profile="$3" spring_profile="$4"
+
+    JAVA_HOME="$java_home" ./mvnw -q -DskipTests $maven_profile package
+    JAVA_HOME="$java_home" "$java_home/bin/java" -jar target/payment-api-0.0.1-SNAPSHOT.jar \
+        --spring.profiles.active="$spring_profile" > "$RESULTS/$name-app.log" 2>&1 &
+    local pid=$!
+    trap 'kill $pid 2>/dev/null || true' RETURN
+
+    until curl -sf http://localhost:8080/actuator/health > /dev/null; do
+        sleep 1
+    done
+
+    k6 run -e SCENARIO="$SCENARIO" --summary-export "$RESULTS/$name-$SCENARIO.json" \
+        loadtest/transfer-and-account.js | tee "$RESULTS/$name-$SCENARIO.txt" || true
+}
+
+run platform "$JAVA17_HOME" "" "default"
+run virtual "$JAVA21_HOME" "-Pjava21" "virtual-threads"
+
+echo "Resumos em $RESULTS"
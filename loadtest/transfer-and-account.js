@@ -0,0 +1,93 @@
+// Carga mista em POST /api/transactions/transfer e GET /api/accounts/{accountNumber}.
+//
+// Cenários (variável SCENARIO):
+//   capacity    - taxa de chegada crescente até RATE_MAX req/s; o teste é abortado quando o
+//                 p99 passa de P99_MS ou os erros passam de 1%. A taxa no momento do abort é
+//                 a vazão máxima sustentável.
+//   connections - CONNECTIONS usuários simultâneos (2000 por padrão) em laço fechado, para
+//                 comparar p99 e throughput com a mesma quantidade de conexões abertas.
+//
+// Exemplo:
+//   k6 run -e SCENARIO=connections -e EMAIL=carga@teste.com -e PASSWORD=senha \
+//          -e ACCOUNTS=1000000001,1000000002,1000000003 loadtest/transfer-and-account.js
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const SCENARIO = __ENV.SCENARIO || 'connections';
+const CONNECTIONS = parseInt(__ENV.CONNECTIONS || '2000');
+const RATE_MAX = parseInt(__ENV.RATE_MAX || '8000');
+const P99_MS = parseInt(__ENV.P99_MS || '500');
+const TRANSFER_RATIO = parseFloat(__ENV.TRANSFER_RATIO || '0.5');
+const ACCOUNTS = (__ENV.ACCOUNTS || '').split(',').filter((account) => account.length > 0);
+
+const transferDuration = new Trend('transfer_duration', true);
+const accountDuration = new Trend('account_duration', true);
+
+const scenarios = {
+    capacity: {
+        executor: 'ramping-arrival-rate',
+        startRate: 100,
+        timeUnit: '1s',
+        preAllocatedVUs: CONNECTIONS,
+        maxVUs: CONNECTIONS,
+        stages: [
+            { target: RATE_MAX, duration: '5m' },
+        ],
+    },
+    connections: {
+        executor: 'constant-vus',
+        vus: CONNECTIONS,
+        duration: '3m',
+    },
+};
+
+export const options = {
+    scenarios: { [SCENARIO]: scenarios[SCENARIO] },
+    thresholds: {
+        http_req_failed: [{ threshold: 'rate<0.01', abortOnFail: SCENARIO === 'capacity', delayAbortEval: '30s' }],
+        http_req_duration: [{ threshold: `p(99)<${P99_MS}`, abortOnFail: SCENARIO === 'capacity', delayAbortEval: '30s' }],
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    if (ACCOUNTS.length < 2) {
+        throw new Error('Informe pelo menos duas contas em ACCOUNTS');
+    }
+    const response = http.post(`${BASE_URL}/api/auth/login`,
+        JSON.stringify({ email: __ENV.EMAIL, password: __ENV.PASSWORD }),
+        { headers: { 'Content-Type': 'application/json' } });
+    check(response, { 'login ok': (r) => r.status === 200 });
+    return { token: response.json('accessToken') };
+}
+
+export default function (data) {
+    const headers = {
+        'Content-Type': 'application/json',
+        Authorization: `Bearer ${data.token}`,
+    };
+    const source = ACCOUNTS[Math.floor(Math.random() * ACCOUNTS.length)];
+
+    if (Math.random() < TRANSFER_RATIO) {
+        let target = source;
+        while (target === source) {
+            target = ACCOUNTS[Math.floor(Math.random() * ACCOUNTS.length)];
+        }
+        const response = http.post(`${BASE_URL}/api/transactions/transfer`,
+            JSON.stringify({
+                sourceAccountNumber: source,
+                targetAccountNumber: target,
+                amount: 0.01,
+                description: 'k6',
+            }),
+            { headers, tags: { name: 'transfer' } });
+        transferDuration.add(response.timings.duration);
+        check(response, { 'transfer 201': (r) => r.status === 201 });
+    } else {
+        const response = http.get(`${BASE_URL}/api/accounts/${source}`, { headers, tags: { name: 'account' } });
+        accountDuration.add(response.timings.duration);
+        check(response, { 'account 200': (r) => r.status === 200 });
+    }
+}
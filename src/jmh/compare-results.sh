@@ -0,0 +1,35 @@
+#!/usr/bin/env bash
+# Compara dois resultados JSON do JMH (mvn -Pbenchmark ... -Djmh.result=arquivo.json), por exemplo
+# de dois commits, benchmark a benchmark e com os mesmos parâmetros:
+#
+#   ./src/jmh/compare-results.sh target/jmh-antes.json target/jmh-depois.json
+#
+# A variação é do score; em modo AverageTime (tempo por operação) negativo é melhora. Benchmarks
+# que só existem em um dos arquivos aparecem com "-" do outro lado. Pré-requisito: jq no PATH.
+set -euo pipefail
+
+if [ $# -ne 2 ]; then
+    echo "Uso: $0 <antes.json> <depois.json>" >&2
+    exit 1
+fi
+
+scores() {
+    jq -r '.[] | [
+        ((.benchmark | sub("^com\\.vitoroliveira\\.paymentapi\\."; ""))
+            + ((.params // {}) | to_entries | map("\(.key)=\(.value)") | if length > 0 then " [" + join(",") + "]" else "" end)),
+        .primaryMetric.score,
+        .primaryMetric.scoreError,
+        .primaryMetric.scoreUnit
+    ] | @tsv' "$1" | sort
+}
+
+join -t $'\t' -a 1 -a 2 -e "-" -o 0,1.2,1.3,1.4,2.2,2.3,2.4 <(scores "$1") <(scores "$2") |
+    awk -F '\t' '
+        BEGIN { printf "%-70s %16s %16s %9s\n", "Benchmark", "Antes", "Depois", "Variação" }
+        {
+            before = $2 == "-" ? "-" : sprintf("%.3f ± %.3f", $2, $3)
+            after = $5 == "-" ? "-" : sprintf("%.3f ± %.3f", $5, $6)
+            unit = $4 == "-" ? $7 : $4
+            change = ($2 == "-" || $5 == "-" || $2 == 0) ? "-" : sprintf("%+.1f%%", 100 * ($5 - $2) / $2)
+            printf "%-70s %16s %16s %9s  %s\n", $1, before, after, change, unit
+        }'
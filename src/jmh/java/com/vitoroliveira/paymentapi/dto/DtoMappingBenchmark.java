@@ -0,0 +1,123 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.Transaction;
+import com.vitoroliveira.paymentapi.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Conversão de entidades para DTOs (TransactionDTO.fromEntity, AccountDTO.fromEntity) e serialização
+// de uma página de TransactionDTO com o Jackson configurado como o Spring Boot configura por padrão
+// (módulos java.time registrados, datas em ISO-8601). O ObjectWriter é resolvido uma vez, como no
+// MappingJackson2HttpMessageConverter, que reaproveita os serializadores entre requisições.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private Account account;
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        account = account(101L, "1234567897");
+        transaction = transaction(account, account(102L, "1234567905"));
+    }
+
+    // Página serializada; o tamanho só importa para este benchmark
+    @State(Scope.Thread)
+    public static class TransactionPage {
+
+        // Tamanho padrão de página e o máximo do histórico por cursor
+        @Param({"20", "100"})
+        public int pageSize;
+
+        private List<TransactionDTO> page;
+        private ObjectWriter writer;
+
+        @Setup
+        public void setUp() {
+            Transaction transaction = transaction(account(101L, "1234567897"), account(102L, "1234567905"));
+            page = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                TransactionDTO dto = TransactionDTO.fromEntity(transaction);
+                dto.setId(1_000L + i);
+                dto.setAmount(BigDecimal.valueOf(10_000 + i * 37L, 2));
+                page.add(dto);
+            }
+
+            ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+            writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, TransactionDTO.class));
+        }
+    }
+
+    @Benchmark
+    public TransactionDTO transactionFromEntity() {
+        return TransactionDTO.fromEntity(transaction);
+    }
+
+    @Benchmark
+    public AccountDTO accountFromEntity() {
+        return AccountDTO.fromEntity(account);
+    }
+
+    @Benchmark
+    public byte[] serializeTransactionPage(TransactionPage page) throws JsonProcessingException {
+        return page.writer.writeValueAsBytes(page.page);
+    }
+
+    private static Transaction transaction(Account source, Account target) {
+        Transaction transaction = new Transaction();
+        transaction.setId(1_000L);
+        transaction.setSourceAccount(source);
+        transaction.setTargetAccount(target);
+        transaction.setAmount(new BigDecimal("125.40"));
+        transaction.setTransactionDate(LocalDateTime.of(2024, 3, 15, 10, 30, 45, 123_000_000));
+        transaction.setType(Transaction.TransactionType.TRANSFER);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setDescription("Pagamento de aluguel");
+        return transaction;
+    }
+
+    private static Account account(Long id, String accountNumber) {
+        User user = new User();
+        user.setId(7L);
+        user.setName("Benchmark");
+        user.setEmail("bench@teste.com");
+        user.setCpf("12345678901");
+
+        Account account = new Account();
+        account.setId(id);
+        account.setUser(user);
+        account.setAccountNumber(accountNumber);
+        account.setType(Account.AccountType.CHECKING);
+        account.setBalance(new BigDecimal("15230.75"));
+        account.setCreatedAt(LocalDateTime.of(2024, 1, 2, 9, 0));
+        return account;
+    }
+}
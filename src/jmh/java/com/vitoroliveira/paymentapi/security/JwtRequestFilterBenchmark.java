@@ -0,0 +1,163 @@
+package com.vitoroliveira.paymentapi.security;
+
+import com.vitoroliveira.paymentapi.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Custo por requisição do JwtRequestFilter com um bearer token válido e o usuário já carregado
+// (sem banco): a versão anterior (três parses, chave e parser recriados a cada chamada),
+// a verificação única sem cache e a verificação única com o cache de claims.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtRequestFilterBenchmark {
+
+    private static final String SECRET = "supersecretkey123456789012345678901234";
+
+    private final UserDetails user = new User("bench@teste.com", "senha", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    private LegacyJwtRequestFilter legacyFilter;
+    private JwtRequestFilter parseOnceFilter;
+    private JwtRequestFilter cachedFilter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService(null) {
+            @Override
+            public UserDetails loadUserByUsername(String email) {
+                return user;
+            }
+        };
+        // Principal carregado pelo serviço (stub) a cada requisição, como no filtro anterior
+        AuthenticatedUserResolver resolver = new AuthenticatedUserResolver(userDetailsService, new SimpleMeterRegistry(),
+                AuthenticatedUserResolver.PrincipalSource.DATABASE, 60, 10_000);
+        // Nenhum token revogado: a consulta à lista nunca chega ao repositório
+        TokenRevocationService revocations = new TokenRevocationService(null, 3_600_000, 300, 10_000_000, 0.001, 5_000);
+        JwtUtil cachingJwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 3_600_000, 10_000);
+        legacyFilter = new LegacyJwtRequestFilter(userDetailsService);
+        parseOnceFilter = new JwtRequestFilter(resolver, revocations, new JwtUtil(new SimpleMeterRegistry(), SECRET, 3_600_000, 0),
+                new SimpleMeterRegistry());
+        cachedFilter = new JwtRequestFilter(resolver, revocations, cachingJwtUtil, new SimpleMeterRegistry());
+
+        request = new MockHttpServletRequest("GET", "/api/accounts/my-accounts");
+        request.addHeader("Authorization", "Bearer " + cachingJwtUtil.generateToken(user));
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // doFilterInternal direto: doFilter marcaria a requisição reutilizada como já filtrada
+
+    @Benchmark
+    public Object legacyTripleParse() throws ServletException, IOException {
+        legacyFilter.doFilterInternal(request, response, new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object parseOnce() throws ServletException, IOException {
+        parseOnceFilter.doFilterInternal(request, response, new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object parseOnceWithClaimsCache() throws ServletException, IOException {
+        cachedFilter.doFilterInternal(request, response, new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    // Cópia do filtro e do JwtUtil anteriores, mantida aqui como linha de base
+    static class LegacyJwtRequestFilter extends OncePerRequestFilter {
+
+        private final CustomUserDetailsService userDetailsService;
+
+        LegacyJwtRequestFilter(CustomUserDetailsService userDetailsService) {
+            this.userDetailsService = userDetailsService;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            final String authorizationHeader = request.getHeader("Authorization");
+
+            String username = null;
+            String jwt = null;
+
+            if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+                jwt = authorizationHeader.substring(7);
+                try {
+                    username = extractAllClaims(jwt).getSubject();
+                } catch (Exception e) {
+                    logger.error("Erro ao extrair username do token", e);
+                }
+            }
+
+            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+
+                if (validateToken(jwt, userDetails)) {
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
+            }
+            chain.doFilter(request, response);
+        }
+
+        private boolean validateToken(String token, UserDetails userDetails) {
+            final String username = extractAllClaims(token).getSubject();
+            return username.equals(userDetails.getUsername()) && !extractAllClaims(token).getExpiration().before(new Date());
+        }
+
+        private Claims extractAllClaims(String token) {
+            return Jwts.parserBuilder()
+                    .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        }
+    }
+}
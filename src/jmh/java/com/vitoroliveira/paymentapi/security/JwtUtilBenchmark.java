@@ -0,0 +1,70 @@
+package com.vitoroliveira.paymentapi.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Emissão e validação de tokens pelo JwtUtil: geração (claims uid e roles, assinatura HS256) e
+// validação completa (verificação da assinatura e da expiração mais a comparação com o usuário),
+// com o cache de claims desligado (toda validação verifica a assinatura) e ligado.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "supersecretkey123456789012345678901234";
+
+    private final AuthenticatedUser user = new AuthenticatedUser(42L, "bench@teste.com",
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    private JwtUtil jwtUtil;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 3_600_000, 0);
+    }
+
+    // Token já emitido; o tamanho do cache só importa para a validação
+    @State(Scope.Thread)
+    public static class IssuedToken {
+
+        @Param({"0", "10000"})
+        public long claimsCacheSize;
+
+        private JwtUtil jwtUtil;
+        private String token;
+
+        @Setup
+        public void setUp(JwtUtilBenchmark benchmark) {
+            jwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 3_600_000, claimsCacheSize);
+            token = jwtUtil.generateToken(benchmark.user);
+        }
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean validate(IssuedToken issued) {
+        TokenClaims claims = issued.jwtUtil.getVerifiedClaims(issued.token);
+        return issued.jwtUtil.validateToken(claims, user);
+    }
+}
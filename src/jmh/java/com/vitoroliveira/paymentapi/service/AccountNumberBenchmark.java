@@ -0,0 +1,146 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.model.IdGenerators;
+import com.vitoroliveira.paymentapi.repository.IdBlockAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Criação de contas em massa com a tabela já populada (1M contas por padrão): o laço anterior
+// (Random novo por chamada, número sorteado e uma consulta por tentativa) contra o gerador com
+// blocos reservados no contador e permutação em memória, só o número e o número mais o INSERT.
+// O H2 roda no mesmo processo; com um banco na rede, cada consulta evitada custa um round trip.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountNumberBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:account_number_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @Param("1000000")
+    public int existingAccounts;
+
+    private Connection connection;
+    private PreparedStatement exists;
+    private PreparedStatement insert;
+    private IdBlockAllocator allocator;
+    private AccountNumberGenerator generator;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS accounts");
+            statement.execute("DROP TABLE IF EXISTS " + IdGenerators.TABLE);
+            statement.execute("CREATE TABLE accounts (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "account_number VARCHAR(255) NOT NULL, CONSTRAINT uk_accounts_number UNIQUE (account_number))");
+            statement.execute("CREATE TABLE " + IdGenerators.TABLE + " (" + IdGenerators.SEGMENT_COLUMN
+                    + " VARCHAR(255) NOT NULL PRIMARY KEY, " + IdGenerators.VALUE_COLUMN + " BIGINT)");
+        }
+
+        // Contas existentes no formato antigo; sorteios repetidos são descartados pelo INSERT IGNORE
+        Random random = new Random(42);
+        connection.setAutoCommit(false);
+        try (PreparedStatement seed = connection.prepareStatement("INSERT IGNORE INTO accounts (account_number) VALUES (?)")) {
+            for (int i = 1; i <= existingAccounts; i++) {
+                seed.setString(1, String.format("%010d", random.nextInt(1000000000)));
+                seed.addBatch();
+                if (i % 10_000 == 0) {
+                    seed.executeBatch();
+                    connection.commit();
+                }
+            }
+            seed.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+
+        exists = connection.prepareStatement("SELECT COUNT(*) FROM accounts WHERE account_number = ?");
+        insert = connection.prepareStatement("INSERT INTO accounts (account_number) VALUES (?)");
+
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(URL);
+        properties.setUsername("sa");
+        allocator = new IdBlockAllocator(properties, 50, 2);
+        generator = new AccountNumberGenerator(allocator, 6364136223846793005L);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        allocator.destroy();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    // Só a obtenção do número, com a tabela no tamanho inicial
+
+    @Benchmark
+    public String legacyRandomProbe() throws SQLException {
+        return legacyNumber();
+    }
+
+    @Benchmark
+    public String preallocatedBlocks() {
+        return generator.next();
+    }
+
+    // Conta criada de fato: número mais o INSERT, com a tabela crescendo a cada operação
+
+    @Benchmark
+    public String legacyRandomProbeAndInsert() throws SQLException {
+        return insert(legacyNumber());
+    }
+
+    @Benchmark
+    public String preallocatedBlocksAndInsert() throws SQLException {
+        return insert(generator.next());
+    }
+
+    // Laço anterior do AccountService: Random novo a cada chamada e uma consulta por tentativa
+    private String legacyNumber() throws SQLException {
+        Random random = new Random();
+        String accountNumber;
+        do {
+            accountNumber = String.format("%010d", random.nextInt(1000000000));
+        } while (taken(accountNumber));
+        return accountNumber;
+    }
+
+    private boolean taken(String accountNumber) throws SQLException {
+        exists.setString(1, accountNumber);
+        try (ResultSet resultSet = exists.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1) > 0;
+        }
+    }
+
+    private String insert(String accountNumber) throws SQLException {
+        insert.setString(1, accountNumber);
+        insert.executeUpdate();
+        return accountNumber;
+    }
+}
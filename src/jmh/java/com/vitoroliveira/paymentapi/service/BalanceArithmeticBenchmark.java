@@ -0,0 +1,88 @@
+package com.vitoroliveira.paymentapi.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Aritmética de saldo em BigDecimal (escala 2, como as colunas de saldo e valor): a verificação de
+// saldo e o débito/crédito de TransactionService.applyTransfer, o total de uma conta particionada
+// (saldo principal mais os buckets, como em ShardedBalanceService) e a leitura do valor recebido no JSON.
+// Os operandos vêm de um array percorrido em ciclo, para que o JIT não trate os valores como constantes.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BalanceArithmeticBenchmark {
+
+    private static final int VALUES = 1024;
+
+    @Param("16")
+    public int balanceShards;
+
+    private BigDecimal[] balances;
+    private BigDecimal[] amounts;
+    private String[] amountTexts;
+    private BigDecimal[] shardBalances;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        balances = new BigDecimal[VALUES];
+        amounts = new BigDecimal[VALUES];
+        amountTexts = new String[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            balances[i] = BigDecimal.valueOf(1_000_000L + i * 7_919L, 2);
+            amounts[i] = BigDecimal.valueOf(100L + i * 613L, 2);
+            amountTexts[i] = amounts[i].toPlainString();
+        }
+        shardBalances = Arrays.copyOf(balances, balanceShards);
+    }
+
+    @Benchmark
+    public void debitAndCredit(Blackhole blackhole) {
+        int i = next();
+        BigDecimal source = balances[i];
+        BigDecimal target = balances[VALUES - 1 - i];
+        BigDecimal amount = amounts[i];
+        if (source.compareTo(amount) < 0) {
+            blackhole.consume(false);
+            return;
+        }
+        blackhole.consume(source.subtract(amount));
+        blackhole.consume(target.add(amount));
+    }
+
+    @Benchmark
+    public BigDecimal shardedTotal() {
+        BigDecimal total = balances[next()];
+        for (BigDecimal shard : shardBalances) {
+            total = total.add(shard);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal parseAmount() {
+        return new BigDecimal(amountTexts[next()]);
+    }
+
+    private int next() {
+        next = (next + 1) & (VALUES - 1);
+        return next;
+    }
+}
@@ -0,0 +1,136 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.PaymentApiApplication;
+import com.vitoroliveira.paymentapi.dto.TransactionCursorPage;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Histórico de uma conta com ~200 mil transações (metade enviadas, metade recebidas, mais movimento
+// de outras contas): página por OFFSET + COUNT contra página por cursor, na primeira página e em
+// uma página funda. O cursor deve custar o mesmo em qualquer profundidade; o OFFSET cresce com ela.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionHistoryBenchmark {
+
+    private static final String ACCOUNT = "7000000001";
+    private static final int PAGE_SIZE = 20;
+    private static final long FIRST_SEEDED_ID = 1_000_000_000_000L;
+    private static final LocalDateTime NEWEST = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Param({"0", "10000"})
+    public int page;
+
+    @Param("200000")
+    public int transactions;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private PageRequest offsetPage;
+    private String cursor;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PaymentApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.datasource.url=jdbc:h2:mem:history_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.open-in-view=false",
+                        "jwt.secret=chave-de-benchmark-com-pelo-menos-32-bytes",
+                        // Agendamentos fora da medição
+                        "payment.snapshot.interval-ms=3600000",
+                        "jwt.revocation.sync-interval-ms=3600000")
+                .run();
+        transactionService = context.getBean(TransactionService.class);
+
+        User user = new User();
+        user.setName("Benchmark");
+        user.setEmail("bench@teste.com");
+        user.setCpf("12345678901");
+        user.setPassword("senha-irrelevante");
+        user = context.getBean(UserRepository.class).save(user);
+        Account account = createAccount(user, ACCOUNT);
+        Account counterparty = createAccount(user, "7000000002");
+        Account other = createAccount(user, "7000000003");
+
+        // Ids e datas decrescentes a partir de NEWEST, uma linha por segundo
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        seed(jdbcTemplate, 0, transactions, account, counterparty);
+        jdbcTemplate.update("UPDATE transactions SET source_account_id = ?, target_account_id = ? " +
+                "WHERE MOD(id, 2) = 1", counterparty.getId(), account.getId());
+        seed(jdbcTemplate, transactions, transactions / 2, counterparty, other);
+
+        offsetPage = PageRequest.of(page, PAGE_SIZE, Sort.by(Sort.Order.desc("transactionDate"), Sort.Order.desc("id")));
+        // Última linha da página anterior: a posição que o cliente recebeu como nextCursor
+        long previousRow = (long) page * PAGE_SIZE - 1;
+        cursor = page == 0 ? null : TransactionService.encodeCursor(NEWEST.minusSeconds(previousRow), FIRST_SEEDED_ID + previousRow);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<TransactionDTO> offset() {
+        return transactionService.getAccountTransactionsPaged(ACCOUNT, offsetPage);
+    }
+
+    @Benchmark
+    public TransactionCursorPage cursor() {
+        return transactionService.getAccountTransactionsByCursor(ACCOUNT, cursor, PAGE_SIZE);
+    }
+
+    private Account createAccount(User user, String accountNumber) {
+        Account account = new Account();
+        account.setUser(user);
+        account.setType(Account.AccountType.CHECKING);
+        account.setAccountNumber(accountNumber);
+        account.setBalance(BigDecimal.ZERO);
+        return context.getBean(AccountRepository.class).save(account);
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, long firstRow, int rows, Account source, Account target) {
+        jdbcTemplate.update("INSERT INTO transactions (id, source_account_id, target_account_id, amount, transaction_date, " +
+                        "transaction_type, description, status) " +
+                        "SELECT CAST(? AS BIGINT) + r.\"X\", CAST(? AS BIGINT), CAST(? AS BIGINT), 1.00, " +
+                        "DATEADD(SECOND, -(CAST(? AS BIGINT) + r.\"X\"), CAST(? AS TIMESTAMP)), " +
+                        "'TRANSFER', 'carga', 'COMPLETED' " +
+                        "FROM SYSTEM_RANGE(0, CAST(? AS BIGINT) - 1) r",
+                FIRST_SEEDED_ID + firstRow, source.getId(), target.getId(), firstRow, NEWEST, rows);
+    }
+}
@@ -0,0 +1,113 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.PaymentApiApplication;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// TransactionService.transferMoney de ponta a ponta (locks, transação, UPDATEs, INSERT, commit e
+// métricas) com o contexto Spring completo sobre H2 em memória no modo MySQL, em cada modo de
+// concorrência. Sem servidor web e sem rede até o banco: o número isola o custo da aplicação e do
+// Hibernate, que é o que muda entre commits.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC", "ATOMIC"})
+    public String concurrencyMode;
+
+    @Param("100")
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private final List<String> accountNumbers = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PaymentApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.datasource.url=jdbc:h2:mem:transfer_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.open-in-view=false",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+                        "jwt.secret=chave-de-benchmark-com-pelo-menos-32-bytes",
+                        // Agendamentos fora da medição
+                        "payment.snapshot.interval-ms=3600000",
+                        "jwt.revocation.sync-interval-ms=3600000",
+                        "payment.transfer.concurrency-mode=" + concurrencyMode)
+                .run();
+        transactionService = context.getBean(TransactionService.class);
+
+        User user = new User();
+        user.setName("Benchmark");
+        user.setEmail("bench@teste.com");
+        user.setCpf("12345678901");
+        user.setPassword("senha-irrelevante");
+        user = context.getBean(UserRepository.class).save(user);
+
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        AccountNumberGenerator accountNumberGenerator = context.getBean(AccountNumberGenerator.class);
+        List<Account> created = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            Account account = new Account();
+            account.setUser(user);
+            account.setType(Account.AccountType.CHECKING);
+            account.setAccountNumber(accountNumberGenerator.next());
+            account.setBalance(new BigDecimal("1000000000.00"));
+            created.add(account);
+            accountNumbers.add(account.getAccountNumber());
+        }
+        accountRepository.saveAll(created);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // Par aleatório de contas distintas a cada chamada
+    @Benchmark
+    public TransactionDTO transferMoney() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int source = random.nextInt(accounts);
+        int target = (source + 1 + random.nextInt(accounts - 1)) % accounts;
+        return transactionService.transferMoney(
+                new TransferDTO(accountNumbers.get(source), accountNumbers.get(target), AMOUNT, "benchmark"));
+    }
+}
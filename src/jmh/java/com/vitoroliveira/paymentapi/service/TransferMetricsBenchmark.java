@@ -0,0 +1,68 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.config.MetricsConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Custo da instrumentação de uma transferência concluída no modo PESSIMISTIC (lock_wait, db,
+// commit, latência total e contador de resultado), a comparar com a latência da transferência em si
+// (payment.transfer.latency, na casa dos milissegundos): registro sem implementação (meters no-op),
+// Prometheus só com contagem e soma, e Prometheus com histograma e p50/p99/p999 como na aplicação.
+// Com 4 threads os registros disputam os mesmos meters, como transferências simultâneas.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TransferMetricsBenchmark {
+
+    @Param({"noop", "prometheus", "prometheus-histograms"})
+    public String registry;
+
+    private TransferMetrics transferMetrics;
+
+    @Setup
+    public void setUp() {
+        transferMetrics = new TransferMetrics(registry());
+    }
+
+    private MeterRegistry registry() {
+        if (registry.equals("noop")) {
+            return new CompositeMeterRegistry();
+        }
+        PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        if (registry.equals("prometheus-histograms")) {
+            prometheus.config().meterFilter(MetricsConfig.latencyDistribution(true, 0.5, 0.99, 0.999));
+        }
+        return prometheus;
+    }
+
+    @Benchmark
+    public TransferMetrics.Phases completedTransfer() {
+        TransferMetrics.Phases phases = transferMetrics.start();
+        phases.locked();
+        phases.bodyStarted();
+        phases.bodyEnded();
+        phases.committed();
+        phases.completed();
+        return phases;
+    }
+}
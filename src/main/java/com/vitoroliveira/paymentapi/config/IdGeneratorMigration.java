@@ -0,0 +1,95 @@
+package com.vitoroliveira.paymentapi.config;
+
+import com.vitoroliveira.paymentapi.model.HiLoIdGenerator;
+import com.vitoroliveira.paymentapi.model.IdGenerators;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Migração dos ids IDENTITY para o gerador hi/lo em tabela.
+// Bancos existentes já têm linhas com ids gerados pelo AUTO_INCREMENT; antes de qualquer INSERT
+// cada segmento de id_generators é criado ou avançado para depois do maior id da tabela
+// correspondente, senão o primeiro bloco reservado colidiria com dados antigos. A coluna AUTO_INCREMENT pode
+// continuar no MySQL: o Hibernate passa a informar o id explicitamente.
+//
+// Roda depois que o Hibernate criou/atualizou o schema e antes do servidor web aceitar requisições.
+@Component
+public class IdGeneratorMigration implements SmartInitializingSingleton {
+    
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorMigration.class);
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    public IdGeneratorMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        // A tabela não é uma entidade, então o ddl-auto do Hibernate não a cria
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + IdGenerators.TABLE + " ("
+                + IdGenerators.SEGMENT_COLUMN + " VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + IdGenerators.VALUE_COLUMN + " BIGINT)");
+        segments().forEach(this::seed);
+    }
+    
+    // Segmento do gerador -> tabela cujos ids ele gera, lidos do mapeamento das entidades com @HiLoId
+    Map<String, String> segments() {
+        Map<String, String> segments = new TreeMap<>();
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .forEachEntityDescriptor(persister -> {
+                    if (persister.getGenerator() instanceof HiLoIdGenerator generator) {
+                        String table = persister.getIdentifierTableDetails().getTableName();
+                        String previous = segments.putIfAbsent(generator.getSegment(), table);
+                        if (previous != null && !previous.equals(table)) {
+                            throw new IllegalStateException("Segmento de ids '" + generator.getSegment()
+                                    + "' usado pelas tabelas " + previous + " e " + table);
+                        }
+                    }
+                });
+        return segments;
+    }
+    
+    // Garante que o próximo bloco reservado comece depois de MAX(id)
+    void seed(String segment, String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long nextValue = maxId + 1;
+        
+        // UPDATE condicional: nunca retrocede o gerador, mesmo com várias instâncias subindo juntas
+        int updated = jdbcTemplate.update("UPDATE " + IdGenerators.TABLE
+                + " SET " + IdGenerators.VALUE_COLUMN + " = ?"
+                + " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ? AND " + IdGenerators.VALUE_COLUMN + " < ?",
+                nextValue, segment, nextValue);
+        if (updated > 0) {
+            log.info("Gerador de ids '{}' avançado para {} (maior id em {}: {})", segment, nextValue, table, maxId);
+            return;
+        }
+        
+        List<Long> current = jdbcTemplate.queryForList("SELECT " + IdGenerators.VALUE_COLUMN + " FROM "
+                + IdGenerators.TABLE + " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ?", Long.class, segment);
+        if (!current.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.SEGMENT_COLUMN + ", "
+                    + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)", segment, nextValue);
+            log.info("Gerador de ids '{}' iniciado em {} (maior id em {}: {})", segment, nextValue, table, maxId);
+        } catch (DuplicateKeyException e) {
+            // Outra instância criou o segmento entre a leitura e o INSERT
+            seed(segment, table);
+        }
+    }
+}
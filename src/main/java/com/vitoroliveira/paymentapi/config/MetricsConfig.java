@@ -0,0 +1,48 @@
+package com.vitoroliveira.paymentapi.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+// Distribuição dos timers dos caminhos quentes (payment.*) e dos métodos de repositório
+// (spring.data.repository.invocations, registrado pelo Spring Boot com as tags repository e method).
+// O histograma de buckets é o que o Prometheus agrega entre instâncias (histogram_quantile);
+// os percentis calculados na aplicação saem prontos em /actuator/prometheus e /actuator/metrics.
+// A faixa começa em 10µs porque validação de JWT e espera de lock ficam bem abaixo de 1ms.
+@Configuration
+public class MetricsConfig {
+
+    static final String REPOSITORY_INVOCATIONS = "spring.data.repository.invocations";
+
+    @Bean
+    public MeterFilter latencyDistribution(@Value("${payment.metrics.percentiles:0.5,0.99,0.999}") double[] percentiles,
+                                           @Value("${payment.metrics.percentile-histogram:true}") boolean histogram) {
+        return latencyDistribution(histogram, percentiles);
+    }
+
+    public static MeterFilter latencyDistribution(boolean histogram, double... percentiles) {
+        DistributionStatisticConfig distribution = DistributionStatisticConfig.builder()
+                .percentilesHistogram(histogram)
+                .percentiles(percentiles)
+                .minimumExpectedValue((double) TimeUnit.MICROSECONDS.toNanos(10))
+                .maximumExpectedValue((double) TimeUnit.SECONDS.toNanos(10))
+                .build();
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER) {
+                    return config;
+                }
+                if (id.getName().startsWith("payment.") || id.getName().equals(REPOSITORY_INVOCATIONS)) {
+                    return distribution.merge(config);
+                }
+                return config;
+            }
+        };
+    }
+}
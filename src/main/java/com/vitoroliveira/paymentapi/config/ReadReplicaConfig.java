@@ -0,0 +1,67 @@
+package com.vitoroliveira.paymentapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+// Réplica de leitura, ativada só quando payment.datasource.replica.url está definida; sem ela a
+// aplicação usa o DataSource único do Spring Boot. O primário continua em spring.datasource.*
+// (pool em spring.datasource.hikari.*) e a réplica tem pool próprio em payment.datasource.replica.hikari.*.
+@Configuration
+@ConditionalOnProperty(prefix = "payment.datasource.replica", name = "url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // Usuário e senha do primário, se não informados
+    @Bean
+    @ConfigurationProperties("payment.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${payment.datasource.replica.url}") String url,
+                                              @Value("${payment.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${payment.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${payment.datasource.replica.pin-window-ms:5000}") long pinWindowMs) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                new ReplicaPinning(Duration.ofMillis(pinWindowMs)), meterRegistry);
+        routing.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Target.PRIMARY, primaryDataSource,
+                ReadWriteRoutingDataSource.Target.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,49 @@
+package com.vitoroliveira.paymentapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Escolhe o pool no momento em que a conexão é obtida: transações @Transactional(readOnly = true)
+// vão para a réplica, exceto para usuários marcados pelo ReplicaPinning; todo o resto (escritas,
+// acesso fora de transação, DDL, ids) vai para o primário. Precisa estar atrás de um
+// LazyConnectionDataSourceProxy, senão a conexão seria obtida antes de o readOnly ser conhecido.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaPinning pinning;
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+
+    public ReadWriteRoutingDataSource(ReplicaPinning pinning, MeterRegistry meterRegistry) {
+        this.pinning = pinning;
+        this.primaryCounter = Counter.builder("payment.datasource.connections")
+                .description("Conexões obtidas por destino do roteamento leitura/escrita")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        this.replicaCounter = Counter.builder("payment.datasource.connections")
+                .description("Conexões obtidas por destino do roteamento leitura/escrita")
+                .tag("target", "replica")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pinning.pinCurrentUserAfterCommit();
+            primaryCounter.increment();
+            return Target.PRIMARY;
+        }
+        if (pinning.isCurrentUserPinned()) {
+            primaryCounter.increment();
+            return Target.PRIMARY;
+        }
+        replicaCounter.increment();
+        return Target.REPLICA;
+    }
+}
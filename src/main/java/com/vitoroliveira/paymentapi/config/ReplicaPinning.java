@@ -0,0 +1,54 @@
+package com.vitoroliveira.paymentapi.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+// Read-your-writes: depois do commit de uma transação de escrita, as leituras do mesmo usuário
+// ficam no primário durante a janela, para não verem a réplica ainda sem a própria transferência.
+// A marcação é em memória, por instância; sem usuário autenticado (jobs, workers) nada é marcado.
+public class ReplicaPinning {
+
+    private final Cache<String, Boolean> pinnedUsers;
+
+    public ReplicaPinning(Duration window) {
+        this.pinnedUsers = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    // Chamado dentro da transação de escrita; a janela só começa no commit
+    public void pinCurrentUserAfterCommit() {
+        String user = currentUser();
+        if (user == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pinnedUsers.put(user, Boolean.TRUE);
+            }
+        });
+    }
+
+    public boolean isCurrentUserPinned() {
+        String user = currentUser();
+        return user != null && pinnedUsers.getIfPresent(user) != null;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -1,8 +1,11 @@
 package com.vitoroliveira.paymentapi.controller;
 
 import com.vitoroliveira.paymentapi.dto.AccountDTO;
+import com.vitoroliveira.paymentapi.dto.AccountStatementDTO;
 import com.vitoroliveira.paymentapi.model.Account;
 import com.vitoroliveira.paymentapi.service.AccountService;
+import com.vitoroliveira.paymentapi.service.BalanceSnapshotService;
+import com.vitoroliveira.paymentapi.validation.ValidAccountNumber;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -10,10 +13,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -22,10 +27,12 @@ import java.util.List;
 public class AccountController {
     
     private final AccountService accountService;
+    private final BalanceSnapshotService balanceSnapshotService;
     
     @Autowired
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService, BalanceSnapshotService balanceSnapshotService) {
         this.accountService = accountService;
+        this.balanceSnapshotService = balanceSnapshotService;
     }
     
     @Operation(summary = "Cria uma nova conta", description = "Cria uma nova conta para um usuário existente")
@@ -64,12 +71,52 @@ public class AccountController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Conta encontrada",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = AccountDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Número de conta inválido",
+                content = @Content),
         @ApiResponse(responseCode = "404", description = "Conta não encontrada",
                 content = @Content)
     })
     @GetMapping("/{accountNumber}")
-    public ResponseEntity<AccountDTO> getAccountByNumber(@PathVariable String accountNumber) {
+    public ResponseEntity<AccountDTO> getAccountByNumber(@PathVariable @ValidAccountNumber String accountNumber) {
         AccountDTO account = accountService.getAccountByNumber(accountNumber);
         return ResponseEntity.ok(account);
     }
+    
+    @Operation(summary = "Configura saldo particionado",
+            description = "Define em quantos buckets os créditos da conta são distribuídos (0 desativa)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Conta atualizada",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = AccountDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Quantidade de buckets inválida",
+                content = @Content),
+        @ApiResponse(responseCode = "404", description = "Conta não encontrada",
+                content = @Content)
+    })
+    @PutMapping("/{accountNumber}/balance-shards")
+    public ResponseEntity<AccountDTO> configureBalanceShards(
+            @PathVariable @ValidAccountNumber String accountNumber,
+            @RequestParam int shards) {
+        AccountDTO account = accountService.configureBalanceShards(accountNumber, shards);
+        return ResponseEntity.ok(account);
+    }
+    
+    @Operation(summary = "Extrato da conta",
+            description = "Saldo de abertura, lançamentos concluídos do período com saldo após cada um e saldo final. "
+                    + "O saldo de abertura parte do snapshot de saldo mais próximo e reaplica só as transações seguintes")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Extrato gerado",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = AccountStatementDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Período inválido ou com lançamentos demais",
+                content = @Content),
+        @ApiResponse(responseCode = "404", description = "Conta não encontrada",
+                content = @Content)
+    })
+    @GetMapping("/{accountNumber}/statement")
+    public ResponseEntity<AccountStatementDTO> getStatement(
+            @PathVariable @ValidAccountNumber String accountNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        AccountStatementDTO statement = balanceSnapshotService.getStatement(accountNumber, startDate, endDate);
+        return ResponseEntity.ok(statement);
+    }
 }
\ No newline at end of file
@@ -4,54 +4,62 @@ import com.vitoroliveira.paymentapi.dto.*;
 import com.vitoroliveira.paymentapi.exception.TokenRefreshException;
 import com.vitoroliveira.paymentapi.model.RefreshToken;
 import com.vitoroliveira.paymentapi.security.JwtUtil;
+import com.vitoroliveira.paymentapi.service.LoginService;
 import com.vitoroliveira.paymentapi.service.RefreshTokenService;
+import com.vitoroliveira.paymentapi.service.TokenRevocationService;
 import com.vitoroliveira.paymentapi.service.UserService;
+import io.jsonwebtoken.JwtException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/auth")
 @Tag(name = "Autenticação", description = "Endpoints para autenticação e gerenciamento de tokens")
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private final LoginService loginService;
     private final UserDetailsService userDetailsService;
     private final JwtUtil jwtUtil;
     private final UserService userService;
     private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Autowired
-    public AuthController(AuthenticationManager authenticationManager,
+    public AuthController(LoginService loginService,
                          UserDetailsService userDetailsService,
                          JwtUtil jwtUtil,
                          UserService userService,
-                         RefreshTokenService refreshTokenService) {
-        this.authenticationManager = authenticationManager;
+                         RefreshTokenService refreshTokenService,
+                         TokenRevocationService tokenRevocationService) {
+        this.loginService = loginService;
         this.userDetailsService = userDetailsService;
         this.jwtUtil = jwtUtil;
         this.userService = userService;
         this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Operation(summary = "Registra usuário", description = "Cria uma nova conta de usuário")
@@ -74,36 +82,43 @@ public class AuthController {
         @ApiResponse(responseCode = "200", description = "Autenticação bem-sucedida",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = AuthenticationResponse.class))),
         @ApiResponse(responseCode = "401", description = "Credenciais inválidas",
+                content = @Content),
+        @ApiResponse(responseCode = "429", description = "Tentativas de login em excesso ou serviço de login saturado",
                 content = @Content)
     })
+    // Assíncrono: a senha é verificada no pool de login e a thread do Tomcat é liberada enquanto isso.
+    // A continuação roda na thread que concluiu a verificação; recusas (pool cheio, timeout, excesso de
+    // falhas) chegam ao GlobalExceptionHandler como LoginThrottledException (429)
     @PostMapping("/login")
-    public ResponseEntity<AuthenticationResponse> login(@RequestBody AuthenticationRequest authRequest) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(authRequest.getEmail(), authRequest.getPassword())
-            );
-            
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            
-            final UserDetails userDetails = userDetailsService.loadUserByUsername(authRequest.getEmail());
-            final String token = jwtUtil.generateToken(userDetails);
-            
-            // Criar refresh token
-            RefreshToken refreshToken = refreshTokenService.createRefreshToken(authRequest.getEmail());
-            
-            return ResponseEntity.ok(new AuthenticationResponse(
-                    token, 
-                    refreshToken.getToken(),
-                    "Login realizado com sucesso",
-                    "Bearer",
-                    authRequest.getEmail()
-            ));
-            
-        } catch (BadCredentialsException e) {
-            AuthenticationResponse response = new AuthenticationResponse();
-            response.setMessage("Credenciais inválidas");
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-        }
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> login(@RequestBody AuthenticationRequest authRequest,
+                                                                           HttpServletRequest request) {
+        // Verificação da senha no pool de login, com limite de tentativas por email e IP
+        return loginService.authenticate(authRequest.getEmail(), authRequest.getPassword(), request.getRemoteAddr())
+                .thenApply(authentication -> {
+                    final UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+                    final String token = jwtUtil.generateToken(userDetails);
+                    
+                    // Rotacionar o refresh token do usuário (um UPDATE; insere só no primeiro login)
+                    final String refreshToken = refreshTokenService.rotateRefreshToken(userDetails);
+                    
+                    return ResponseEntity.ok(new AuthenticationResponse(
+                            token, 
+                            refreshToken,
+                            "Login realizado com sucesso",
+                            "Bearer",
+                            authRequest.getEmail()
+                    ));
+                })
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof BadCredentialsException) {
+                        AuthenticationResponse response = new AuthenticationResponse();
+                        response.setMessage("Credenciais inválidas");
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+                    }
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(cause);
+                });
     }
     
     @Operation(summary = "Renovar token", description = "Gera um novo access token usando um refresh token válido")
@@ -140,11 +155,20 @@ public class AuthController {
                 content = @Content)
     })
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser() {
+    public ResponseEntity<?> logoutUser(@RequestHeader(value = "Authorization", required = false) String authorizationHeader) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
         
-        refreshTokenService.createRefreshToken(email); // Isso revogará implicitamente qualquer token anterior
+        refreshTokenService.revokeUserTokens(email);
+        
+        // O access token usado no logout deixa de autenticar antes de expirar
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            try {
+                tokenRevocationService.revoke(jwtUtil.getVerifiedClaims(authorizationHeader.substring(7)));
+            } catch (JwtException e) {
+                // Token inválido ou expirado já não autentica
+            }
+        }
         
         return ResponseEntity.ok(Map.of("message", "Logout realizado com sucesso!"));
     }
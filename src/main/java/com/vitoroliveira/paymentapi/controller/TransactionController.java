@@ -1,9 +1,19 @@
 package com.vitoroliveira.paymentapi.controller;
 
+import com.vitoroliveira.paymentapi.dto.BatchTransferRequest;
+import com.vitoroliveira.paymentapi.dto.BatchTransferResponse;
+import com.vitoroliveira.paymentapi.dto.TransactionCursorPage;
 import com.vitoroliveira.paymentapi.dto.TransactionDTO;
 import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.dto.TransferStatusDTO;
+import com.vitoroliveira.paymentapi.service.AsyncTransferService;
+import com.vitoroliveira.paymentapi.service.BatchTransferService;
+import com.vitoroliveira.paymentapi.service.IdempotencyService;
+import com.vitoroliveira.paymentapi.service.TransactionExportService;
 import com.vitoroliveira.paymentapi.service.TransactionService;
+import com.vitoroliveira.paymentapi.validation.ValidAccountNumber;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,10 +24,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -26,11 +39,24 @@ import java.util.List;
 @Tag(name = "Transações", description = "Endpoints para gerenciamento de transações e transferências")
 public class TransactionController {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    
     private final TransactionService transactionService;
+    private final BatchTransferService batchTransferService;
+    private final IdempotencyService idempotencyService;
+    private final AsyncTransferService asyncTransferService;
+    private final TransactionExportService transactionExportService;
     
     @Autowired
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, BatchTransferService batchTransferService,
+                                 IdempotencyService idempotencyService, AsyncTransferService asyncTransferService,
+                                 TransactionExportService transactionExportService) {
         this.transactionService = transactionService;
+        this.batchTransferService = batchTransferService;
+        this.idempotencyService = idempotencyService;
+        this.asyncTransferService = asyncTransferService;
+        this.transactionExportService = transactionExportService;
     }
     
     @Operation(summary = "Realiza transferência", description = "Transfere dinheiro entre contas bancárias")
@@ -40,12 +66,90 @@ public class TransactionController {
         @ApiResponse(responseCode = "400", description = "Dados inválidos ou saldo insuficiente",
                 content = @Content),
         @ApiResponse(responseCode = "404", description = "Conta não encontrada",
+                content = @Content),
+        @ApiResponse(responseCode = "409", description = "Requisição com a mesma Idempotency-Key ainda em processamento",
+                content = @Content),
+        @ApiResponse(responseCode = "422", description = "Idempotency-Key já usada com outra requisição",
                 content = @Content)
     })
     @PostMapping("/transfer")
-    public ResponseEntity<TransactionDTO> transferMoney(@Valid @RequestBody TransferDTO transferDTO) {
-        TransactionDTO transaction = transactionService.transferMoney(transferDTO);
-        return new ResponseEntity<>(transaction, HttpStatus.CREATED);
+    public ResponseEntity<TransactionDTO> transferMoney(
+            @Parameter(description = "Chave única da operação; repetições com a mesma chave devolvem a transferência original")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody TransferDTO transferDTO) {
+        if (idempotencyKey == null) {
+            TransactionDTO transaction = transactionService.transferMoney(transferDTO);
+            return new ResponseEntity<>(transaction, HttpStatus.CREATED);
+        }
+        
+        IdempotencyService.IdempotentTransfer result = idempotencyService.transferMoney(idempotencyKey, transferDTO);
+        HttpHeaders headers = new HttpHeaders();
+        if (result.replayed()) {
+            headers.set(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        return new ResponseEntity<>(result.transaction(), headers, HttpStatus.CREATED);
+    }
+    
+    @Operation(summary = "Realiza transferência assíncrona",
+            description = "Registra a transferência como PENDING e responde imediatamente; a liquidação é feita "
+                    + "em segundo plano e o resultado pode ser consultado em /api/transactions/{id}/status")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Transferência aceita para processamento",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Dados inválidos",
+                content = @Content),
+        @ApiResponse(responseCode = "404", description = "Conta não encontrada",
+                content = @Content),
+        @ApiResponse(responseCode = "429", description = "Fila de transferências cheia",
+                content = @Content)
+    })
+    @PostMapping("/transfer/async")
+    public ResponseEntity<TransactionDTO> submitTransfer(@Valid @RequestBody TransferDTO transferDTO) {
+        TransactionDTO transaction = asyncTransferService.submitTransfer(transferDTO);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transactions/" + transaction.getId() + "/status"))
+                .body(transaction);
+    }
+    
+    @Operation(summary = "Consulta status de transferência",
+            description = "Retorna o status de uma transação (PENDING, COMPLETED ou FAILED com o motivo)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Status encontrado",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransferStatusDTO.class))),
+        @ApiResponse(responseCode = "404", description = "Transação não encontrada",
+                content = @Content)
+    })
+    @GetMapping("/{id}/status")
+    public ResponseEntity<TransferStatusDTO> getTransferStatus(@PathVariable Long id) {
+        return ResponseEntity.ok(asyncTransferService.getTransferStatus(id));
+    }
+    
+    @Operation(summary = "Realiza transferências em lote",
+            description = "Processa uma lista de transferências em uma única transação. No modo ALL_OR_NOTHING "
+                    + "qualquer falha desfaz o lote; no modo BEST_EFFORT apenas os itens com falha são ignorados")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Todas as transferências foram realizadas",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchTransferResponse.class))),
+        @ApiResponse(responseCode = "207", description = "Lote BEST_EFFORT processado com falhas em alguns itens",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchTransferResponse.class))),
+        @ApiResponse(responseCode = "422", description = "Nenhuma transferência foi efetivada",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchTransferResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Dados inválidos ou lote acima do limite",
+                content = @Content)
+    })
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(@Valid @RequestBody BatchTransferRequest request) {
+        BatchTransferResponse response = batchTransferService.transferBatch(request);
+        
+        HttpStatus status;
+        if (response.getFailed() == 0) {
+            status = HttpStatus.CREATED;
+        } else if (response.getCompleted() > 0) {
+            status = HttpStatus.MULTI_STATUS;
+        } else {
+            status = HttpStatus.UNPROCESSABLE_ENTITY;
+        }
+        return new ResponseEntity<>(response, status);
     }
     
     @Operation(summary = "Busca transação por ID", description = "Retorna detalhes de uma transação pelo seu ID")
@@ -65,12 +169,14 @@ public class TransactionController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Transações encontradas",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Número de conta inválido",
+                content = @Content),
         @ApiResponse(responseCode = "404", description = "Conta não encontrada",
                 content = @Content)
     })
     @GetMapping("/account/{accountNumber}")
     public ResponseEntity<List<TransactionDTO>> getAccountTransactions(
-            @PathVariable String accountNumber) {
+            @PathVariable @ValidAccountNumber String accountNumber) {
         List<TransactionDTO> transactions = transactionService.getAccountTransactions(accountNumber);
         return ResponseEntity.ok(transactions);
     }
@@ -79,17 +185,40 @@ public class TransactionController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Transações encontradas",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Número de conta inválido",
+                content = @Content),
         @ApiResponse(responseCode = "404", description = "Conta não encontrada",
                 content = @Content)
     })
     @GetMapping("/account/{accountNumber}/paged")
     public ResponseEntity<Page<TransactionDTO>> getAccountTransactionsPaged(
-            @PathVariable String accountNumber,
+            @PathVariable @ValidAccountNumber String accountNumber,
             Pageable pageable) {
         Page<TransactionDTO> transactions = transactionService.getAccountTransactionsPaged(accountNumber, pageable);
         return ResponseEntity.ok(transactions);
     }
     
+    @Operation(summary = "Lista transações por cursor",
+            description = "Retorna transações de uma conta da mais recente para a mais antiga. Para a próxima página, "
+                    + "envie o nextCursor da resposta; nextCursor nulo indica a última página. Não calcula o total")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Transações encontradas",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionCursorPage.class))),
+        @ApiResponse(responseCode = "400", description = "Cursor inválido ou tamanho de página fora do limite",
+                content = @Content),
+        @ApiResponse(responseCode = "404", description = "Conta não encontrada",
+                content = @Content)
+    })
+    @GetMapping("/account/{accountNumber}/cursor")
+    public ResponseEntity<TransactionCursorPage> getAccountTransactionsByCursor(
+            @PathVariable @ValidAccountNumber String accountNumber,
+            @Parameter(description = "nextCursor da página anterior; omitir na primeira página")
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        TransactionCursorPage page = transactionService.getAccountTransactionsByCursor(accountNumber, cursor, size);
+        return ResponseEntity.ok(page);
+    }
+    
     @Operation(summary = "Busca por período", description = "Busca transações em um intervalo de datas")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Transações encontradas",
@@ -105,4 +234,53 @@ public class TransactionController {
         List<TransactionDTO> transactions = transactionService.getTransactionsByDateRange(startDate, endDate);
         return ResponseEntity.ok(transactions);
     }
-}
\ No newline at end of file
+    
+    @Operation(summary = "Exporta transações por período",
+            description = "Exporta em NDJSON (padrão) ou CSV as transações do intervalo, em ordem de data. "
+                    + "As linhas são escritas conforme saem do banco, sem limite de quantidade")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Exportação iniciada",
+                content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}),
+        @ApiResponse(responseCode = "400", description = "Parâmetros de data ou formato inválidos",
+                content = @Content)
+    })
+    @GetMapping("/date-range/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactionsByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "ndjson ou csv") @RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExportService.ExportFormat exportFormat = TransactionExportService.ExportFormat.from(format);
+        TransactionExportService.Export export = transactionExportService.exportByDateRange(startDate, endDate, exportFormat);
+        return exportResponse(export, exportFormat, "transactions");
+    }
+    
+    @Operation(summary = "Exporta transações de uma conta",
+            description = "Exporta em NDJSON (padrão) ou CSV todas as transações enviadas e recebidas pela conta, "
+                    + "em ordem de data. As linhas são escritas conforme saem do banco")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Exportação iniciada",
+                content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}),
+        @ApiResponse(responseCode = "400", description = "Formato inválido",
+                content = @Content),
+        @ApiResponse(responseCode = "404", description = "Conta não encontrada",
+                content = @Content)
+    })
+    @GetMapping("/account/{accountNumber}/export")
+    public ResponseEntity<StreamingResponseBody> exportAccountTransactions(
+            @PathVariable @ValidAccountNumber String accountNumber,
+            @Parameter(description = "ndjson ou csv") @RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExportService.ExportFormat exportFormat = TransactionExportService.ExportFormat.from(format);
+        TransactionExportService.Export export = transactionExportService.exportByAccount(accountNumber, exportFormat);
+        return exportResponse(export, exportFormat, "transactions-" + accountNumber);
+    }
+    
+    private ResponseEntity<StreamingResponseBody> exportResponse(TransactionExportService.Export export,
+                                                                 TransactionExportService.ExportFormat format,
+                                                                 String fileName) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, format.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + fileName + "." + format.getExtension() + "\"")
+                .body(export::writeTo);
+    }
+}
@@ -1,7 +1,9 @@
 package com.vitoroliveira.paymentapi.controller;
 
 import com.vitoroliveira.paymentapi.dto.UserDTO;
+import com.vitoroliveira.paymentapi.dto.UserImportJobDTO;
 import com.vitoroliveira.paymentapi.dto.UserRegistrationDTO;
+import com.vitoroliveira.paymentapi.service.UserImportService;
 import com.vitoroliveira.paymentapi.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,16 +17,21 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.net.URI;
+
 @RestController
 @RequestMapping("/api/users")
 @Tag(name = "Usuários", description = "Endpoints para gerenciamento de usuários")
 public class UserController {
     
     private final UserService userService;
+    private final UserImportService userImportService;
     
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImportService userImportService) {
         this.userService = userService;
+        this.userImportService = userImportService;
     }
     
     @Operation(summary = "Registra um novo usuário", description = "Cria um novo usuário no sistema")
@@ -67,4 +74,39 @@ public class UserController {
         UserDTO user = userService.getUserByEmail(email);
         return ResponseEntity.ok(user);
     }
+    
+    @Operation(summary = "Importa usuários de um CSV",
+            description = "Recebe um CSV (text/csv) com as colunas name, email, cpf, password e, opcionalmente, "
+                    + "accountType (CHECKING por padrão). Cada linha válida cria um usuário e uma conta. O arquivo é "
+                    + "processado em segundo plano; progresso e erros por linha em /api/users/import/{id}")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Importação aceita",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserImportJobDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Arquivo vazio ou cabeçalho sem as colunas obrigatórias",
+                content = @Content),
+        @ApiResponse(responseCode = "413", description = "Arquivo maior que o limite por importação",
+                content = @Content),
+        @ApiResponse(responseCode = "429", description = "Fila de importações cheia; tente de novo após Retry-After",
+                content = @Content)
+    })
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<UserImportJobDTO> importUsers(InputStream csv) {
+        UserImportJobDTO job = userImportService.startImport(csv);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/users/import/" + job.getId()))
+                .body(job);
+    }
+    
+    @Operation(summary = "Consulta uma importação",
+            description = "Retorna status, progresso (bytes lidos do arquivo), contadores e os erros por linha")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Importação encontrada",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserImportJobDTO.class))),
+        @ApiResponse(responseCode = "404", description = "Importação não encontrada ou já expirada",
+                content = @Content)
+    })
+    @GetMapping("/import/{id}")
+    public ResponseEntity<UserImportJobDTO> getImport(@PathVariable String id) {
+        return ResponseEntity.ok(userImportService.getJob(id));
+    }
 }
\ No newline at end of file
@@ -19,15 +19,28 @@ public class AccountDTO {
     private BigDecimal balance;
     private Long userId;
     private LocalDateTime createdAt;
+    private int balanceShards;
+    
+    // Usado pelas projeções JPQL; em contas particionadas o saldo ainda é só o principal
+    public AccountDTO(Long id, String accountNumber, Account.AccountType accountType, BigDecimal balance,
+                      Long userId, LocalDateTime createdAt, int balanceShards) {
+        this(id, accountNumber, accountType.toString(), balance, userId, createdAt, balanceShards);
+    }
     
     public static AccountDTO fromEntity(Account account) {
+        return fromEntity(account, account.getBalance());
+    }
+    
+    // Para contas particionadas o saldo informado deve ser o total (principal + buckets)
+    public static AccountDTO fromEntity(Account account, BigDecimal totalBalance) {
         AccountDTO dto = new AccountDTO();
         dto.setId(account.getId());
         dto.setAccountNumber(account.getAccountNumber());
         dto.setAccountType(account.getType().toString());
-        dto.setBalance(account.getBalance());
+        dto.setBalance(totalBalance);
         dto.setUserId(account.getUser().getId());
         dto.setCreatedAt(account.getCreatedAt());
+        dto.setBalanceShards(account.getBalanceShards());
         return dto;
     }
 }
\ No newline at end of file
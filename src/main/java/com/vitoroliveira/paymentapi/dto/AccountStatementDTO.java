@@ -0,0 +1,24 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountStatementDTO {
+    
+    private String accountNumber;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    // Saldo antes da primeira transação do período
+    private BigDecimal openingBalance;
+    // Saldo depois da última transação do período
+    private BigDecimal closingBalance;
+    private List<StatementLineDTO> lines;
+}
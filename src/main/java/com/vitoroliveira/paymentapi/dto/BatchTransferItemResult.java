@@ -0,0 +1,23 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferItemResult {
+    
+    private int index;
+    private ItemStatus status;
+    private TransactionDTO transaction;
+    private String error;
+    
+    public enum ItemStatus {
+        COMPLETED,
+        FAILED,
+        // Item válido que não foi efetivado porque outro item do lote falhou (ALL_OR_NOTHING)
+        ROLLED_BACK
+    }
+}
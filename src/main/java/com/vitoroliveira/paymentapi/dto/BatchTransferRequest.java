@@ -0,0 +1,28 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferRequest {
+    
+    @NotEmpty(message = "O lote deve conter ao menos uma transferência")
+    private List<@Valid @NotNull TransferDTO> transfers;
+    
+    private BatchMode mode = BatchMode.ALL_OR_NOTHING;
+    
+    public enum BatchMode {
+        // Qualquer falha desfaz o lote inteiro
+        ALL_OR_NOTHING,
+        // Itens com falha são ignorados e os demais são efetivados
+        BEST_EFFORT
+    }
+}
@@ -0,0 +1,19 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResponse {
+    
+    private BatchTransferRequest.BatchMode mode;
+    private int total;
+    private int completed;
+    private int failed;
+    private List<BatchTransferItemResult> results;
+}
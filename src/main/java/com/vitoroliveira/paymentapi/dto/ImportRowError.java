@@ -0,0 +1,15 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowError {
+    
+    // Linha do arquivo (o cabeçalho é a linha 1)
+    private long line;
+    private String message;
+}
@@ -0,0 +1,24 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementLineDTO {
+    
+    private Long transactionId;
+    private LocalDateTime transactionDate;
+    private String type;
+    private String description;
+    private String counterpartyAccountNumber;
+    // Positivo para crédito, negativo para débito
+    private BigDecimal amount;
+    // Saldo da conta logo depois deste lançamento
+    private BigDecimal balance;
+}
@@ -0,0 +1,18 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página do histórico por cursor: nextCursor é opaco e nulo na última página
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionCursorPage {
+    
+    private List<TransactionDTO> content;
+    private int size;
+    private String nextCursor;
+}
@@ -21,6 +21,15 @@ public class TransactionDTO {
     private String type;
     private String description;
     private String status;
+    private String failureReason;
+    
+    // Usado pelas projeções JPQL (SELECT new ...), que entregam os enums como estão no modelo
+    public TransactionDTO(Long id, String sourceAccountNumber, String targetAccountNumber, BigDecimal amount,
+                          LocalDateTime transactionDate, Transaction.TransactionType type, String description,
+                          Transaction.TransactionStatus status, String failureReason) {
+        this(id, sourceAccountNumber, targetAccountNumber, amount, transactionDate, type.toString(), description,
+                status.toString(), failureReason);
+    }
     
     public static TransactionDTO fromEntity(Transaction transaction) {
         TransactionDTO dto = new TransactionDTO();
@@ -32,6 +41,21 @@ public class TransactionDTO {
         dto.setType(transaction.getType().toString());
         dto.setDescription(transaction.getDescription());
         dto.setStatus(transaction.getStatus().toString());
+        dto.setFailureReason(transaction.getFailureReason());
         return dto;
     }
+    
+    // Variante que recebe os números das contas já conhecidos, sem acessar as associações lazy
+    public static TransactionDTO fromEntity(Transaction transaction, String sourceAccountNumber, String targetAccountNumber) {
+        return new TransactionDTO(
+                transaction.getId(),
+                sourceAccountNumber,
+                targetAccountNumber,
+                transaction.getAmount(),
+                transaction.getTransactionDate(),
+                transaction.getType().toString(),
+                transaction.getDescription(),
+                transaction.getStatus().toString(),
+                transaction.getFailureReason());
+    }
 }
\ No newline at end of file
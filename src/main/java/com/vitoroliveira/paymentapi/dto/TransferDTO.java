@@ -1,5 +1,6 @@
 package com.vitoroliveira.paymentapi.dto;
 
+import com.vitoroliveira.paymentapi.validation.ValidAccountNumber;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -15,9 +16,11 @@ import java.math.BigDecimal;
 public class TransferDTO {
     
     @NotBlank(message = "Conta de origem é obrigatória")
+    @ValidAccountNumber(message = "Conta de origem inválida")
     private String sourceAccountNumber;
     
     @NotBlank(message = "Conta de destino é obrigatória")
+    @ValidAccountNumber(message = "Conta de destino inválida")
     private String targetAccountNumber;
     
     @NotNull(message = "Valor é obrigatório")
@@ -0,0 +1,21 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import com.vitoroliveira.paymentapi.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferStatusDTO {
+    
+    private Long id;
+    private String status;
+    private String failureReason;
+    
+    public static TransferStatusDTO fromEntity(Transaction transaction) {
+        return new TransferStatusDTO(transaction.getId(), transaction.getStatus().toString(),
+                transaction.getFailureReason());
+    }
+}
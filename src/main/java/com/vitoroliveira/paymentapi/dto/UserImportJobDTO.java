@@ -0,0 +1,30 @@
+package com.vitoroliveira.paymentapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportJobDTO {
+    
+    private String id;
+    // QUEUED, RUNNING, COMPLETED ou FAILED
+    private String status;
+    // Progresso: bytes do arquivo já lidos de totalBytes
+    private long totalBytes;
+    private long processedBytes;
+    private long rowsRead;
+    private long usersCreated;
+    private long rowsRejected;
+    // Só os primeiros erros por linha; rowsRejected traz o total
+    private List<ImportRowError> errors;
+    private boolean errorsTruncated;
+    private String failureReason;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,18 @@
+package com.vitoroliveira.paymentapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConcurrencyConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConcurrencyConflictException(String message) {
+        super(message);
+    }
+
+    public ConcurrencyConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.vitoroliveira.paymentapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A mesma Idempotency-Key foi enviada com um corpo de requisição diferente
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyReuseException(String idempotencyKey) {
+        super(String.format("Idempotency-Key [%s] já foi usada com outra requisição", idempotencyKey));
+    }
+}
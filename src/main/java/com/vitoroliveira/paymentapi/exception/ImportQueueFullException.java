@@ -0,0 +1,15 @@
+package com.vitoroliveira.paymentapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A fila de importações de usuários atingiu a capacidade máxima
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class ImportQueueFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ImportQueueFullException(String message) {
+        super(message);
+    }
+}
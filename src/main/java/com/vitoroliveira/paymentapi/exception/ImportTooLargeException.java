@@ -0,0 +1,15 @@
+package com.vitoroliveira.paymentapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Arquivo de importação maior que payment.import.max-file-size-mb
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class ImportTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ImportTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.vitoroliveira.paymentapi.exception;
+
+// Saldo da conta de origem menor que o valor. Continua sendo IllegalStateException (400) para os
+// clientes; o tipo próprio só permite contar o resultado nas métricas sem depender da mensagem
+public class InsufficientFundsException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientFundsException() {
+        super("Saldo insuficiente para realizar a transferência");
+    }
+}
@@ -20,7 +20,7 @@ import java.util.List;
 public class Account {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @HiLoId("accounts")
     private Long id;
     
     @Column(unique = true)
@@ -34,6 +34,10 @@ public class Account {
     @NotNull(message = "Saldo é obrigatório")
     private BigDecimal balance;
     
+    // Quantidade de sub-saldos (buckets) usados para receber créditos; 0 = conta não particionada
+    @Column(name = "balance_shards", nullable = false)
+    private int balanceShards;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -44,12 +48,21 @@ public class Account {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Controle de concorrência otimista
+    @Version
+    @Column(nullable = false)
+    private Long version;
+    
     @OneToMany(mappedBy = "sourceAccount")
     private List<Transaction> outgoingTransactions = new ArrayList<>();
     
     @OneToMany(mappedBy = "targetAccount")
     private List<Transaction> incomingTransactions = new ArrayList<>();
     
+    public boolean isSharded() {
+        return balanceShards > 0;
+    }
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,35 @@
+package com.vitoroliveira.paymentapi.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Sub-saldo de uma conta particionada. O saldo total da conta é o saldo principal
+// (accounts.balance) somado aos saldos de todos os seus buckets
+@Entity
+@Table(name = "account_balance_shards",
+       uniqueConstraints = @UniqueConstraint(name = "uk_balance_shard_account_index",
+                                             columnNames = {"account_id", "shard_index"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalanceShard {
+    
+    @Id
+    @HiLoId("account_balance_shards")
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+    
+    @Column(name = "shard_index", nullable = false)
+    private int shardIndex;
+    
+    @NotNull
+    private BigDecimal balance;
+}
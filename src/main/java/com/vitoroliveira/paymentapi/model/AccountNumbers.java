@@ -0,0 +1,57 @@
+package com.vitoroliveira.paymentapi.model;
+
+// Formato dos números de conta: 10 dígitos, sendo 9 de corpo (primeiro dígito de 1 a 9) e um
+// dígito verificador Luhn no final, que detecta qualquer dígito trocado e quase todas as inversões
+// de dígitos vizinhos sem consultar o banco.
+// Os números aleatórios antigos eram String.format("%010d", n) com n < 10^9, então sempre começam
+// com 0 e não têm verificador; eles continuam aceitos como estão.
+public final class AccountNumbers {
+    
+    public static final int LENGTH = 10;
+    public static final long FIRST_BODY = 100_000_000L;
+    public static final long BODY_COUNT = 900_000_000L;
+    
+    private AccountNumbers() {
+    }
+    
+    public static String format(long body) {
+        if (body < FIRST_BODY || body >= FIRST_BODY + BODY_COUNT) {
+            throw new IllegalArgumentException("Corpo de número de conta fora da faixa: " + body);
+        }
+        String digits = Long.toString(body);
+        return digits + checkDigit(digits);
+    }
+    
+    public static boolean isValid(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            if (accountNumber.charAt(i) < '0' || accountNumber.charAt(i) > '9') {
+                return false;
+            }
+        }
+        if (accountNumber.charAt(0) == '0') {
+            return true;
+        }
+        return accountNumber.charAt(LENGTH - 1) - '0' == checkDigit(accountNumber.substring(0, LENGTH - 1));
+    }
+    
+    // Luhn: da direita para a esquerda, dobra um dígito sim, outro não, começando pelo último do corpo
+    static int checkDigit(String body) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = body.length() - 1; i >= 0; i--) {
+            int digit = body.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,47 @@
+package com.vitoroliveira.paymentapi.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Saldo de uma conta conferido até uma posição do histórico (last_transaction_date, last_transaction_id):
+// soma de todas as transações concluídas da conta até essa posição, inclusive. O extrato parte do
+// snapshot mais próximo e só reaplica as transações posteriores a ele.
+// O snapshot de abertura fica na posição (LEDGER_START, 0): saldo que a conta já tinha antes do histórico
+@Entity
+@Table(name = "balance_snapshots",
+        indexes = {
+                @Index(name = "idx_balance_snapshots_account_position",
+                       columnList = "account_id, last_transaction_date, last_transaction_id"),
+                @Index(name = "idx_balance_snapshots_created_at", columnList = "created_at")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot {
+    
+    @Id
+    @HiLoId("balance_snapshots")
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+    
+    @NotNull
+    private BigDecimal balance;
+    
+    @Column(name = "last_transaction_date", nullable = false)
+    private LocalDateTime lastTransactionDate;
+    
+    @Column(name = "last_transaction_id", nullable = false)
+    private Long lastTransactionId;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,41 @@
+package com.vitoroliveira.paymentapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Posição do histórico até onde os snapshots de saldo já foram construídos. Linha única
+// (SINGLETON_ID), bloqueada durante cada lote: só uma instância avança os snapshots por vez
+// e nenhuma transação é contada duas vezes
+@Entity
+@Table(name = "balance_snapshot_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshotCheckpoint {
+    
+    public static final long SINGLETON_ID = 1L;
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "last_transaction_date", nullable = false)
+    private LocalDateTime lastTransactionDate;
+    
+    @Column(name = "last_transaction_id", nullable = false)
+    private Long lastTransactionId;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    // Preenchimento dos snapshots de abertura: última conta (id) já processada, para retomar
+    // de onde parou, e quando terminou (null até lá)
+    @Column(name = "opening_balances_after_id", nullable = false)
+    private Long openingBalancesAfterId;
+    
+    @Column(name = "opening_balances_seeded_at")
+    private LocalDateTime openingBalancesSeededAt;
+}
@@ -0,0 +1,20 @@
+package com.vitoroliveira.paymentapi.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Id gerado em blocos a partir da tabela id_generators.
+// Diferente de IDENTITY, o id é conhecido antes do INSERT, o que permite ao Hibernate
+// agrupar os INSERTs em batch (hibernate.jdbc.batch_size)
+@IdGeneratorType(HiLoIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface HiLoId {
+    
+    // Segmento na tabela id_generators (por convenção, o nome da tabela da entidade)
+    String value();
+}
@@ -0,0 +1,37 @@
+package com.vitoroliveira.paymentapi.model;
+
+import com.vitoroliveira.paymentapi.repository.IdBlockAllocator;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+// Gerador instanciado pelo Hibernate para os campos anotados com @HiLoId.
+// Delega ao IdBlockAllocator do contexto Spring que criou o EntityManagerFactory, que reserva os
+// blocos com conexões próprias
+public class HiLoIdGenerator implements IdentifierGenerator {
+    
+    private final String segment;
+    private final IdBlockAllocator allocator;
+    
+    public HiLoIdGenerator(HiLoId config, Member idMember, CustomIdGeneratorCreationContext context) {
+        this.segment = config.value();
+        Object allocator = context.getServiceRegistry().getService(ConfigurationService.class)
+                .getSettings().get(IdBlockAllocator.HIBERNATE_SETTING);
+        if (!(allocator instanceof IdBlockAllocator)) {
+            throw new IllegalStateException("Alocador de ids não configurado em " + IdBlockAllocator.HIBERNATE_SETTING);
+        }
+        this.allocator = (IdBlockAllocator) allocator;
+    }
+    
+    public String getSegment() {
+        return segment;
+    }
+    
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return allocator.next(segment);
+    }
+}
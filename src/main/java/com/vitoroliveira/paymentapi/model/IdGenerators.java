@@ -0,0 +1,13 @@
+package com.vitoroliveira.paymentapi.model;
+
+// Tabela usada pelo gerador hi/lo (@HiLoId). Cada linha guarda o próximo id ainda não reservado
+// de um segmento (uma tabela de entidade)
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String SEGMENT_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,49 @@
+package com.vitoroliveira.paymentapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Resposta gravada para uma Idempotency-Key. É inserida na mesma transação da transferência,
+// então existe registro se e somente se o dinheiro foi movimentado.
+// A chave vale por conta de origem: clientes diferentes podem escolher a mesma chave sem que um
+// receba a transferência gravada para o outro
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = IdempotencyRecord.KEY_CONSTRAINT,
+                columnNames = {"source_account_number", "idempotency_key"}),
+        indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expires_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    
+    public static final String KEY_CONSTRAINT = "uk_idempotency_source_key";
+    
+    @Id
+    @HiLoId("idempotency_keys")
+    private Long id;
+    
+    @Column(name = "source_account_number", nullable = false)
+    private String sourceAccountNumber;
+    
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+    
+    // SHA-256 do corpo da requisição, para recusar a mesma chave com outro conteúdo
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+    
+    // TransactionDTO serializado em JSON
+    @Column(name = "response_body", nullable = false, length = 4000)
+    private String responseBody;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
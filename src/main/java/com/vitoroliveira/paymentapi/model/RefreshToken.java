@@ -7,21 +7,26 @@ import lombok.NoArgsConstructor;
 
 import java.time.Instant;
 
+// Um token por usuário: o login rotaciona a mesma linha e a varredura remove expirados e revogados
 @Entity
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens",
+        indexes = {
+                @Index(name = "idx_refresh_tokens_expiry_date", columnList = "expiry_date"),
+                @Index(name = "idx_refresh_tokens_revoked", columnList = "revoked, id")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class RefreshToken {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @HiLoId("refresh_tokens")
     private Long id;
     
     @Column(nullable = false, unique = true)
     private String token;
     
-    @Column(nullable = false)
+    @Column(name = "expiry_date", nullable = false)
     private Instant expiryDate;
     
     @OneToOne
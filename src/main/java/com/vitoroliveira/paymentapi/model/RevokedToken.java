@@ -0,0 +1,37 @@
+package com.vitoroliveira.paymentapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Access token revogado antes de expirar (logout). A linha só é necessária até expires_at:
+// depois disso o próprio token já é recusado pela validação de expiração
+@Entity
+@Table(name = "revoked_tokens",
+        uniqueConstraints = @UniqueConstraint(name = "uk_revoked_token_jti", columnNames = "jti"),
+        indexes = {
+                @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"),
+                @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    
+    @Id
+    @HiLoId("revoked_tokens")
+    private Long id;
+    
+    // Claim "jti" do access token
+    @Column(nullable = false, length = 36)
+    private String jti;
+    
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+    
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
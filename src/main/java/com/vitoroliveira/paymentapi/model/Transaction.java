@@ -10,15 +10,24 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// Os índices (conta, data, id) atendem o histórico paginado por cursor, um para cada lado da transferência;
+// (data, id) atende a exportação por período e a construção dos snapshots de saldo já na ordem de saída;
+// (status, data) encontra as transferências pendentes sem varrer a tabela
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+        indexes = {
+                @Index(name = "idx_transactions_date_id", columnList = "transaction_date, id"),
+                @Index(name = "idx_transactions_status_date", columnList = "status, transaction_date"),
+                @Index(name = "idx_transactions_source_date_id", columnList = "source_account_id, transaction_date DESC, id DESC"),
+                @Index(name = "idx_transactions_target_date_id", columnList = "target_account_id, transaction_date DESC, id DESC")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Transaction {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @HiLoId("transactions")
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -45,6 +54,10 @@ public class Transaction {
     @Enumerated(EnumType.STRING)
     private TransactionStatus status;
     
+    // Motivo da falha de uma transferência assíncrona (status FAILED)
+    @Column(name = "failure_reason")
+    private String failureReason;
+    
     @PrePersist
     protected void onCreate() {
         transactionDate = LocalDateTime.now();
@@ -13,28 +13,35 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users")  // Usamos "users" em vez de "user" pois "user" é uma palavra reservada em alguns bancos de dados
+// Usamos "users" em vez de "user" pois "user" é uma palavra reservada em alguns bancos de dados.
+// As constraints têm nome fixo porque o cadastro identifica por ele qual campo já está em uso
+@Table(name = "users",
+        uniqueConstraints = {
+                @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email"),
+                @UniqueConstraint(name = User.CPF_CONSTRAINT, columnNames = "cpf")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
     
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+    public static final String CPF_CONSTRAINT = "uk_users_cpf";
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @HiLoId("users")
     private Long id;
     
     @NotBlank(message = "Nome é obrigatório")
     @Size(min = 3, max = 50, message = "Nome deve ter entre 3 e 50 caracteres")
     private String name;
     
-    @Column(unique = true)
     @NotBlank(message = "CPF é obrigatório")
     @Size(min = 11, max = 14, message = "CPF inválido")
     private String cpf;
     
     @Email(message = "Email inválido")
     @NotBlank(message = "Email é obrigatório")
-    @Column(unique = true)
     private String email;
     
     @NotBlank(message = "Senha é obrigatória")
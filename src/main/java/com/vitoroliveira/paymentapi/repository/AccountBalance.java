@@ -0,0 +1,7 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import java.math.BigDecimal;
+
+// Valor por conta sem carregar a entidade: saldo da linha ou soma de lançamentos
+public record AccountBalance(Long accountId, BigDecimal amount) {
+}
@@ -0,0 +1,36 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.model.AccountBalanceShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceShardRepository extends JpaRepository<AccountBalanceShard, Long> {
+    
+    // Crédito atômico em um único bucket, sem tocar a linha da conta
+    @Modifying
+    @Query("UPDATE AccountBalanceShard s SET s.balance = s.balance + :amount " +
+           "WHERE s.account.id = :accountId AND s.shardIndex = :shardIndex")
+    int credit(Long accountId, int shardIndex, BigDecimal amount);
+    
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM AccountBalanceShard s WHERE s.account.id = :accountId")
+    BigDecimal sumBalanceByAccountId(Long accountId);
+    
+    // Soma dos buckets de várias contas em uma consulta (contas sem buckets não aparecem)
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.ShardBalanceTotal(s.account.id, SUM(s.balance)) " +
+           "FROM AccountBalanceShard s WHERE s.account.id IN :accountIds GROUP BY s.account.id")
+    List<ShardBalanceTotal> sumBalanceByAccountIdIn(Collection<Long> accountIds);
+    
+    // Bloqueia todos os buckets da conta, sempre em ordem de índice
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceShard s WHERE s.account.id = :accountId ORDER BY s.shardIndex")
+    List<AccountBalanceShard> findByAccountIdForUpdate(Long accountId);
+}
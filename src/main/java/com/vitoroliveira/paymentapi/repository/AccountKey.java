@@ -0,0 +1,9 @@
+package com.vitoroliveira.paymentapi.repository;
+
+// Projeção mínima de uma conta: o suficiente para ordenar locks e decidir o caminho da transferência
+public record AccountKey(Long id, String accountNumber, int balanceShards) {
+    
+    public boolean isSharded() {
+        return balanceShards > 0;
+    }
+}
@@ -1,10 +1,19 @@
 package com.vitoroliveira.paymentapi.repository;
 
+import com.vitoroliveira.paymentapi.dto.AccountDTO;
 import com.vitoroliveira.paymentapi.model.Account;
 import com.vitoroliveira.paymentapi.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +22,58 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     
     List<Account> findByUser(User user);
     
+    // Listagens: as colunas do AccountDTO em uma consulta; o id do usuário vem da FK, sem carregar o User
+    @Query("SELECT new com.vitoroliveira.paymentapi.dto.AccountDTO(a.id, a.accountNumber, a.type, a.balance, " +
+           "a.user.id, a.createdAt, a.balanceShards) FROM Account a WHERE a.user.id = :userId ORDER BY a.id")
+    List<AccountDTO> findDtosByUserId(Long userId);
+    
+    @Query("SELECT new com.vitoroliveira.paymentapi.dto.AccountDTO(a.id, a.accountNumber, a.type, a.balance, " +
+           "a.user.id, a.createdAt, a.balanceShards) FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<AccountDTO> findDtoByAccountNumber(String accountNumber);
+    
     Optional<Account> findByAccountNumber(String accountNumber);
     
-    boolean existsByAccountNumber(String accountNumber);
-}
\ No newline at end of file
+    // Sem lock; as contas entram no contexto de persistência em ordem de ID
+    @Query("SELECT a FROM Account a WHERE a.accountNumber IN :accountNumbers ORDER BY a.id")
+    List<Account> findAllByAccountNumberIn(Collection<String> accountNumbers);
+    
+    // Carrega a conta com lock de escrita na linha (SELECT ... FOR UPDATE)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdForUpdate(Long id);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<Account> findByAccountNumberForUpdate(String accountNumber);
+    
+    // Carrega e bloqueia várias contas em uma consulta, percorrendo a chave primária em ordem
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdForUpdate(Collection<Long> ids);
+    
+    // Busca apenas ID, número e particionamento das contas informadas, em uma única consulta
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.AccountKey(a.id, a.accountNumber, a.balanceShards) " +
+           "FROM Account a WHERE a.accountNumber IN :accountNumbers")
+    List<AccountKey> findKeysByAccountNumberIn(Collection<String> accountNumbers);
+    
+    // Saldo da linha de cada conta, em lotes pela chave primária
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.AccountBalance(a.id, a.balance) " +
+           "FROM Account a WHERE a.id > :afterId ORDER BY a.id")
+    List<AccountBalance> findBalancesAfter(Long afterId, Pageable page);
+    
+    // Débito atômico: só altera a linha se houver saldo suficiente (retorna 0 caso contrário)
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount, a.updatedAt = :now, a.version = a.version + 1 " +
+           "WHERE a.id = :id AND a.balance >= :amount")
+    int debit(Long id, BigDecimal amount, LocalDateTime now);
+    
+    // Crédito atômico
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.updatedAt = :now, a.version = a.version + 1 " +
+           "WHERE a.id = :id")
+    int credit(Long id, BigDecimal amount, LocalDateTime now);
+    
+    // Números das contas com saldo particionado
+    @Query("SELECT a.accountNumber FROM Account a WHERE a.balanceShards > 0")
+    List<String> findShardedAccountNumbers();
+}
@@ -0,0 +1,18 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.model.BalanceSnapshotCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotCheckpointRepository extends JpaRepository<BalanceSnapshotCheckpoint, Long> {
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM BalanceSnapshotCheckpoint c WHERE c.id = :id")
+    Optional<BalanceSnapshotCheckpoint> findByIdForUpdate(Long id);
+}
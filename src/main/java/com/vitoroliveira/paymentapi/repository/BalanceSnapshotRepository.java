@@ -0,0 +1,33 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.model.BalanceSnapshot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    
+    // Snapshot mais recente de cada conta informada (contas sem snapshot não aparecem)
+    @Query("SELECT s FROM BalanceSnapshot s WHERE s.account.id IN :accountIds AND NOT EXISTS (" +
+           "SELECT 1 FROM BalanceSnapshot n WHERE n.account = s.account AND (n.lastTransactionDate > s.lastTransactionDate " +
+           "OR (n.lastTransactionDate = s.lastTransactionDate AND n.lastTransactionId > s.lastTransactionId)))")
+    List<BalanceSnapshot> findLatestByAccountIdIn(Collection<Long> accountIds);
+    
+    // Snapshot mais próximo que só contém transações anteriores a "before"
+    @Query("SELECT s FROM BalanceSnapshot s WHERE s.account.id = :accountId AND s.lastTransactionDate < :before " +
+           "ORDER BY s.lastTransactionDate DESC, s.lastTransactionId DESC")
+    List<BalanceSnapshot> findLatestBefore(Long accountId, LocalDateTime before, Pageable page);
+    
+    // Retenção: snapshots criados antes de "cutoff" que já têm um mais recente na mesma conta.
+    // O mais recente de cada conta e o de abertura (lastTransactionId = 0) nunca entram
+    @Query("SELECT s.id FROM BalanceSnapshot s WHERE s.createdAt < :cutoff AND s.lastTransactionId > 0 AND EXISTS (" +
+           "SELECT 1 FROM BalanceSnapshot n WHERE n.account = s.account AND (n.lastTransactionDate > s.lastTransactionDate " +
+           "OR (n.lastTransactionDate = s.lastTransactionDate AND n.lastTransactionId > s.lastTransactionId)))")
+    List<Long> findSupersededIdsCreatedBefore(LocalDateTime cutoff, Pageable page);
+}
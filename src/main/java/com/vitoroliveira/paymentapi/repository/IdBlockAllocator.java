@@ -0,0 +1,134 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.model.IdGenerators;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Reserva blocos de ids na tabela id_generators (hi/lo).
+// Cada segmento mantém em memória o bloco atual; só quando ele acaba há uma ida ao banco,
+// que avança next_val em blockSize dentro de uma transação curta com SELECT ... FOR UPDATE.
+//
+// A reserva usa um pool de conexões próprio e pequeno: ela acontece no meio de transações que
+// já seguram uma conexão do pool principal, e com o pool principal esgotado todas as threads
+// ficariam esperando por uma conexão que nenhuma delas vai devolver.
+//
+// O Hibernate instancia o HiLoIdGenerator fora do Spring. O alocador entra nas configurações do
+// EntityManagerFactory do próprio contexto (HIBERNATE_SETTING) e o gerador o lê do ServiceRegistry,
+// então cada contexto usa o seu alocador e fechar um contexto não afeta os outros.
+@Component
+public class IdBlockAllocator implements HibernatePropertiesCustomizer, DisposableBean {
+    
+    public static final String HIBERNATE_SETTING = "payment.ids.allocator";
+    
+    private final HikariDataSource dataSource;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public IdBlockAllocator(DataSourceProperties dataSourceProperties,
+                            @Value("${payment.ids.block-size:50}") int blockSize,
+                            @Value("${payment.ids.pool-size:2}") int poolSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("payment.ids.block-size deve ser maior que zero");
+        }
+        this.blockSize = blockSize;
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.dataSource.setPoolName("id-allocator");
+        this.dataSource.setMaximumPoolSize(poolSize);
+        this.dataSource.setMinimumIdle(0);
+    }
+    
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(HIBERNATE_SETTING, this);
+    }
+    
+    public long next(String segment) {
+        Block block = blocks.computeIfAbsent(segment, key -> new Block());
+        // ReentrantLock em vez de synchronized: a reserva faz I/O com o lock adquirido e, em
+        // threads virtuais, synchronized prenderia a thread carregadora durante a consulta
+        block.lock.lock();
+        try {
+            if (block.next >= block.limit) {
+                block.next = reserve(segment);
+                block.limit = block.next + blockSize;
+            }
+            return block.next++;
+        } finally {
+            block.lock.unlock();
+        }
+    }
+    
+    // Avança o segmento em blockSize e devolve o primeiro id do bloco reservado
+    private long reserve(String segment) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long start = lockSegment(connection, segment);
+                try (PreparedStatement update = connection.prepareStatement("UPDATE " + IdGenerators.TABLE
+                        + " SET " + IdGenerators.VALUE_COLUMN + " = ? WHERE " + IdGenerators.SEGMENT_COLUMN + " = ?")) {
+                    update.setLong(1, start + blockSize);
+                    update.setString(2, segment);
+                    update.executeUpdate();
+                }
+                connection.commit();
+                return start;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Não foi possível reservar ids para " + segment, e);
+        }
+    }
+    
+    // Lê next_val com lock de escrita; cria o segmento se ele ainda não existir
+    private long lockSegment(Connection connection, String segment) throws SQLException {
+        while (true) {
+            try (PreparedStatement select = connection.prepareStatement("SELECT " + IdGenerators.VALUE_COLUMN
+                    + " FROM " + IdGenerators.TABLE + " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ? FOR UPDATE")) {
+                select.setString(1, segment);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    if (resultSet.next()) {
+                        return resultSet.getLong(1);
+                    }
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + IdGenerators.TABLE
+                    + " (" + IdGenerators.SEGMENT_COLUMN + ", " + IdGenerators.VALUE_COLUMN + ") VALUES (?, 1)")) {
+                insert.setString(1, segment);
+                insert.executeUpdate();
+                return 1;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Outra instância criou o segmento ao mesmo tempo; lê de novo
+                connection.rollback();
+            }
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        dataSource.close();
+    }
+    
+    private static final class Block {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long next;
+        private long limit;
+    }
+}
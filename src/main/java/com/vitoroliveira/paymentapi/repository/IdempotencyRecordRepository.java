@@ -0,0 +1,28 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    
+    Optional<IdempotencyRecord> findBySourceAccountNumberAndIdempotencyKey(String sourceAccountNumber, String idempotencyKey);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.sourceAccountNumber = :sourceAccountNumber " +
+           "AND r.idempotencyKey = :idempotencyKey AND r.expiresAt < :now")
+    int deleteExpiredByIdempotencyKey(String sourceAccountNumber, String idempotencyKey, LocalDateTime now);
+}
@@ -0,0 +1,20 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Transação concluída vista como lançamento: só o que altera saldos, sem carregar as contas
+public record LedgerEntry(Long id, LocalDateTime transactionDate, Long sourceAccountId, Long targetAccountId,
+                          BigDecimal amount, Transaction.TransactionType type) {
+    
+    // Depósitos só creditam e saques só debitam (origem e destino são a mesma conta)
+    public boolean credits() {
+        return type != Transaction.TransactionType.WITHDRAWAL;
+    }
+    
+    public boolean debits() {
+        return type != Transaction.TransactionType.DEPOSIT;
+    }
+}
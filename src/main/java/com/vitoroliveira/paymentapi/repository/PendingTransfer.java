@@ -0,0 +1,18 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import java.math.BigDecimal;
+
+// Transferência aceita de forma assíncrona e ainda não liquidada; attempts conta as
+// liquidações que já falharam por erro transitório
+public record PendingTransfer(Long transactionId, String sourceAccountNumber, String targetAccountNumber,
+                              BigDecimal amount, int attempts) {
+
+    public PendingTransfer(Long transactionId, String sourceAccountNumber, String targetAccountNumber,
+                           BigDecimal amount) {
+        this(transactionId, sourceAccountNumber, targetAccountNumber, amount, 0);
+    }
+
+    public PendingTransfer nextAttempt() {
+        return new PendingTransfer(transactionId, sourceAccountNumber, targetAccountNumber, amount, attempts + 1);
+    }
+}
@@ -2,10 +2,16 @@ package com.vitoroliveira.paymentapi.repository;
 
 import com.vitoroliveira.paymentapi.model.RefreshToken;
 import com.vitoroliveira.paymentapi.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +22,32 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
     int deleteByUser(User user);
     
     Optional<RefreshToken> findByUser(User user);
-}
\ No newline at end of file
+    
+    // Rotação no lugar: reaproveita a linha do usuário; 0 = usuário ainda sem refresh token
+    @Transactional
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.token = :token, r.expiryDate = :expiryDate, r.revoked = false " +
+           "WHERE r.user.id = :userId")
+    int rotate(Long userId, String token, Instant expiryDate);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true " +
+           "WHERE r.user.id = (SELECT u.id FROM User u WHERE u.email = :email)")
+    int revokeByUserEmail(String email);
+    
+    // Ids de tokens expirados, pelo início de idx_refresh_tokens_expiry_date. Não precisa de cursor:
+    // cada linha do lote é apagada ou, se foi rotacionada nesse meio tempo, deixa de estar no intervalo
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.expiryDate < :now ORDER BY r.expiryDate")
+    List<Long> findExpiredIds(Instant now, Pageable page);
+    
+    // Ids de tokens revogados ainda não expirados, em lotes pelo id (keyset em idx_refresh_tokens_revoked)
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.revoked = true AND r.id > :afterId ORDER BY r.id")
+    List<Long> findRevokedIdsAfter(Long afterId, Pageable page);
+    
+    // A condição é repetida: um token rotacionado depois da seleção do lote não é removido
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.id IN :ids AND (r.expiryDate < :now OR r.revoked = true)")
+    int deleteSweepable(Collection<Long> ids, Instant now);
+}
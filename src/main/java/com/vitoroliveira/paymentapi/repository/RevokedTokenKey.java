@@ -0,0 +1,7 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import java.time.Instant;
+
+// Projeção usada para recarregar a lista de revogação em memória
+public record RevokedTokenKey(Long id, String jti, Instant expiresAt) {
+}
@@ -0,0 +1,33 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.model.RevokedToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+    
+    boolean existsByJti(String jti);
+    
+    // Revogações ainda válidas, paginadas pelo id (keyset)
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.RevokedTokenKey(r.id, r.jti, r.expiresAt) " +
+           "FROM RevokedToken r WHERE r.expiresAt > :now AND r.id > :afterId ORDER BY r.id")
+    List<RevokedTokenKey> findActiveAfterId(Instant now, Long afterId, Pageable page);
+    
+    // Revogações feitas a partir de um instante, inclusive por outras instâncias
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.RevokedTokenKey(r.id, r.jti, r.expiresAt) " +
+           "FROM RevokedToken r WHERE r.revokedAt >= :since AND r.expiresAt > :now")
+    List<RevokedTokenKey> findRevokedSince(Instant since, Instant now);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
@@ -0,0 +1,7 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import java.math.BigDecimal;
+
+// Soma dos buckets de uma conta particionada
+public record ShardBalanceTotal(Long accountId, BigDecimal balance) {
+}
@@ -0,0 +1,13 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Linha de exportação: os mesmos campos do TransactionDTO, com os números das contas já na consulta
+public record TransactionExportRow(Long id, String sourceAccountNumber, String targetAccountNumber,
+                                   BigDecimal amount, LocalDateTime transactionDate,
+                                   Transaction.TransactionType type, String description,
+                                   Transaction.TransactionStatus status, String failureReason) {
+}
@@ -0,0 +1,11 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import java.time.LocalDateTime;
+
+// Posição de uma transação no histórico da conta (ordem de transaction_date, id)
+public interface TransactionPosition {
+    
+    Long getId();
+    
+    LocalDateTime getTransactionDate();
+}
@@ -1,19 +1,35 @@
 package com.vitoroliveira.paymentapi.repository;
 
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
 import com.vitoroliveira.paymentapi.model.Account;
 import com.vitoroliveira.paymentapi.model.Transaction;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     
+    // Listagens: exatamente as colunas do TransactionDTO, com os números das contas vindos dos joins.
+    // Mapear entidades com TransactionDTO.fromEntity carregaria as duas contas de cada linha (2N selects)
+    String DTO_SELECT = "SELECT new com.vitoroliveira.paymentapi.dto.TransactionDTO(t.id, s.accountNumber, d.accountNumber, " +
+            "t.amount, t.transactionDate, t.type, t.description, t.status, t.failureReason) " +
+            "FROM Transaction t JOIN t.sourceAccount s JOIN t.targetAccount d ";
+    
     // Encontra todas as transações de uma conta (enviadas ou recebidas)
     @Query("SELECT t FROM Transaction t WHERE t.sourceAccount = :account OR t.targetAccount = :account")
     List<Transaction> findAllByAccount(Account account);
@@ -22,6 +38,51 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT t FROM Transaction t WHERE t.sourceAccount = :account OR t.targetAccount = :account")
     Page<Transaction> findAllByAccount(Account account, Pageable pageable);
     
+    @Query(DTO_SELECT + "WHERE s.id = :accountId OR d.id = :accountId")
+    List<TransactionDTO> findDtosByAccountId(Long accountId);
+    
+    // A contagem não precisa dos joins
+    @Query(value = DTO_SELECT + "WHERE s.id = :accountId OR d.id = :accountId",
+           countQuery = "SELECT COUNT(t) FROM Transaction t " +
+                        "WHERE t.sourceAccount.id = :accountId OR t.targetAccount.id = :accountId")
+    Page<TransactionDTO> findDtosByAccountId(Long accountId, Pageable pageable);
+    
+    @Query(DTO_SELECT + "WHERE t.id = :id")
+    Optional<TransactionDTO> findDtoById(Long id);
+    
+    // Histórico por cursor (keyset), do mais recente para o mais antigo. Um ramo por lado da
+    // transferência, cada um lendo só o seu índice (conta, data, id) e parando em :limit linhas;
+    // o OR entre source e target impediria o uso dos dois índices. A conta (constante) no ORDER BY
+    // deixa a ordenação igual à do índice, que é lido já ordenado. Cada ramo volta ordenado e quem
+    // chama intercala os dois: envolver o UNION em ORDER BY/LIMIT faz o H2 abandonar esses índices.
+    @Query(value = "(SELECT t.id, t.transaction_date AS transactionDate FROM transactions t " +
+           "WHERE t.source_account_id = :accountId " +
+           "ORDER BY t.source_account_id, t.transaction_date DESC, t.id DESC LIMIT :limit) " +
+           "UNION ALL " +
+           "(SELECT t.id, t.transaction_date AS transactionDate FROM transactions t " +
+           "WHERE t.target_account_id = :accountId " +
+           "ORDER BY t.target_account_id, t.transaction_date DESC, t.id DESC LIMIT :limit)",
+           nativeQuery = true)
+    List<TransactionPosition> findLatestPositionsByAccount(Long accountId, int limit);
+    
+    // Página seguinte: linhas estritamente anteriores a (afterDate, afterId). O "<=" redundante
+    // dá ao otimizador um intervalo simples no índice; o OR sozinho nem todo banco converte em busca
+    @Query(value = "(SELECT t.id, t.transaction_date AS transactionDate FROM transactions t " +
+           "WHERE t.source_account_id = :accountId AND t.transaction_date <= :afterDate " +
+           "AND (t.transaction_date < :afterDate OR (t.transaction_date = :afterDate AND t.id < :afterId)) " +
+           "ORDER BY t.source_account_id, t.transaction_date DESC, t.id DESC LIMIT :limit) " +
+           "UNION ALL " +
+           "(SELECT t.id, t.transaction_date AS transactionDate FROM transactions t " +
+           "WHERE t.target_account_id = :accountId AND t.transaction_date <= :afterDate " +
+           "AND (t.transaction_date < :afterDate OR (t.transaction_date = :afterDate AND t.id < :afterId)) " +
+           "ORDER BY t.target_account_id, t.transaction_date DESC, t.id DESC LIMIT :limit)",
+           nativeQuery = true)
+    List<TransactionPosition> findPositionsByAccountBefore(Long accountId, LocalDateTime afterDate, Long afterId, int limit);
+    
+    // Transações de uma página já escolhida, já como DTO
+    @Query(DTO_SELECT + "WHERE t.id IN :ids")
+    List<TransactionDTO> findDtosByIdIn(Collection<Long> ids);
+    
     // Encontra transações enviadas de uma conta
     List<Transaction> findBySourceAccount(Account account);
     
@@ -30,4 +91,90 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     
     // Encontra transações por período
     List<Transaction> findByTransactionDateBetween(LocalDateTime start, LocalDateTime end);
-}
\ No newline at end of file
+    
+    @Query(DTO_SELECT + "WHERE t.transactionDate BETWEEN :startDate AND :endDate")
+    List<TransactionDTO> findDtosByTransactionDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+    
+    // Exportação: projeção sem entidades (nada cresce no contexto de persistência e não há lazy
+    // loads), lida pelo driver em lotes de fetch size. Usar dentro de uma transação e fechar o Stream.
+    // No MySQL o fetch size só é respeitado com useCursorFetch=true na URL.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.TransactionExportRow(t.id, s.accountNumber, d.accountNumber, " +
+           "t.amount, t.transactionDate, t.type, t.description, t.status, t.failureReason) " +
+           "FROM Transaction t JOIN t.sourceAccount s JOIN t.targetAccount d " +
+           "WHERE t.transactionDate BETWEEN :startDate AND :endDate ORDER BY t.transactionDate, t.id")
+    Stream<TransactionExportRow> streamByTransactionDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.TransactionExportRow(t.id, s.accountNumber, d.accountNumber, " +
+           "t.amount, t.transactionDate, t.type, t.description, t.status, t.failureReason) " +
+           "FROM Transaction t JOIN t.sourceAccount s JOIN t.targetAccount d " +
+           "WHERE s.id = :accountId OR d.id = :accountId ORDER BY t.transactionDate, t.id")
+    Stream<TransactionExportRow> streamByAccountId(Long accountId);
+    
+    // Snapshots de saldo: lançamentos concluídos depois de (afterDate, afterId) e antes de "before",
+    // na ordem do índice (data, id), em lotes. Cada transação é lida uma única vez pela construção
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.LedgerEntry(t.id, t.transactionDate, " +
+           "t.sourceAccount.id, t.targetAccount.id, t.amount, t.type) FROM Transaction t " +
+           "WHERE t.transactionDate >= :afterDate AND t.transactionDate < :before " +
+           "AND (t.transactionDate > :afterDate OR t.id > :afterId) " +
+           "AND t.status = COMPLETED " +
+           "ORDER BY t.transactionDate, t.id")
+    List<LedgerEntry> findLedgerEntriesAfter(LocalDateTime afterDate, Long afterId, LocalDateTime before, Pageable page);
+    
+    // Data da transação mais antiga no status informado (null se não houver)
+    @Query("SELECT MIN(t.transactionDate) FROM Transaction t WHERE t.status = :status")
+    LocalDateTime findEarliestDateByStatus(Transaction.TransactionStatus status);
+    
+    // Créditos e débitos concluídos da conta entre (afterDate, afterId) e "before": o delta entre um
+    // snapshot e o início do extrato. Cada soma lê só o índice (conta, data, id) do seu lado
+    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t WHERE t.targetAccount.id = :accountId " +
+           "AND t.transactionDate >= :afterDate AND t.transactionDate < :before " +
+           "AND (t.transactionDate > :afterDate OR t.id > :afterId) " +
+           "AND t.status = COMPLETED " +
+           "AND t.type <> WITHDRAWAL")
+    BigDecimal sumCreditsBetween(Long accountId, LocalDateTime afterDate, Long afterId, LocalDateTime before);
+    
+    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t WHERE t.sourceAccount.id = :accountId " +
+           "AND t.transactionDate >= :afterDate AND t.transactionDate < :before " +
+           "AND (t.transactionDate > :afterDate OR t.id > :afterId) " +
+           "AND t.status = COMPLETED " +
+           "AND t.type <> DEPOSIT")
+    BigDecimal sumDebitsBetween(Long accountId, LocalDateTime afterDate, Long afterId, LocalDateTime before);
+    
+    // Créditos e débitos concluídos de todo o histórico das contas informadas (saldo de abertura
+    // dos snapshots); contas sem lançamentos não aparecem
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.AccountBalance(t.targetAccount.id, SUM(t.amount)) " +
+           "FROM Transaction t WHERE t.targetAccount.id IN :accountIds " +
+           "AND t.status = COMPLETED AND t.type <> WITHDRAWAL GROUP BY t.targetAccount.id")
+    List<AccountBalance> sumCreditsByAccountIdIn(Collection<Long> accountIds);
+    
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.AccountBalance(t.sourceAccount.id, SUM(t.amount)) " +
+           "FROM Transaction t WHERE t.sourceAccount.id IN :accountIds " +
+           "AND t.status = COMPLETED AND t.type <> DEPOSIT GROUP BY t.sourceAccount.id")
+    List<AccountBalance> sumDebitsByAccountIdIn(Collection<Long> accountIds);
+    
+    // Lançamentos do extrato, do mais antigo para o mais recente
+    @Query(DTO_SELECT + "WHERE (s.id = :accountId OR d.id = :accountId) " +
+           "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+           "AND t.status = COMPLETED " +
+           "ORDER BY t.transactionDate, t.id")
+    List<TransactionDTO> findStatementLines(Long accountId, LocalDateTime startDate, LocalDateTime endDate, Pageable page);
+    
+    // Bloqueia as transações em ordem de ID (liquidação assíncrona)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.id IN :ids ORDER BY t.id")
+    List<Transaction> findAllByIdForUpdate(Collection<Long> ids);
+    
+    // Transferências ainda não liquidadas, com os números das contas, em ordem de chegada
+    @Query("SELECT new com.vitoroliveira.paymentapi.repository.PendingTransfer(t.id, s.accountNumber, d.accountNumber, t.amount) " +
+           "FROM Transaction t JOIN t.sourceAccount s JOIN t.targetAccount d " +
+           "WHERE t.status = :status ORDER BY t.id")
+    List<PendingTransfer> findTransfersByStatus(Transaction.TransactionStatus status);
+}
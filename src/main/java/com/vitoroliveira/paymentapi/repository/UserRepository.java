@@ -2,8 +2,13 @@ package com.vitoroliveira.paymentapi.repository;
 
 import com.vitoroliveira.paymentapi.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +21,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
     
     boolean existsByCpf(String cpf);
+    
+    // Verificação de duplicados em lote (importação): quais destes emails/CPFs já existem
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+    
+    @Query("SELECT u.cpf FROM User u WHERE u.cpf IN :cpfs")
+    List<String> findExistingCpfs(Collection<String> cpfs);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.email = :email")
+    int updatePassword(String email, String password);
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.vitoroliveira.paymentapi.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+// Usuário autenticado com o id, para que o token carregue o id e as roles e a
+// autenticação das requisições seguintes não precise consultar a tabela users
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+
+    public AuthenticatedUser(Long id, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+    }
+
+    // Principal montado a partir de um token ou guardado em cache: nunca carrega o hash da senha
+    public AuthenticatedUser(Long id, String email, Collection<? extends GrantedAuthority> authorities) {
+        this(id, email, "", authorities);
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
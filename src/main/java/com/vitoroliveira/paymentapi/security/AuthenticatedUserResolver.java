@@ -0,0 +1,82 @@
+package com.vitoroliveira.paymentapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+// Monta o principal de uma requisição a partir das claims já verificadas do token.
+//
+// - CLAIMS (padrão): id, email e roles vêm do próprio token, sem consulta ao banco. Um usuário
+//   removido continua autenticado até o token expirar (no máximo jwt.expiration).
+// - CACHED: consulta a tabela users e guarda o principal por jwt.principal.cache-ttl-seconds,
+//   para quem precisa perceber a remoção do usuário antes da expiração do token.
+// - DATABASE: consulta a tabela users em toda requisição (comportamento anterior).
+//
+// Tokens emitidos antes das claims de id e roles são resolvidos pelo banco em qualquer modo.
+@Component
+public class AuthenticatedUserResolver {
+
+    public enum PrincipalSource {
+        CLAIMS, CACHED, DATABASE
+    }
+
+    private final CustomUserDetailsService userDetailsService;
+    private final PrincipalSource source;
+    private final Cache<String, UserDetails> principals;
+
+    @Autowired
+    public AuthenticatedUserResolver(CustomUserDetailsService userDetailsService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${jwt.principal.source:claims}") PrincipalSource source,
+                                     @Value("${jwt.principal.cache-ttl-seconds:60}") long cacheTtlSeconds,
+                                     @Value("${jwt.principal.cache-maximum-size:10000}") long cacheMaximumSize) {
+        this.userDetailsService = userDetailsService;
+        this.source = source;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "jwt-principals");
+    }
+
+    // Principal do titular do token, ou null se o usuário não existe mais
+    public UserDetails resolve(TokenClaims claims) {
+        try {
+            return switch (source) {
+                case CLAIMS -> fromClaims(claims);
+                case CACHED -> principals.get(claims.subject(), this::loadWithoutCredentials);
+                case DATABASE -> userDetailsService.loadUserByUsername(claims.subject());
+            };
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private UserDetails fromClaims(TokenClaims claims) {
+        if (claims.userId() == null || claims.roles() == null) {
+            return loadWithoutCredentials(claims.subject());
+        }
+        List<GrantedAuthority> authorities = claims.roles().stream()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+        return new AuthenticatedUser(claims.userId(), claims.subject(), authorities);
+    }
+
+    // O hash da senha não é necessário depois do login e não fica no contexto nem no cache
+    private UserDetails loadWithoutCredentials(String email) {
+        AuthenticatedUser user = (AuthenticatedUser) userDetailsService.loadUserByUsername(email);
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getAuthorities());
+    }
+}
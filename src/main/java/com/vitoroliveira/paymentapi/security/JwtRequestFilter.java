@@ -1,5 +1,8 @@
 package com.vitoroliveira.paymentapi.security;
 
+import com.vitoroliveira.paymentapi.service.TokenRevocationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,17 +16,36 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
+// Cada bearer token recebido é medido em payment.jwt.validation{result}: verificação, revogação,
+// montagem do principal e validação, até a autenticação ficar (ou não) no contexto
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
-    private final CustomUserDetailsService userDetailsService;
+    private final AuthenticatedUserResolver authenticatedUserResolver;
+    private final TokenRevocationService tokenRevocationService;
     private final JwtUtil jwtUtil;
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
 
     @Autowired
-    public JwtRequestFilter(CustomUserDetailsService userDetailsService, JwtUtil jwtUtil) {
-        this.userDetailsService = userDetailsService;
+    public JwtRequestFilter(AuthenticatedUserResolver authenticatedUserResolver,
+                            TokenRevocationService tokenRevocationService,
+                            JwtUtil jwtUtil,
+                            MeterRegistry meterRegistry) {
+        this.authenticatedUserResolver = authenticatedUserResolver;
+        this.tokenRevocationService = tokenRevocationService;
         this.jwtUtil = jwtUtil;
+        this.authenticatedTimer = validationTimer(meterRegistry, "authenticated");
+        this.rejectedTimer = validationTimer(meterRegistry, "rejected");
+    }
+
+    private static Timer validationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("payment.jwt.validation")
+                .description("Duração da validação do bearer token por requisição")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     @Override
@@ -32,24 +54,29 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        TokenClaims claims = null;
+        boolean bearer = authorizationHeader != null && authorizationHeader.startsWith("Bearer ");
+        long startedAt = bearer ? System.nanoTime() : 0;
 
-        // Extrair token JWT do cabeçalho Authorization
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+        // Extrair token JWT do cabeçalho Authorization e verificá-lo uma única vez
+        if (bearer) {
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                claims = jwtUtil.getVerifiedClaims(jwt);
             } catch (Exception e) {
                 logger.error("Erro ao extrair username do token", e);
             }
         }
 
-        // Validar token e configurar autenticação
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        // Validar token (ainda não revogado por logout) e configurar autenticação
+        boolean authenticated = false;
+        if (claims != null && claims.subject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenRevocationService.isRevoked(claims)) {
+            // Por padrão o principal vem das próprias claims, sem consultar o banco
+            UserDetails userDetails = authenticatedUserResolver.resolve(claims);
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (userDetails != null && jwtUtil.validateToken(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 
@@ -57,8 +84,12 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                         .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 
                 SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
+                authenticated = true;
             }
         }
+        if (bearer) {
+            (authenticated ? authenticatedTimer : rejectedTimer).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
         chain.doFilter(request, response);
     }
 }
\ No newline at end of file
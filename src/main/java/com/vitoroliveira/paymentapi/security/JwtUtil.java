@@ -1,32 +1,81 @@
 package com.vitoroliveira.paymentapi.security;
 
-import io.jsonwebtoken.Claims;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+// Chave e parser são montados uma vez; cada token é verificado (assinatura HMAC e expiração)
+// uma única vez e as claims verificadas ficam em cache até o "exp" do token. O cache guarda
+// TokenClaims (imutável), nunca o Claims mutável do jjwt, porque a instância é compartilhada.
+// O cache é indexado pelo SHA-256 do token, para não manter bearer tokens em memória,
+// e publicado no Actuator como cache.* {cache=jwt-claims}. Com maximum-size 0 fica desligado.
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret:supersecretkey123456789012345678901234}")
-    private String secret;
+    // Claims próprias: id do usuário e roles, para montar o principal sem consultar o banco
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
 
-    @Value("${jwt.expiration:3600000}") // 1 hora em milissegundos (reduzido de 24h para 1h)
-    private long expiration;
+    private final long expiration;
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final Cache<String, TokenClaims> verifiedClaims;
+
+    @Autowired
+    public JwtUtil(MeterRegistry meterRegistry,
+                   @Value("${jwt.secret:supersecretkey123456789012345678901234}") String secret,
+                   @Value("${jwt.expiration:3600000}") long expiration, // 1 hora em milissegundos (reduzido de 24h para 1h)
+                   @Value("${jwt.claims-cache.maximum-size:10000}") long claimsCacheSize) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        if (claimsCacheSize > 0) {
+            this.verifiedClaims = Caffeine.newBuilder()
+                    .maximumSize(claimsCacheSize)
+                    .expireAfter(new UntilTokenExpires())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, verifiedClaims, "jwt-claims");
+        } else {
+            this.verifiedClaims = null;
+        }
+    }
 
     // Gerar token para o usuário
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof AuthenticatedUser authenticatedUser) {
+            claims.put(USER_ID_CLAIM, authenticatedUser.getId());
+        }
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
         return createToken(claims, userDetails.getUsername());
     }
 
@@ -37,52 +86,94 @@ public class JwtUtil {
 
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    // Claims de um token válido; lança JwtException se a assinatura não confere ou o token expirou
+    public TokenClaims getVerifiedClaims(String token) {
+        if (verifiedClaims == null) {
+            return parseClaims(token);
+        }
+        String key = tokenHash(token);
+        TokenClaims claims = verifiedClaims.getIfPresent(key);
+        if (claims == null) {
+            // Tokens inválidos lançam aqui e nunca entram no cache
+            claims = parseClaims(token);
+            verifiedClaims.put(key, claims);
+        }
+        return claims;
+    }
+
+    // Validar token já verificado contra o usuário carregado
+    public boolean validateToken(TokenClaims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.subject()) && !isTokenExpired(claims);
+    }
+
     // Validar token
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(getVerifiedClaims(token), userDetails);
     }
 
     // Extrair username (email) do token
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return extractClaim(token, TokenClaims::subject);
     }
 
     // Extrair data de expiração do token
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public Instant extractExpiration(String token) {
+        return extractClaim(token, TokenClaims::expiresAt);
     }
 
     // Extrair claim específica do token
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public <T> T extractClaim(String token, Function<TokenClaims, T> claimsResolver) {
+        return claimsResolver.apply(getVerifiedClaims(token));
     }
 
-    // Extrair todas as claims do token
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // Verifica assinatura e expiração com o parser pré-montado (imutável e thread-safe)
+    private TokenClaims parseClaims(String token) {
+        return TokenClaims.from(parser.parseClaimsJws(token).getBody());
     }
 
     // Verificar se o token está expirado
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private boolean isTokenExpired(TokenClaims claims) {
+        Instant expiresAt = claims.expiresAt();
+        return expiresAt != null && expiresAt.isBefore(Instant.now());
     }
 
-    // Obter chave de assinatura
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String tokenHash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // Cada entrada vive até o "exp" do próprio token; sem "exp", até a validade padrão
+    private class UntilTokenExpires implements Expiry<String, TokenClaims> {
+
+        @Override
+        public long expireAfterCreate(String key, TokenClaims claims, long currentTime) {
+            Instant expiresAt = claims.expiresAt();
+            long remainingMillis = expiresAt != null
+                    ? expiresAt.toEpochMilli() - System.currentTimeMillis()
+                    : expiration;
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenClaims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package com.vitoroliveira.paymentapi.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+// Claims de um token já verificado, imutáveis: a mesma instância sai do cache do JwtUtil para
+// requisições concorrentes. userId e roles são null em tokens emitidos antes dessas claims
+public record TokenClaims(String subject, String id, Long userId, List<String> roles, Instant expiresAt) {
+
+    public TokenClaims {
+        roles = roles != null ? List.copyOf(roles) : null;
+    }
+
+    static TokenClaims from(Claims claims) {
+        Number userId = claims.get(JwtUtil.USER_ID_CLAIM, Number.class);
+        List<?> roles = claims.get(JwtUtil.ROLES_CLAIM, List.class);
+        Date expiration = claims.getExpiration();
+        return new TokenClaims(
+                claims.getSubject(),
+                claims.getId(),
+                userId != null ? userId.longValue() : null,
+                roles != null ? roles.stream().map(Object::toString).toList() : null,
+                expiration != null ? expiration.toInstant() : null);
+    }
+}
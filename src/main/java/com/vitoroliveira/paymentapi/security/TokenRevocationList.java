@@ -0,0 +1,143 @@
+package com.vitoroliveira.paymentapi.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Conjunto em memória dos jti revogados, em filtros de Bloom separados por janela de expiração.
+//
+// O token entra na janela do seu "exp" (exp / windowSeconds) e a consulta olha só essa janela:
+// O(k) leituras de bits, sem alocação e sem lock. As janelas formam um anel com folga em relação
+// à validade máxima do token; quando uma posição do anel é reaproveitada, todos os tokens da janela
+// antiga já expiraram, então as revogações envelhecem sozinhas e a memória é fixa.
+//
+// Um filtro de Bloom não tem falso negativo: "não contém" é definitivo. "Pode conter" precisa ser
+// confirmado por quem usa a lista (na tabela revoked_tokens). O dimensionamento é feito para
+// expectedRevocations distribuídas ao longo da validade do token; janelas mais cheias do que isso
+// só aumentam a taxa de falsos positivos, nunca deixam passar um token revogado.
+public class TokenRevocationList {
+
+    private final long windowSeconds;
+    private final Window[] windows;
+    private final int hashFunctions;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public TokenRevocationList(long windowSeconds, long maxTokenLifetimeSeconds,
+                               long expectedRevocations, double falsePositiveRate) {
+        if (windowSeconds <= 0 || maxTokenLifetimeSeconds <= 0 || expectedRevocations <= 0
+                || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Parâmetros inválidos para a lista de revogação");
+        }
+        this.windowSeconds = windowSeconds;
+        // Janelas com tokens ainda válidos, mais a janela corrente e uma de folga
+        long liveWindows = (maxTokenLifetimeSeconds + windowSeconds - 1) / windowSeconds;
+        int windowCount = Math.toIntExact(liveWindows + 2);
+
+        long perWindow = Math.max(1, (expectedRevocations + liveWindows - 1) / liveWindows);
+        long bits = (long) Math.ceil(-perWindow * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = Math.toIntExact(Math.max(1, (bits + 63) / 64));
+        this.hashFunctions = Math.max(1, (int) Math.round((double) words * 64 / perWindow * Math.log(2)));
+
+        this.windows = new Window[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            windows[i] = new Window(words);
+        }
+    }
+
+    // Registra o jti de um token que expira em expiresAtEpochSecond
+    public void add(String jti, long expiresAtEpochSecond, long nowEpochSecond) {
+        if (expiresAtEpochSecond <= nowEpochSecond) {
+            return;
+        }
+        long windowId = expiresAtEpochSecond / windowSeconds;
+        Window window = windows[(int) Math.floorMod(windowId, (long) windows.length)];
+        writeLock.lock();
+        try {
+            if (window.id != windowId) {
+                if (window.id > windowId) {
+                    // A posição já está com uma janela mais nova: este token já expirou
+                    return;
+                }
+                window.clear();
+                window.id = windowId;
+            }
+            long h1 = hash(jti, 0x9E3779B97F4A7C15L);
+            long h2 = hash(jti, 0xC2B2AE3D27D4EB4FL) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                window.set(h1 + i * h2);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // false: o token certamente não foi revogado. true: pode ter sido, confirmar na fonte persistente
+    public boolean mightContain(String jti, long expiresAtEpochSecond) {
+        long windowId = expiresAtEpochSecond / windowSeconds;
+        Window window = windows[(int) Math.floorMod(windowId, (long) windows.length)];
+        if (window.id != windowId) {
+            return false;
+        }
+        long h1 = hash(jti, 0x9E3779B97F4A7C15L);
+        long h2 = hash(jti, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            if (!window.get(h1 + i * h2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Memória ocupada pelos bits de todas as janelas
+    public long sizeInBytes() {
+        return (long) windows.length * windows[0].bits.length() * Long.BYTES;
+    }
+
+    // Hash de 64 bits direto sobre os chars, sem converter a String em bytes
+    private static long hash(String value, long seed) {
+        long h = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        // Finalizador do MurmurHash3 para espalhar os bits
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Window {
+
+        private final AtomicLongArray bits;
+        private volatile long id = Long.MIN_VALUE;
+
+        private Window(int words) {
+            this.bits = new AtomicLongArray(words);
+        }
+
+        private boolean get(long hash) {
+            long bit = Math.floorMod(hash, (long) bits.length() * 64);
+            return (bits.get((int) (bit >>> 6)) & (1L << bit)) != 0;
+        }
+
+        private void set(long hash) {
+            long bit = Math.floorMod(hash, (long) bits.length() * 64);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    return;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+
+        private void clear() {
+            for (int i = 0; i < bits.length(); i++) {
+                bits.set(i, 0);
+            }
+        }
+    }
+}
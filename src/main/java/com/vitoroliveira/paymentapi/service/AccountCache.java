@@ -0,0 +1,106 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vitoroliveira.paymentapi.dto.AccountDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// Cache de leitura das contas (AccountDTO com o saldo total), indexado pelo número da conta.
+// Caffeine com tamanho máximo (W-TinyLFU); estatísticas publicadas no Actuator como cache.* {cache=accounts}.
+//
+// Consistência: toda transação que altera saldo chama invalidateOnCommit dentro da própria
+// transação. Enquanto ela não termina, leituras dessas contas vão direto ao banco e não populam
+// o cache; depois do commit (ou rollback) a entrada é removida. Um carregamento que começou
+// antes da invalidação é descartado pela geração do stripe, então o cache nunca guarda um saldo
+// anterior a uma transferência confirmada.
+@Component
+public class AccountCache {
+    
+    private static final int STRIPES = 4096;
+    
+    private final Cache<String, AccountDTO> cache;
+    
+    // Por stripe: quantidade de transações em andamento que alteram contas do stripe
+    // e contador de invalidações já concluídas
+    private final AtomicIntegerArray pendingWrites = new AtomicIntegerArray(STRIPES);
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    
+    @Autowired
+    public AccountCache(MeterRegistry meterRegistry,
+                        @Value("${payment.account-cache.maximum-size:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "accounts");
+    }
+    
+    public AccountDTO get(String accountNumber, Supplier<AccountDTO> loader) {
+        int stripe = stripe(accountNumber);
+        if (pendingWrites.get(stripe) > 0) {
+            return loader.get();
+        }
+        AccountDTO cached = cache.getIfPresent(accountNumber);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long generation = generations.get(stripe);
+        AccountDTO loaded = loader.get();
+        // compute é atômico com o invalidate da mesma chave
+        cache.asMap().compute(accountNumber, (key, current) ->
+                pendingWrites.get(stripe) == 0 && generations.get(stripe) == generation ? loaded : current);
+        return loaded;
+    }
+    
+    // Registra as contas alteradas pela transação atual; sem transação ativa invalida na hora
+    public void invalidateOnCommit(Collection<String> accountNumbers) {
+        Set<String> changed = new LinkedHashSet<>(accountNumbers);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changed.forEach(this::invalidate);
+            return;
+        }
+        
+        changed.forEach(accountNumber -> pendingWrites.incrementAndGet(stripe(accountNumber)));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (String accountNumber : changed) {
+                    invalidate(accountNumber);
+                    pendingWrites.decrementAndGet(stripe(accountNumber));
+                }
+            }
+        });
+    }
+    
+    // Descarta todas as entradas (contas alteradas fora dos serviços, por exemplo em manutenção)
+    public void invalidateAll() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+        cache.invalidateAll();
+    }
+    
+    private void invalidate(String accountNumber) {
+        generations.incrementAndGet(stripe(accountNumber));
+        cache.invalidate(accountNumber);
+    }
+    
+    private static int stripe(String accountNumber) {
+        int hash = accountNumber.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,87 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.exception.ConcurrencyConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Tabela de locks "listrada" (striped) indexada pelo número da conta.
+// Transferências concorrentes sobre as mesmas contas aguardam aqui, em memória,
+// em vez de se acumularem nos locks de linha do banco segurando conexões do pool.
+// Os locks são adquiridos em ordem crescente de índice para evitar deadlock.
+@Component
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+
+    public AccountLockManager(@Value("${payment.transfer.lock-stripes:1024}") int stripeCount,
+                              @Value("${payment.transfer.lock-timeout-ms:5000}") long timeoutMs) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("payment.transfer.lock-stripes deve ser positivo");
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMs = timeoutMs;
+    }
+
+    // Executa a ação segurando os locks de todas as contas informadas
+    public <T> T withLocks(Collection<String> accountNumbers, Supplier<T> action) {
+        int[] indexes = stripeIndexes(accountNumbers);
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                if (!tryLock(stripes[index])) {
+                    throw new ConcurrencyConflictException(
+                            "Conta ocupada por outra operação. Tente novamente em instantes.");
+                }
+                acquired++;
+            }
+            return action.get();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    int stripeIndex(String accountNumber) {
+        int h = accountNumber.hashCode();
+        // Espalha os bits para evitar concentração quando os números são sequenciais
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return Math.floorMod(h, stripes.length);
+    }
+
+    // Índices distintos e ordenados: define a ordem global de aquisição
+    private int[] stripeIndexes(Collection<String> accountNumbers) {
+        int[] indexes = accountNumbers.stream()
+                .mapToInt(this::stripeIndex)
+                .toArray();
+        Arrays.sort(indexes);
+        int distinct = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        return Arrays.copyOf(indexes, distinct);
+    }
+
+    private boolean tryLock(ReentrantLock lock) {
+        try {
+            return lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyConflictException("Operação interrompida aguardando o lock da conta", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.model.AccountNumbers;
+import com.vitoroliveira.paymentapi.repository.IdBlockAllocator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Números de conta sem colisão e sem consulta por conta criada.
+// Cada número vem de um contador em id_generators (segmento account_numbers), reservado em blocos
+// pelo IdBlockAllocator como os ids das entidades, então duas criações nunca recebem o mesmo valor,
+// nem em instâncias diferentes. O contador passa por uma permutação de Feistel com chave sobre os
+// 9 * 10^8 corpos possíveis: a saída continua única, mas números consecutivos não ficam em sequência.
+//
+// A chave não pode mudar depois que números foram emitidos: com outra permutação, valores futuros
+// do contador poderiam cair em números já usados.
+@Service
+public class AccountNumberGenerator {
+    
+    static final String SEGMENT = "account_numbers";
+    
+    // 30000 * 30000 = 9 * 10^8: as duas metades cobrem exatamente os corpos possíveis,
+    // então a rede é uma bijeção na faixa sem precisar de cycle-walking
+    private static final long HALF = 30_000L;
+    private static final int ROUNDS = 6;
+    
+    private final IdBlockAllocator idBlockAllocator;
+    private final long[] roundKeys = new long[ROUNDS];
+    
+    @Autowired
+    public AccountNumberGenerator(IdBlockAllocator idBlockAllocator,
+                                  @Value("${payment.account-number.key:6364136223846793005}") long key) {
+        this.idBlockAllocator = idBlockAllocator;
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(state);
+        }
+    }
+    
+    public String next() {
+        // O contador começa em 1
+        long sequence = idBlockAllocator.next(SEGMENT) - 1;
+        if (sequence >= AccountNumbers.BODY_COUNT) {
+            throw new IllegalStateException("Não há mais números de conta disponíveis");
+        }
+        return AccountNumbers.format(AccountNumbers.FIRST_BODY + permute(sequence));
+    }
+    
+    // Feistel balanceada em base HALF: (L, R) -> (R, (L + F(R)) mod HALF)
+    long permute(long value) {
+        long left = value / HALF;
+        long right = value % HALF;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = (left + Math.floorMod(mix(right ^ roundKeys[i]), HALF)) % HALF;
+            left = right;
+            right = next;
+        }
+        return left * HALF + right;
+    }
+    
+    // Finalizador do SplitMix64
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,9 +2,13 @@ package com.vitoroliveira.paymentapi.service;
 
 import com.vitoroliveira.paymentapi.dto.AccountDTO;
 import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.Transaction;
 import com.vitoroliveira.paymentapi.model.User;
 import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
 import com.vitoroliveira.paymentapi.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -12,19 +16,32 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
 
 @Service
 public class AccountService {
     
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
+    private final ShardedBalanceService shardedBalanceService;
+    private final AccountCache accountCache;
+    private final TransactionRepository transactionRepository;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final Timer lookupTimer;
     
     @Autowired
-    public AccountService(AccountRepository accountRepository, UserRepository userRepository) {
+    public AccountService(AccountRepository accountRepository, UserRepository userRepository,
+                          ShardedBalanceService shardedBalanceService, AccountCache accountCache,
+                          TransactionRepository transactionRepository, AccountNumberGenerator accountNumberGenerator,
+                          MeterRegistry meterRegistry) {
         this.accountRepository = accountRepository;
         this.userRepository = userRepository;
+        this.shardedBalanceService = shardedBalanceService;
+        this.accountCache = accountCache;
+        this.transactionRepository = transactionRepository;
+        this.accountNumberGenerator = accountNumberGenerator;
+        this.lookupTimer = Timer.builder("payment.account.lookup")
+                .description("Duração da consulta de conta por número, com ou sem acerto no cache")
+                .register(meterRegistry);
     }
     
     @Transactional
@@ -33,8 +50,8 @@ public class AccountService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("Usuário não encontrado com ID: " + userId));
         
-        // Gerar número de conta único
-        String accountNumber = generateUniqueAccountNumber();
+        // Número de conta único reservado em memória, sem consulta ao banco por tentativa
+        String accountNumber = accountNumberGenerator.next();
         
         // Criar nova conta
         Account account = new Account();
@@ -49,25 +66,35 @@ public class AccountService {
         return AccountDTO.fromEntity(savedAccount);
     }
     
+    @Transactional(readOnly = true)
     public List<AccountDTO> getUserAccounts(Long userId) {
-        // Buscar o usuário
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Usuário não encontrado com ID: " + userId));
+        // Verificar se o usuário existe
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("Usuário não encontrado com ID: " + userId);
+        }
         
-        // Buscar as contas do usuário
-        List<Account> accounts = accountRepository.findByUser(user);
+        // Buscar as contas do usuário já como DTOs; buckets das particionadas em uma consulta a mais
+        List<AccountDTO> accounts = accountRepository.findDtosByUserId(userId);
+        shardedBalanceService.addShardBalances(accounts);
         
-        // Converter para DTOs
-        return accounts.stream()
-                .map(AccountDTO::fromEntity)
-                .collect(Collectors.toList());
+        return accounts;
     }
     
+    // Fica no primário de propósito: com réplica, um carregamento logo depois da invalidação
+    // poderia ler o saldo anterior à transferência e guardá-lo no cache
     public AccountDTO getAccountByNumber(String accountNumber) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada com número: " + accountNumber));
-        
-        return AccountDTO.fromEntity(account);
+        Timer.Sample sample = Timer.start();
+        try {
+            return accountCache.get(accountNumber, () -> {
+                AccountDTO account = accountRepository.findDtoByAccountNumber(accountNumber)
+                        .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada com número: " + accountNumber));
+                
+                shardedBalanceService.addShardBalances(List.of(account));
+                return account;
+            });
+        } finally {
+            sample.stop(lookupTimer);
+        }
     }
     
     @Transactional
@@ -76,24 +103,48 @@ public class AccountService {
             throw new IllegalArgumentException("O saldo não pode ser negativo");
         }
         
-        Account account = accountRepository.findByAccountNumber(accountNumber)
+        Account account = accountRepository.findByAccountNumberForUpdate(accountNumber)
                 .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada com número: " + accountNumber));
         
-        account.setBalance(newBalance);
+        // A diferença fica registrada como depósito ou saque, para que extratos e snapshots
+        // reconstruam o saldo só a partir das transações
+        recordAdjustment(account, newBalance.subtract(shardedBalanceService.totalBalance(account)));
+        
+        // Em contas particionadas o novo saldo substitui também o conteúdo dos buckets
+        shardedBalanceService.overwriteBalance(account, newBalance);
+        accountCache.invalidateOnCommit(List.of(accountNumber));
         Account updatedAccount = accountRepository.save(account);
         
         return AccountDTO.fromEntity(updatedAccount);
     }
     
-    // Método auxiliar para gerar número de conta único
-    private String generateUniqueAccountNumber() {
-        Random random = new Random();
-        String accountNumber;
-        do {
-            // Gerar número de 10 dígitos
-            accountNumber = String.format("%010d", random.nextInt(1000000000));
-        } while (accountRepository.existsByAccountNumber(accountNumber));
+    @Transactional
+    public AccountDTO configureBalanceShards(String accountNumber, int balanceShards) {
+        Account account = accountRepository.findByAccountNumberForUpdate(accountNumber)
+                .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada com número: " + accountNumber));
+        
+        shardedBalanceService.reconfigure(account, balanceShards);
+        accountCache.invalidateOnCommit(List.of(accountNumber));
+        Account updatedAccount = accountRepository.save(account);
         
-        return accountNumber;
+        return toDTO(updatedAccount);
+    }
+    
+    private void recordAdjustment(Account account, BigDecimal difference) {
+        if (difference.signum() == 0) {
+            return;
+        }
+        Transaction adjustment = new Transaction();
+        adjustment.setSourceAccount(account);
+        adjustment.setTargetAccount(account);
+        adjustment.setAmount(difference.abs());
+        adjustment.setType(difference.signum() > 0 ? Transaction.TransactionType.DEPOSIT : Transaction.TransactionType.WITHDRAWAL);
+        adjustment.setDescription("Ajuste de saldo");
+        adjustment.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transactionRepository.save(adjustment);
+    }
+    
+    private AccountDTO toDTO(Account account) {
+        return AccountDTO.fromEntity(account, shardedBalanceService.totalBalance(account));
     }
 }
\ No newline at end of file
@@ -0,0 +1,355 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.dto.TransferStatusDTO;
+import com.vitoroliveira.paymentapi.exception.ConcurrencyConflictException;
+import com.vitoroliveira.paymentapi.exception.TransferQueueFullException;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.Transaction;
+import com.vitoroliveira.paymentapi.repository.AccountKey;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.PendingTransfer;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Transferências assíncronas: a requisição apenas grava a transação como PENDING e a coloca
+// na fila; workers liquidam as pendentes em micro-lotes e gravam COMPLETED ou FAILED.
+//
+// Cada worker tem sua própria fila e recebe sempre as transferências da mesma conta de origem,
+// o que mantém a ordem de chegada dos débitos de uma conta. A capacidade total é limitada:
+// com a fila cheia a requisição é recusada (429) antes de gravar qualquer coisa.
+// Pendentes que ficaram na fila em um desligamento são recarregadas do banco na subida.
+//
+// Falhas transitórias (timeout de lock, conflito de concorrência, conexão perdida) não encerram
+// a transferência: ela volta para a fila depois de uma espera exponencial e só é marcada FAILED
+// quando esgota max-attempts liquidações.
+@Service
+public class AsyncTransferService implements DisposableBean {
+    
+    private static final Logger log = LoggerFactory.getLogger(AsyncTransferService.class);
+    
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final BatchTransferService batchTransferService;
+    private final AccountCache accountCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferMetrics transferMetrics;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long retryMaxBackoffMs;
+    private final Counter retryCounter;
+    
+    private final List<BlockingQueue<PendingTransfer>> queues = new ArrayList<>();
+    private final SimpleAsyncTaskExecutor workerExecutor;
+    private final ScheduledExecutorService retryScheduler;
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean running = true;
+    
+    @Autowired
+    public AsyncTransferService(AccountRepository accountRepository,
+                                TransactionRepository transactionRepository,
+                                BatchTransferService batchTransferService,
+                                AccountCache accountCache,
+                                TransactionTemplate transactionTemplate,
+                                TransferMetrics transferMetrics,
+                                MeterRegistry meterRegistry,
+                                Environment environment,
+                                @Value("${payment.transfer.async.workers:4}") int workerCount,
+                                @Value("${payment.transfer.async.queue-capacity:10000}") int queueCapacity,
+                                @Value("${payment.transfer.async.batch-size:100}") int batchSize,
+                                @Value("${payment.transfer.async.max-attempts:5}") int maxAttempts,
+                                @Value("${payment.transfer.async.retry-backoff-ms:100}") long retryBackoffMs,
+                                @Value("${payment.transfer.async.retry-max-backoff-ms:5000}") long retryMaxBackoffMs) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.batchTransferService = batchTransferService;
+        this.accountCache = accountCache;
+        this.transactionTemplate = transactionTemplate;
+        this.transferMetrics = transferMetrics;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.retryMaxBackoffMs = retryMaxBackoffMs;
+        Gauge.builder("payment.transfer.async.queued", queued, AtomicInteger::get)
+                .description("Transferências assíncronas aguardando liquidação")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("payment.transfer.async.retries")
+                .description("Liquidações assíncronas repetidas após falha transitória")
+                .register(meterRegistry);
+        
+        // Com spring.threads.virtual.enabled (Java 21) os workers também rodam em threads virtuais
+        this.workerExecutor = new SimpleAsyncTaskExecutor("transfer-settlement-");
+        this.workerExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        this.workerExecutor.setDaemon(true);
+        this.workerExecutor.setTaskTerminationTimeout(TimeUnit.SECONDS.toMillis(10));
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<PendingTransfer> queue = new LinkedBlockingQueue<>();
+            queues.add(queue);
+            workerExecutor.execute(() -> drain(queue));
+        }
+        CustomizableThreadFactory retryThreads = new CustomizableThreadFactory("transfer-retry-");
+        retryThreads.setDaemon(true);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(retryThreads);
+    }
+    
+    // Grava a transferência como PENDING e a enfileira; a liquidação acontece depois
+    public TransactionDTO submitTransfer(TransferDTO transferDTO) {
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            throw new TransferQueueFullException("Fila de transferências cheia. Tente novamente em instantes.");
+        }
+        try {
+            TransactionDTO pending = transactionTemplate.execute(status -> persistPending(transferDTO));
+            enqueue(new PendingTransfer(pending.getId(), transferDTO.getSourceAccountNumber(),
+                    transferDTO.getTargetAccountNumber(), transferDTO.getAmount()));
+            return pending;
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+    
+    public TransferStatusDTO getTransferStatus(Long id) {
+        return transactionRepository.findById(id)
+                .map(TransferStatusDTO::fromEntity)
+                .orElseThrow(() -> new EntityNotFoundException("Transação não encontrada com ID: " + id));
+    }
+    
+    // Pendentes de uma execução anterior voltam para a fila, mesmo que passem da capacidade
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingTransfers() {
+        List<PendingTransfer> pending = transactionRepository.findTransfersByStatus(Transaction.TransactionStatus.PENDING);
+        for (PendingTransfer transfer : pending) {
+            queued.incrementAndGet();
+            enqueue(transfer);
+        }
+        if (!pending.isEmpty()) {
+            log.info("{} transferências pendentes recolocadas na fila", pending.size());
+        }
+    }
+    
+    private TransactionDTO persistPending(TransferDTO transferDTO) {
+        Map<String, AccountKey> keys = accountRepository
+                .findKeysByAccountNumberIn(List.of(transferDTO.getSourceAccountNumber(), transferDTO.getTargetAccountNumber()))
+                .stream()
+                .collect(Collectors.toMap(AccountKey::accountNumber, Function.identity()));
+        AccountKey source = keys.get(transferDTO.getSourceAccountNumber());
+        if (source == null) {
+            throw new EntityNotFoundException("Conta de origem não encontrada");
+        }
+        AccountKey target = keys.get(transferDTO.getTargetAccountNumber());
+        if (target == null) {
+            throw new EntityNotFoundException("Conta de destino não encontrada");
+        }
+        
+        Transaction transaction = new Transaction();
+        transaction.setSourceAccount(accountRepository.getReferenceById(source.id()));
+        transaction.setTargetAccount(accountRepository.getReferenceById(target.id()));
+        transaction.setAmount(transferDTO.getAmount());
+        transaction.setDescription(transferDTO.getDescription());
+        transaction.setType(Transaction.TransactionType.TRANSFER);
+        transaction.setStatus(Transaction.TransactionStatus.PENDING);
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        
+        return TransactionDTO.fromEntity(savedTransaction, source.accountNumber(), target.accountNumber());
+    }
+    
+    private void enqueue(PendingTransfer transfer) {
+        int worker = Math.floorMod(transfer.sourceAccountNumber().hashCode(), queues.size());
+        queues.get(worker).add(transfer);
+    }
+    
+    private void drain(BlockingQueue<PendingTransfer> queue) {
+        while (running) {
+            List<PendingTransfer> batch = new ArrayList<>(batchSize);
+            try {
+                // Espera limitada para perceber o desligamento sem interromper uma liquidação em curso
+                PendingTransfer first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                settle(batch);
+            } finally {
+                queued.addAndGet(-batch.size());
+            }
+        }
+    }
+    
+    private void settle(List<PendingTransfer> batch) {
+        try {
+            settleBatch(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                retryOrFail(batch.get(0), e);
+                return;
+            }
+            // Isola o item problemático liquidando o lote um a um
+            log.warn("Falha ao liquidar lote de {} transferências; liquidando individualmente", batch.size(), e);
+            for (PendingTransfer transfer : batch) {
+                try {
+                    settleBatch(List.of(transfer));
+                } catch (RuntimeException itemFailure) {
+                    retryOrFail(transfer, itemFailure);
+                }
+            }
+        }
+    }
+    
+    // Falha transitória volta para a fila após a espera; as demais, ou a última tentativa, viram FAILED
+    private void retryOrFail(PendingTransfer transfer, RuntimeException cause) {
+        PendingTransfer retry = transfer.nextAttempt();
+        if (!isTransient(cause) || retry.attempts() >= maxAttempts || !running) {
+            markFailed(transfer, cause);
+            return;
+        }
+        long delay = backoff(retry.attempts());
+        log.warn("Falha transitória ao liquidar a transferência {} (tentativa {} de {}); nova tentativa em {} ms",
+                transfer.transactionId(), retry.attempts(), maxAttempts, delay, cause);
+        retryCounter.increment();
+        queued.incrementAndGet();
+        try {
+            retryScheduler.schedule(() -> enqueue(retry), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Desligando: continua PENDING e será recarregada na próxima subida
+            queued.decrementAndGet();
+        }
+    }
+    
+    // Espera exponencial com jitter completo, limitada a retryMaxBackoffMs
+    private long backoff(int attempt) {
+        long ceiling = Math.min(retryMaxBackoffMs, retryBackoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+    
+    // Lock em memória esgotado, conflito/deadlock/timeout de lock no banco ou conexão indisponível
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyConflictException
+                    || cause instanceof ConcurrencyFailureException
+                    || cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Uma transação por lote: contas bloqueadas uma vez no banco, em ordem de ID, saldos calculados
+    // em memória e status gravados no flush do commit. Como nos lotes síncronos, sem os locks em
+    // memória (ver BatchTransferService). Os resultados só são contados depois do commit; uma
+    // falha aqui vai para retryOrFail, que conta a última
+    private void settleBatch(List<PendingTransfer> batch) {
+        Map<Long, PendingTransfer> transfers = new LinkedHashMap<>();
+        Set<String> accountNumbers = new LinkedHashSet<>();
+        for (PendingTransfer transfer : batch) {
+            transfers.putIfAbsent(transfer.transactionId(), transfer);
+            accountNumbers.add(transfer.sourceAccountNumber());
+            accountNumbers.add(transfer.targetAccountNumber());
+        }
+        
+        List<String> outcomes = transactionTemplate.execute(status -> {
+            accountCache.invalidateOnCommit(accountNumbers);
+            Map<String, Account> accounts = batchTransferService.lockAccounts(accountNumbers);
+            // Depois das contas, as próprias transações: outra instância pode ter liquidado alguma
+            Map<Long, Transaction> pending = transactionRepository.findAllByIdForUpdate(transfers.keySet()).stream()
+                    .filter(transaction -> transaction.getStatus() == Transaction.TransactionStatus.PENDING)
+                    .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+            
+            List<String> errors = new ArrayList<>(pending.size());
+            for (PendingTransfer transfer : transfers.values()) {
+                Transaction transaction = pending.get(transfer.transactionId());
+                if (transaction == null) {
+                    continue;
+                }
+                String error = batchTransferService.applyInMemory(transfer.sourceAccountNumber(),
+                        transfer.targetAccountNumber(), transfer.amount(), accounts);
+                if (error == null) {
+                    transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+                } else {
+                    transaction.setStatus(Transaction.TransactionStatus.FAILED);
+                    transaction.setFailureReason(error);
+                }
+                errors.add(error);
+            }
+            return errors;
+        });
+        outcomes.forEach(transferMetrics::settled);
+    }
+    
+    private void markFailed(PendingTransfer transfer, RuntimeException cause) {
+        log.error("Falha ao liquidar a transferência {}", transfer.transactionId(), cause);
+        try {
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.findById(transfer.transactionId())
+                    .filter(transaction -> transaction.getStatus() == Transaction.TransactionStatus.PENDING)
+                    .ifPresent(transaction -> {
+                        transaction.setStatus(Transaction.TransactionStatus.FAILED);
+                        transaction.setFailureReason("Erro ao processar a transferência");
+                    }));
+            transferMetrics.failed(cause, 1);
+        } catch (RuntimeException e) {
+            // Continua PENDING e será recarregada na próxima subida
+            log.error("Não foi possível marcar a transferência {} como FAILED", transfer.transactionId(), e);
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        // O que ainda estiver na fila continua PENDING no banco e é recarregado na próxima subida
+        running = false;
+        retryScheduler.shutdownNow();
+        workerExecutor.close();
+    }
+}
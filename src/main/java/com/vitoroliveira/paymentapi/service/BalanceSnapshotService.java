@@ -0,0 +1,373 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.dto.AccountStatementDTO;
+import com.vitoroliveira.paymentapi.dto.StatementLineDTO;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.BalanceSnapshot;
+import com.vitoroliveira.paymentapi.model.BalanceSnapshotCheckpoint;
+import com.vitoroliveira.paymentapi.model.Transaction;
+import com.vitoroliveira.paymentapi.repository.AccountBalance;
+import com.vitoroliveira.paymentapi.repository.AccountBalanceShardRepository;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.BalanceSnapshotCheckpointRepository;
+import com.vitoroliveira.paymentapi.repository.BalanceSnapshotRepository;
+import com.vitoroliveira.paymentapi.repository.LedgerEntry;
+import com.vitoroliveira.paymentapi.repository.ShardBalanceTotal;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Snapshots de saldo por conta e extratos.
+//
+// A construção é incremental: o checkpoint guarda a posição (data, id) da última transação já
+// contada e cada execução lê só as transações posteriores, em lotes de payment.snapshot.chunk-size
+// pelo índice (data, id), cada lote na sua própria transação. O saldo de cada conta movimentada
+// no lote é o do seu snapshot anterior somado ao delta do lote; numa mesma execução o snapshot
+// criado é atualizado no lugar, então fica no máximo um snapshot novo por conta e execução.
+//
+// A construção nunca passa de agora - settle-lag nem da transferência pendente mais antiga, para
+// que transações ainda sem commit ou sem liquidação não fiquem para trás do checkpoint.
+//
+// O extrato parte do snapshot mais próximo antes do início do período e reaplica só o delta até
+// ele, pelos índices (conta, data, id). O saldo considerado é o do histórico de transações
+// concluídas: ajustes de saldo entram nele como DEPOSIT/WITHDRAWAL.
+//
+// Contas anteriores a esse histórico completo têm saldo que as transações não explicam. Antes da
+// primeira construção, cada uma recebe um snapshot de abertura em (LEDGER_START, 0) com a diferença
+// entre o saldo atual e o histórico reaplicado. O preenchimento roda no job agendado, não na subida,
+// em lotes de chunk-size contas por ordem de id, cada lote numa transação curta que avança o ponto de
+// retomada gravado no checkpoint; outra instância ou um reinício continuam de onde ele parou. Até
+// terminar, nenhum snapshot é construído, e extratos dessas contas ainda partem de zero.
+//
+// Retenção: snapshots criados há mais de payment.snapshot.retention-days são apagados quando a conta
+// já tem um mais recente. Extratos desses períodos partem de um snapshot mais antigo (no limite, o
+// de abertura) e somam mais lançamentos pelo índice, com o mesmo resultado.
+@Service
+public class BalanceSnapshotService {
+    
+    private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotService.class);
+    
+    // Posição anterior a qualquer transação: contas sem snapshot partem de saldo zero
+    static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final AccountBalanceShardRepository shardRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final BalanceSnapshotCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate consistentReadTemplate;
+    private final int chunkSize;
+    private final Duration settleLag;
+    private final Duration retention;
+    private final int maxStatementLines;
+    private final Counter transactionsCounter;
+    private final Timer buildTimer;
+    
+    @Autowired
+    public BalanceSnapshotService(TransactionRepository transactionRepository,
+                                  AccountRepository accountRepository,
+                                  AccountBalanceShardRepository shardRepository,
+                                  BalanceSnapshotRepository snapshotRepository,
+                                  BalanceSnapshotCheckpointRepository checkpointRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${payment.snapshot.chunk-size:5000}") int chunkSize,
+                                  @Value("${payment.snapshot.settle-lag-seconds:60}") long settleLagSeconds,
+                                  @Value("${payment.snapshot.retention-days:30}") long retentionDays,
+                                  @Value("${payment.statement.max-lines:10000}") int maxStatementLines) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.shardRepository = shardRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        // Saldos e somas do histórico de cada lote lidos da mesma foto do banco, mesmo com transferências concorrentes
+        this.consistentReadTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.consistentReadTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.chunkSize = chunkSize;
+        this.settleLag = Duration.ofSeconds(settleLagSeconds);
+        this.retention = Duration.ofDays(retentionDays);
+        this.maxStatementLines = maxStatementLines;
+        this.transactionsCounter = Counter.builder("payment.balance-snapshots.transactions")
+                .description("Transações contadas pela construção dos snapshots de saldo")
+                .register(meterRegistry);
+        this.buildTimer = Timer.builder("payment.balance-snapshots.build")
+                .description("Duração de cada construção de snapshots de saldo")
+                .register(meterRegistry);
+    }
+    
+    // Avança os snapshots até o horizonte atual; retorna quantas transações foram contadas
+    @Scheduled(fixedDelayString = "${payment.snapshot.interval-ms:300000}",
+            initialDelayString = "${payment.snapshot.interval-ms:300000}")
+    public long buildSnapshots() {
+        seedOpeningBalances();
+        Timer.Sample sample = Timer.start();
+        long processed = 0;
+        try {
+            LocalDateTime horizon = horizon();
+            BalanceSnapshotCheckpoint runStart = checkpoint();
+            int counted;
+            do {
+                Integer chunk = transactionTemplate.execute(status -> buildChunk(runStart, horizon));
+                counted = chunk == null ? 0 : chunk;
+                transactionsCounter.increment(counted);
+                processed += counted;
+            } while (counted == chunkSize);
+        } finally {
+            sample.stop(buildTimer);
+        }
+        if (processed > 0) {
+            log.info("Snapshots de saldo avançados em {} transações", processed);
+        }
+        return processed;
+    }
+    
+    // Snapshots de abertura das contas cujo saldo não bate com o histórico, um lote de contas por
+    // transação. Retorna quantas contas receberam um nesta chamada
+    public int seedOpeningBalances() {
+        if (checkpoint().getOpeningBalancesSeededAt() != null) {
+            return 0;
+        }
+        int accounts = 0;
+        SeedChunk chunk;
+        do {
+            chunk = consistentReadTemplate.execute(status -> seedOpeningBalancesChunk());
+            accounts += chunk.seeded();
+        } while (!chunk.done());
+        if (accounts > 0) {
+            log.info("Snapshots de abertura criados para {} contas com saldo anterior ao histórico", accounts);
+        }
+        return accounts;
+    }
+    
+    private record SeedChunk(int seeded, boolean done) {
+    }
+    
+    private SeedChunk seedOpeningBalancesChunk() {
+        // O lock no checkpoint segura a construção dos snapshots e as outras instâncias durante o lote
+        BalanceSnapshotCheckpoint checkpoint = checkpointRepository.findByIdForUpdate(BalanceSnapshotCheckpoint.SINGLETON_ID)
+                .orElseThrow();
+        if (checkpoint.getOpeningBalancesSeededAt() != null) {
+            return new SeedChunk(0, true);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<AccountBalance> balances = accountRepository.findBalancesAfter(checkpoint.getOpeningBalancesAfterId(),
+                PageRequest.ofSize(chunkSize));
+        int seeded = 0;
+        if (!balances.isEmpty()) {
+            seeded = seedOpeningBalances(balances, now);
+            checkpoint.setOpeningBalancesAfterId(balances.get(balances.size() - 1).accountId());
+        }
+        boolean done = balances.size() < chunkSize;
+        if (done) {
+            checkpoint.setOpeningBalancesSeededAt(now);
+        }
+        return new SeedChunk(seeded, done);
+    }
+    
+    private int seedOpeningBalances(List<AccountBalance> balances, LocalDateTime now) {
+        List<Long> accountIds = balances.stream().map(AccountBalance::accountId).toList();
+        Map<Long, BigDecimal> shards = shardRepository.sumBalanceByAccountIdIn(accountIds).stream()
+                .collect(Collectors.toMap(ShardBalanceTotal::accountId, ShardBalanceTotal::balance));
+        Map<Long, BigDecimal> credits = byAccount(transactionRepository.sumCreditsByAccountIdIn(accountIds));
+        Map<Long, BigDecimal> debits = byAccount(transactionRepository.sumDebitsByAccountIdIn(accountIds));
+        
+        List<BalanceSnapshot> openings = new ArrayList<>();
+        for (AccountBalance balance : balances) {
+            Long accountId = balance.accountId();
+            BigDecimal opening = balance.amount()
+                    .add(shards.getOrDefault(accountId, BigDecimal.ZERO))
+                    .subtract(credits.getOrDefault(accountId, BigDecimal.ZERO))
+                    .add(debits.getOrDefault(accountId, BigDecimal.ZERO));
+            if (opening.signum() == 0) {
+                continue;
+            }
+            openings.add(new BalanceSnapshot(null, accountRepository.getReferenceById(accountId), opening,
+                    LEDGER_START, 0L, now));
+        }
+        snapshotRepository.saveAll(openings);
+        return openings.size();
+    }
+    
+    private static Map<Long, BigDecimal> byAccount(List<AccountBalance> sums) {
+        return sums.stream().collect(Collectors.toMap(AccountBalance::accountId, AccountBalance::amount));
+    }
+    
+    // Apaga, em lotes, os snapshots fora da retenção que já têm um mais recente; retorna quantos
+    @Scheduled(fixedDelayString = "${payment.snapshot.prune-interval-ms:3600000}",
+            initialDelayString = "${payment.snapshot.prune-interval-ms:3600000}")
+    public long pruneSnapshots() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long pruned = 0;
+        int deleted;
+        do {
+            Integer chunk = transactionTemplate.execute(status -> {
+                List<Long> ids = snapshotRepository.findSupersededIdsCreatedBefore(cutoff, PageRequest.ofSize(chunkSize));
+                snapshotRepository.deleteAllByIdInBatch(ids);
+                return ids.size();
+            });
+            deleted = chunk == null ? 0 : chunk;
+            pruned += deleted;
+        } while (deleted == chunkSize);
+        if (pruned > 0) {
+            log.info("{} snapshots de saldo fora da retenção apagados", pruned);
+        }
+        return pruned;
+    }
+    
+    private LocalDateTime horizon() {
+        LocalDateTime horizon = LocalDateTime.now().minus(settleLag);
+        LocalDateTime oldestPending = transactionRepository.findEarliestDateByStatus(Transaction.TransactionStatus.PENDING);
+        return oldestPending != null && oldestPending.isBefore(horizon) ? oldestPending : horizon;
+    }
+    
+    // Checkpoint atual, criado na primeira execução
+    private BalanceSnapshotCheckpoint checkpoint() {
+        return checkpointRepository.findById(BalanceSnapshotCheckpoint.SINGLETON_ID).orElseGet(() -> {
+            BalanceSnapshotCheckpoint checkpoint = new BalanceSnapshotCheckpoint(BalanceSnapshotCheckpoint.SINGLETON_ID,
+                    LEDGER_START, 0L, LocalDateTime.now(), 0L, null);
+            try {
+                return checkpointRepository.save(checkpoint);
+            } catch (DataIntegrityViolationException e) {
+                // Outra instância criou ao mesmo tempo
+                return checkpointRepository.findById(BalanceSnapshotCheckpoint.SINGLETON_ID).orElseThrow();
+            }
+        });
+    }
+    
+    private int buildChunk(BalanceSnapshotCheckpoint runStart, LocalDateTime horizon) {
+        BalanceSnapshotCheckpoint checkpoint = checkpointRepository.findByIdForUpdate(BalanceSnapshotCheckpoint.SINGLETON_ID)
+                .orElseThrow();
+        List<LedgerEntry> entries = transactionRepository.findLedgerEntriesAfter(checkpoint.getLastTransactionDate(),
+                checkpoint.getLastTransactionId(), horizon, PageRequest.ofSize(chunkSize));
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        
+        Map<Long, BigDecimal> deltas = new HashMap<>();
+        for (LedgerEntry entry : entries) {
+            if (entry.credits()) {
+                deltas.merge(entry.targetAccountId(), entry.amount(), BigDecimal::add);
+            }
+            if (entry.debits()) {
+                deltas.merge(entry.sourceAccountId(), entry.amount().negate(), BigDecimal::add);
+            }
+        }
+        LedgerEntry last = entries.get(entries.size() - 1);
+        LocalDateTime now = LocalDateTime.now();
+        
+        Map<Long, BalanceSnapshot> latest = snapshotRepository.findLatestByAccountIdIn(deltas.keySet()).stream()
+                .collect(Collectors.toMap(snapshot -> snapshot.getAccount().getId(), Function.identity()));
+        List<BalanceSnapshot> created = new ArrayList<>();
+        deltas.forEach((accountId, delta) -> {
+            BalanceSnapshot previous = latest.get(accountId);
+            if (previous != null && isAfter(previous, runStart)) {
+                // Criado por esta execução: só avança
+                previous.setBalance(previous.getBalance().add(delta));
+                previous.setLastTransactionDate(last.transactionDate());
+                previous.setLastTransactionId(last.id());
+                return;
+            }
+            BigDecimal balance = previous == null ? delta : previous.getBalance().add(delta);
+            created.add(new BalanceSnapshot(null, accountRepository.getReferenceById(accountId), balance,
+                    last.transactionDate(), last.id(), now));
+        });
+        snapshotRepository.saveAll(created);
+        
+        checkpoint.setLastTransactionDate(last.transactionDate());
+        checkpoint.setLastTransactionId(last.id());
+        checkpoint.setUpdatedAt(now);
+        return entries.size();
+    }
+    
+    private static boolean isAfter(BalanceSnapshot snapshot, BalanceSnapshotCheckpoint position) {
+        int byDate = snapshot.getLastTransactionDate().compareTo(position.getLastTransactionDate());
+        return byDate > 0 || (byDate == 0 && snapshot.getLastTransactionId() > position.getLastTransactionId());
+    }
+    
+    // Extrato do período [startDate, endDate]: saldo de abertura, lançamentos com saldo corrente e saldo final
+    @Transactional(readOnly = true)
+    public AccountStatementDTO getStatement(String accountNumber, LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("A data inicial deve ser anterior à data final");
+        }
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"));
+        
+        BigDecimal openingBalance = balanceBefore(account.getId(), startDate);
+        List<TransactionDTO> transactions = transactionRepository.findStatementLines(account.getId(), startDate, endDate,
+                PageRequest.ofSize(maxStatementLines + 1));
+        if (transactions.size() > maxStatementLines) {
+            throw new IllegalArgumentException("O período tem mais de " + maxStatementLines
+                    + " lançamentos; use um intervalo menor ou a exportação de transações");
+        }
+        
+        BigDecimal balance = openingBalance;
+        List<StatementLineDTO> lines = new ArrayList<>(transactions.size());
+        for (TransactionDTO transaction : transactions) {
+            BigDecimal amount = signedAmount(transaction, accountNumber);
+            balance = balance.add(amount);
+            String counterparty = accountNumber.equals(transaction.getSourceAccountNumber())
+                    ? transaction.getTargetAccountNumber()
+                    : transaction.getSourceAccountNumber();
+            lines.add(new StatementLineDTO(transaction.getId(), transaction.getTransactionDate(), transaction.getType(),
+                    transaction.getDescription(), counterparty, amount, balance));
+        }
+        return new AccountStatementDTO(accountNumber, startDate, endDate, openingBalance, balance, lines);
+    }
+    
+    // Saldo com todas as transações concluídas antes de "before": snapshot mais próximo + delta até "before"
+    private BigDecimal balanceBefore(Long accountId, LocalDateTime before) {
+        List<BalanceSnapshot> snapshots = snapshotRepository.findLatestBefore(accountId, before, PageRequest.ofSize(1));
+        BigDecimal balance = BigDecimal.ZERO;
+        LocalDateTime afterDate = LEDGER_START;
+        Long afterId = 0L;
+        if (!snapshots.isEmpty()) {
+            BalanceSnapshot snapshot = snapshots.get(0);
+            balance = snapshot.getBalance();
+            afterDate = snapshot.getLastTransactionDate();
+            afterId = snapshot.getLastTransactionId();
+        }
+        return balance
+                .add(transactionRepository.sumCreditsBetween(accountId, afterDate, afterId, before))
+                .subtract(transactionRepository.sumDebitsBetween(accountId, afterDate, afterId, before));
+    }
+    
+    private static BigDecimal signedAmount(TransactionDTO transaction, String accountNumber) {
+        BigDecimal amount = BigDecimal.ZERO;
+        if (accountNumber.equals(transaction.getTargetAccountNumber())
+                && !Transaction.TransactionType.WITHDRAWAL.name().equals(transaction.getType())) {
+            amount = amount.add(transaction.getAmount());
+        }
+        if (accountNumber.equals(transaction.getSourceAccountNumber())
+                && !Transaction.TransactionType.DEPOSIT.name().equals(transaction.getType())) {
+            amount = amount.subtract(transaction.getAmount());
+        }
+        return amount;
+    }
+}
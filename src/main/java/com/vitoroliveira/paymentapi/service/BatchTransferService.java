@@ -0,0 +1,215 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.dto.BatchTransferItemResult;
+import com.vitoroliveira.paymentapi.dto.BatchTransferRequest;
+import com.vitoroliveira.paymentapi.dto.BatchTransferResponse;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.Transaction;
+import com.vitoroliveira.paymentapi.repository.AccountKey;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Processa várias transferências em uma única transação de banco:
+// todas as contas envolvidas são bloqueadas de uma vez (em ordem de ID), os saldos são
+// calculados em memória e as transações são gravadas com saveAll no final.
+//
+// Lotes (e a liquidação assíncrona) usam sempre locks de linha pessimistas, qualquer que seja
+// payment.transfer.concurrency-mode, e não passam pelos locks em memória do AccountLockManager:
+// um lote de 1000 itens cobriria a maior parte das listras e pararia as transferências avulsas
+// da instância até o commit. Sem eles não há deadlock com o caminho avulso, que pega as listras
+// antes da transação e as linhas na mesma ordem de ID.
+@Service
+public class BatchTransferService {
+    
+    static final String SOURCE_NOT_FOUND = "Conta de origem não encontrada";
+    static final String TARGET_NOT_FOUND = "Conta de destino não encontrada";
+    static final String INSUFFICIENT_FUNDS = "Saldo insuficiente para realizar a transferência";
+    
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final ShardedBalanceService shardedBalanceService;
+    private final AccountCache accountCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferMetrics transferMetrics;
+    
+    @Value("${payment.transfer.batch.max-size:1000}")
+    private int maxBatchSize;
+    
+    @Autowired
+    public BatchTransferService(AccountRepository accountRepository,
+                                TransactionRepository transactionRepository,
+                                ShardedBalanceService shardedBalanceService,
+                                AccountCache accountCache,
+                                TransactionTemplate transactionTemplate,
+                                TransferMetrics transferMetrics) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.shardedBalanceService = shardedBalanceService;
+        this.accountCache = accountCache;
+        this.transactionTemplate = transactionTemplate;
+        this.transferMetrics = transferMetrics;
+    }
+    
+    public BatchTransferResponse transferBatch(BatchTransferRequest request) {
+        List<TransferDTO> transfers = request.getTransfers();
+        if (transfers.size() > maxBatchSize) {
+            throw new IllegalArgumentException("O lote excede o limite de " + maxBatchSize + " transferências");
+        }
+        BatchTransferRequest.BatchMode mode = request.getMode() != null
+                ? request.getMode()
+                : BatchTransferRequest.BatchMode.ALL_OR_NOTHING;
+        
+        Set<String> accountNumbers = new LinkedHashSet<>();
+        for (TransferDTO transfer : transfers) {
+            accountNumbers.add(transfer.getSourceAccountNumber());
+            accountNumbers.add(transfer.getTargetAccountNumber());
+        }
+        
+        List<BatchTransferItemResult> results;
+        try {
+            results = transactionTemplate.execute(status -> {
+                accountCache.invalidateOnCommit(accountNumbers);
+                List<BatchTransferItemResult> applied = applyBatch(transfers, accountNumbers, mode);
+                if (mode == BatchTransferRequest.BatchMode.ALL_OR_NOTHING && hasFailures(applied)) {
+                    // Os saldos já foram alterados em memória; nada pode chegar ao banco
+                    status.setRollbackOnly();
+                    return rolledBack(applied);
+                }
+                return applied;
+            });
+        } catch (RuntimeException e) {
+            transferMetrics.failed(e, transfers.size());
+            throw e;
+        }
+        recordOutcomes(results);
+        
+        int completed = (int) results.stream()
+                .filter(result -> result.getStatus() == BatchTransferItemResult.ItemStatus.COMPLETED)
+                .count();
+        return new BatchTransferResponse(mode, results.size(), completed, results.size() - completed, results);
+    }
+    
+    private List<BatchTransferItemResult> applyBatch(List<TransferDTO> transfers, Set<String> accountNumbers,
+                                                     BatchTransferRequest.BatchMode mode) {
+        Map<String, Account> accounts = lockAccounts(accountNumbers);
+        
+        List<BatchTransferItemResult> results = new ArrayList<>(transfers.size());
+        List<Transaction> transactions = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferDTO transfer = transfers.get(i);
+            String error = applyInMemory(transfer.getSourceAccountNumber(), transfer.getTargetAccountNumber(),
+                    transfer.getAmount(), accounts);
+            if (error != null) {
+                results.add(new BatchTransferItemResult(i, BatchTransferItemResult.ItemStatus.FAILED, null, error));
+                if (mode == BatchTransferRequest.BatchMode.ALL_OR_NOTHING) {
+                    // Os itens restantes nem são avaliados
+                    for (int j = i + 1; j < transfers.size(); j++) {
+                        results.add(new BatchTransferItemResult(j, BatchTransferItemResult.ItemStatus.ROLLED_BACK, null, null));
+                    }
+                    return results;
+                }
+                continue;
+            }
+            
+            Transaction transaction = new Transaction();
+            transaction.setSourceAccount(accounts.get(transfer.getSourceAccountNumber()));
+            transaction.setTargetAccount(accounts.get(transfer.getTargetAccountNumber()));
+            transaction.setAmount(transfer.getAmount());
+            transaction.setDescription(transfer.getDescription());
+            transaction.setType(Transaction.TransactionType.TRANSFER);
+            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            transactions.add(transaction);
+            results.add(new BatchTransferItemResult(i, BatchTransferItemResult.ItemStatus.COMPLETED, null, null));
+        }
+        
+        // As contas alteradas são gravadas pelo flush do commit; as transações, de uma vez
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        int next = 0;
+        for (BatchTransferItemResult result : results) {
+            if (result.getStatus() == BatchTransferItemResult.ItemStatus.COMPLETED) {
+                result.setTransaction(TransactionDTO.fromEntity(saved.get(next++)));
+            }
+        }
+        return results;
+    }
+    
+    // Depois do commit (ou do rollback do ALL_OR_NOTHING), um resultado por item
+    private void recordOutcomes(List<BatchTransferItemResult> results) {
+        int rolledBack = 0;
+        for (BatchTransferItemResult result : results) {
+            switch (result.getStatus()) {
+                case COMPLETED -> transferMetrics.settled(null);
+                case FAILED -> transferMetrics.settled(result.getError());
+                case ROLLED_BACK -> rolledBack++;
+            }
+        }
+        if (rolledBack > 0) {
+            transferMetrics.rolledBack(rolledBack);
+        }
+    }
+    
+    // Retorna a mensagem de erro do item, ou null se a transferência foi aplicada.
+    // Também usado pela liquidação assíncrona (AsyncTransferService)
+    String applyInMemory(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount,
+                         Map<String, Account> accounts) {
+        Account source = accounts.get(sourceAccountNumber);
+        if (source == null) {
+            return SOURCE_NOT_FOUND;
+        }
+        Account target = accounts.get(targetAccountNumber);
+        if (target == null) {
+            return TARGET_NOT_FOUND;
+        }
+        
+        shardedBalanceService.ensureDebitable(source, amount);
+        if (source.getBalance().compareTo(amount) < 0) {
+            return INSUFFICIENT_FUNDS;
+        }
+        
+        // Contas particionadas já estão bloqueadas aqui, então o crédito vai direto ao saldo principal
+        source.setBalance(source.getBalance().subtract(amount));
+        target.setBalance(target.getBalance().add(amount));
+        return null;
+    }
+    
+    // Bloqueia as contas em ordem de ID; as inexistentes ficam fora do mapa
+    Map<String, Account> lockAccounts(Set<String> accountNumbers) {
+        List<Long> ids = accountRepository.findKeysByAccountNumberIn(accountNumbers).stream()
+                .map(AccountKey::id)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return accountRepository.findAllByIdForUpdate(ids).stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+    }
+    
+    private boolean hasFailures(List<BatchTransferItemResult> results) {
+        return results.stream().anyMatch(result -> result.getStatus() != BatchTransferItemResult.ItemStatus.COMPLETED);
+    }
+    
+    private List<BatchTransferItemResult> rolledBack(List<BatchTransferItemResult> results) {
+        for (BatchTransferItemResult result : results) {
+            if (result.getStatus() == BatchTransferItemResult.ItemStatus.COMPLETED) {
+                result.setStatus(BatchTransferItemResult.ItemStatus.ROLLED_BACK);
+                result.setTransaction(null);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,97 @@
+package com.vitoroliveira.paymentapi.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Leitor de CSV (RFC 4180) registro a registro: campos entre aspas podem conter vírgula, aspas
+// duplicadas e quebras de linha. Só o registro atual fica em memória, e um campo maior que
+// maxFieldLength interrompe a leitura em vez de crescer sem limite.
+final class CsvRecordReader {
+    
+    private static final int NONE = -2;
+    
+    private final Reader reader;
+    private final int maxFieldLength;
+    private int pushedBack = NONE;
+    private long line = 1;
+    private long recordLine;
+    
+    CsvRecordReader(Reader reader, int maxFieldLength) {
+        this.reader = reader;
+        this.maxFieldLength = maxFieldLength;
+    }
+    
+    // Linha do arquivo em que começa o último registro lido
+    long recordLine() {
+        return recordLine;
+    }
+    
+    // Próximo registro, ou null no fim do arquivo
+    List<String> next() throws IOException {
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        append(field, '"');
+                    } else {
+                        quoted = false;
+                        pushedBack = next;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    append(field, (char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pushedBack = next;
+                    }
+                }
+                line++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                append(field, (char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+    
+    private void append(StringBuilder field, char c) throws IOException {
+        if (field.length() >= maxFieldLength) {
+            throw new IOException("Campo com mais de " + maxFieldLength + " caracteres na linha " + line);
+        }
+        field.append(c);
+    }
+}
@@ -0,0 +1,238 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.exception.ConcurrencyConflictException;
+import com.vitoroliveira.paymentapi.exception.IdempotencyKeyReuseException;
+import com.vitoroliveira.paymentapi.model.IdempotencyRecord;
+import com.vitoroliveira.paymentapi.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Transferências com Idempotency-Key.
+// Três camadas, da mais barata para a mais cara:
+//  1. LRU em memória com as respostas recentes (replays de clientes em retry);
+//  2. mapa de execuções em andamento: duplicatas concorrentes esperam a primeira terminar;
+//  3. tabela idempotency_keys com TTL, gravada na mesma transação da transferência, que
+//     cobre reinícios e as demais instâncias da aplicação.
+// Replays nunca tocam em accounts: a resposta vem do cache ou do JSON gravado.
+// Nas três camadas a chave vale por conta de origem (ScopedKey), nunca globalmente.
+@Service
+public class IdempotencyService {
+    
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    
+    private static final int MAX_KEY_LENGTH = 255;
+    
+    private final TransactionService transactionService;
+    private final IdempotencyRecordRepository recordRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final long waitTimeoutMs;
+    
+    private final Map<ScopedKey, StoredTransfer> recentTransfers;
+    private final Map<ScopedKey, InFlightTransfer> inFlightTransfers = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public IdempotencyService(TransactionService transactionService,
+                              IdempotencyRecordRepository recordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${payment.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${payment.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${payment.idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.transactionService = transactionService;
+        this.recordRepository = recordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.waitTimeoutMs = waitTimeoutMs;
+        // LinkedHashMap em ordem de acesso descartando a entrada menos usada. O synchronized do
+        // wrapper só protege operações em memória, então não prende threads virtuais em I/O
+        this.recentTransfers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ScopedKey, StoredTransfer> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+    
+    public IdempotentTransfer transferMoney(String idempotencyKey, TransferDTO transferDTO) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key deve ter entre 1 e " + MAX_KEY_LENGTH + " caracteres");
+        }
+        ScopedKey key = new ScopedKey(transferDTO.getSourceAccountNumber(), idempotencyKey);
+        String requestHash = fingerprint(transferDTO);
+        
+        StoredTransfer stored = findRecent(key);
+        if (stored != null) {
+            return replay(key, requestHash, stored);
+        }
+        
+        InFlightTransfer own = new InFlightTransfer(requestHash, new CompletableFuture<>());
+        InFlightTransfer running = inFlightTransfers.putIfAbsent(key, own);
+        if (running != null) {
+            return awaitRunning(key, requestHash, running);
+        }
+        
+        try {
+            IdempotentTransfer result = executeOnce(key, requestHash, transferDTO);
+            own.result().complete(result.transaction());
+            return result;
+        } catch (RuntimeException e) {
+            own.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightTransfers.remove(key, own);
+        }
+    }
+    
+    // Remove os registros vencidos; a busca por chave já ignora os vencidos ainda não removidos
+    @Scheduled(fixedDelayString = "${payment.idempotency.cleanup-interval-ms:3600000}",
+            initialDelayString = "${payment.idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        int removed = recordRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            log.info("{} Idempotency-Keys vencidas removidas", removed);
+        }
+    }
+    
+    private IdempotentTransfer executeOnce(ScopedKey key, String requestHash, TransferDTO transferDTO) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<IdempotencyRecord> existing = findRecord(key);
+        if (existing.isPresent()) {
+            if (existing.get().getExpiresAt().isAfter(now)) {
+                return replay(key, requestHash, remember(key, existing.get()));
+            }
+            recordRepository.deleteExpiredByIdempotencyKey(key.sourceAccountNumber(), key.idempotencyKey(), now);
+        }
+        
+        LocalDateTime expiresAt = now.plus(ttl);
+        try {
+            TransactionDTO transaction = transactionService.transferMoney(transferDTO, completed ->
+                    recordRepository.save(new IdempotencyRecord(null, key.sourceAccountNumber(), key.idempotencyKey(),
+                            requestHash, toJson(completed), now, expiresAt)));
+            recentTransfers.put(key, new StoredTransfer(requestHash, transaction, expiresAt));
+            return new IdempotentTransfer(transaction, false);
+        } catch (DataIntegrityViolationException e) {
+            // Outra instância gravou a mesma chave primeiro; a transferência desta foi desfeita
+            IdempotencyRecord winner = findRecord(key).orElseThrow(() -> e);
+            return replay(key, requestHash, remember(key, winner));
+        }
+    }
+    
+    private IdempotentTransfer awaitRunning(ScopedKey key, String requestHash, InFlightTransfer running) {
+        if (!running.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReuseException(key.idempotencyKey());
+        }
+        try {
+            return new IdempotentTransfer(running.result().get(waitTimeoutMs, TimeUnit.MILLISECONDS), true);
+        } catch (ExecutionException e) {
+            // A primeira execução falhou e nada foi gravado: a duplicata recebe o mesmo erro
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConcurrencyConflictException(
+                    "Requisição com esta Idempotency-Key ainda está em processamento. Tente novamente.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyConflictException("Espera pela Idempotency-Key interrompida", e);
+        }
+    }
+    
+    private IdempotentTransfer replay(ScopedKey key, String requestHash, StoredTransfer stored) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReuseException(key.idempotencyKey());
+        }
+        return new IdempotentTransfer(stored.transaction(), true);
+    }
+    
+    private StoredTransfer findRecent(ScopedKey key) {
+        StoredTransfer stored = recentTransfers.get(key);
+        if (stored != null && !stored.expiresAt().isAfter(LocalDateTime.now())) {
+            recentTransfers.remove(key, stored);
+            return null;
+        }
+        return stored;
+    }
+    
+    private Optional<IdempotencyRecord> findRecord(ScopedKey key) {
+        return recordRepository.findBySourceAccountNumberAndIdempotencyKey(key.sourceAccountNumber(), key.idempotencyKey());
+    }
+    
+    private StoredTransfer remember(ScopedKey key, IdempotencyRecord record) {
+        StoredTransfer stored = new StoredTransfer(record.getRequestHash(), fromJson(record.getResponseBody()),
+                record.getExpiresAt());
+        recentTransfers.put(key, stored);
+        return stored;
+    }
+    
+    // SHA-256 dos campos da transferência; o valor é normalizado para que 10 e 10.00 sejam iguais
+    private static String fingerprint(TransferDTO transferDTO) {
+        String canonical = String.join("\n",
+                transferDTO.getSourceAccountNumber(),
+                transferDTO.getTargetAccountNumber(),
+                transferDTO.getAmount().stripTrailingZeros().toPlainString(),
+                Objects.toString(transferDTO.getDescription(), ""));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+    
+    private String toJson(TransactionDTO transaction) {
+        try {
+            return objectMapper.writeValueAsString(transaction);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private TransactionDTO fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, TransactionDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public record IdempotentTransfer(TransactionDTO transaction, boolean replayed) {
+    }
+    
+    // Idempotency-Key no escopo da conta de origem
+    private record ScopedKey(String sourceAccountNumber, String idempotencyKey) {
+    }
+    
+    private record StoredTransfer(String requestHash, TransactionDTO transaction, LocalDateTime expiresAt) {
+    }
+    
+    private record InFlightTransfer(String requestHash, CompletableFuture<TransactionDTO> result) {
+    }
+}
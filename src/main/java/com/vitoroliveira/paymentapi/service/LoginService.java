@@ -0,0 +1,167 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vitoroliveira.paymentapi.exception.LoginThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Login com proteção de vazão: a verificação da senha (BCrypt/Argon2, caro em CPU) roda em um
+// pool próprio e limitado e o resultado chega como CompletableFuture, então a thread do Tomcat é
+// devolvida logo após a submissão e uma rajada de logins não ocupa as threads usadas pelas
+// transferências. Com o pool e a fila cheios, ou sem resposta em timeout-ms, o login é recusado (429).
+//
+// Falhas são contadas em memória por email + IP e por IP durante payment.login.failure-window-minutes;
+// acima do limite o login é recusado antes de qualquer hash. O limite por email vale só para o IP
+// que errou: quem conhece um email não consegue bloquear o titular de outro endereço, e o volume
+// de um mesmo IP contra vários emails fica com o limite por IP. Com várias instâncias cada uma
+// conta as suas tentativas.
+@Service
+public class LoginService implements DisposableBean {
+
+    private final AuthenticationManager authenticationManager;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final int maxFailuresPerEmail;
+    private final int maxFailuresPerIp;
+    private final Duration failureWindow;
+    private final Cache<EmailFromIp, AtomicInteger> failuresByEmail;
+    private final Cache<String, AtomicInteger> failuresByIp;
+    private final Counter throttledCounter;
+    private final Counter busyCounter;
+
+    @Autowired
+    public LoginService(AuthenticationManager authenticationManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${payment.login.threads:0}") int threads,
+                        @Value("${payment.login.queue-capacity:100}") int queueCapacity,
+                        @Value("${payment.login.timeout-ms:5000}") long timeoutMs,
+                        @Value("${payment.login.max-failures-per-email:5}") int maxFailuresPerEmail,
+                        @Value("${payment.login.max-failures-per-ip:20}") int maxFailuresPerIp,
+                        @Value("${payment.login.failure-window-minutes:15}") long failureWindowMinutes) {
+        this.authenticationManager = authenticationManager;
+        this.timeoutMs = timeoutMs;
+        this.maxFailuresPerEmail = maxFailuresPerEmail;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.failureWindow = Duration.ofMinutes(failureWindowMinutes);
+
+        // 0 = metade dos processadores: o hash é CPU pura, mais threads só disputariam os núcleos
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("login-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        // O prazo conta a partir da primeira falha: incrementar não renova a entrada
+        this.failuresByEmail = Caffeine.newBuilder()
+                .expireAfterWrite(failureWindow)
+                .maximumSize(100_000)
+                .build();
+        this.failuresByIp = Caffeine.newBuilder()
+                .expireAfterWrite(failureWindow)
+                .maximumSize(100_000)
+                .build();
+
+        Gauge.builder("payment.login.queued", executor, pool -> pool.getQueue().size())
+                .description("Logins aguardando a verificação de senha")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("payment.login.rejected")
+                .description("Logins recusados antes da verificação de senha")
+                .tag("reason", "failures")
+                .register(meterRegistry);
+        this.busyCounter = Counter.builder("payment.login.rejected")
+                .description("Logins recusados antes da verificação de senha")
+                .tag("reason", "busy")
+                .register(meterRegistry);
+    }
+
+    // Autentica no pool de login sem bloquear quem chama. Os limites de falhas e a fila cheia são
+    // verificados na hora (LoginThrottledException); o futuro falha com BadCredentialsException para
+    // senha errada e com LoginThrottledException quando a verificação não termina em timeout-ms
+    public CompletableFuture<Authentication> authenticate(String email, String password, String clientIp) {
+        String ipKey = clientIp == null ? "" : clientIp;
+        EmailFromIp emailKey = new EmailFromIp(email == null ? "" : email.trim().toLowerCase(Locale.ROOT), ipKey);
+        if (failures(failuresByEmail, emailKey) >= maxFailuresPerEmail || failures(failuresByIp, ipKey) >= maxFailuresPerIp) {
+            throttledCounter.increment();
+            throw new LoginThrottledException("Muitas tentativas de login. Tente novamente mais tarde.",
+                    failureWindow.toSeconds());
+        }
+
+        CompletableFuture<Authentication> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(authenticationManager.authenticate(
+                            new UsernamePasswordAuthenticationToken(email, password)));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            busyCounter.increment();
+            throw new LoginThrottledException("Muitos logins simultâneos. Tente novamente em instantes.", 1);
+        }
+
+        return result.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).handle((authentication, error) -> {
+            if (error == null) {
+                failuresByEmail.invalidate(emailKey);
+                return authentication;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                // Ainda na fila ou verificando: o resultado é descartado
+                task.cancel(true);
+                busyCounter.increment();
+                throw new LoginThrottledException("Muitos logins simultâneos. Tente novamente em instantes.", 1);
+            }
+            if (cause instanceof BadCredentialsException) {
+                recordFailure(failuresByEmail, emailKey);
+                recordFailure(failuresByIp, ipKey);
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Falha ao autenticar", cause);
+        });
+    }
+
+    private static <K> int failures(Cache<K, AtomicInteger> counters, K key) {
+        AtomicInteger failures = counters.getIfPresent(key);
+        return failures == null ? 0 : failures.get();
+    }
+
+    private static <K> void recordFailure(Cache<K, AtomicInteger> counters, K key) {
+        counters.get(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private record EmailFromIp(String email, String ip) {
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
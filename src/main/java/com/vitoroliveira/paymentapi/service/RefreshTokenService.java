@@ -5,55 +5,110 @@ import com.vitoroliveira.paymentapi.model.RefreshToken;
 import com.vitoroliveira.paymentapi.model.User;
 import com.vitoroliveira.paymentapi.repository.RefreshTokenRepository;
 import com.vitoroliveira.paymentapi.repository.UserRepository;
+import com.vitoroliveira.paymentapi.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+// Refresh tokens: um por usuário, rotacionado no lugar a cada login (um UPDATE, sem delete+insert).
+// Tokens expirados ou revogados não são apagados no caminho da requisição; a varredura agendada
+// os remove em lotes de jwt.refresh-token.sweep-batch-size, cada lote na sua própria transação curta.
+// São duas passadas, cada uma pelo seu índice: expirados por expiry_date e revogados por (revoked, id);
+// uma única consulta com OR entre as duas condições não usaria nenhum deles e percorreria a tabela toda.
 @Service
 public class RefreshTokenService {
     
-    @Value("${jwt.refresh-token.expiration:604800000}") // 7 dias em milissegundos
-    private Long refreshTokenExpirationMs;
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
     
     private final RefreshTokenRepository refreshTokenRepository;
     private final UserRepository userRepository;
+    private final long refreshTokenExpirationMs;
+    private final int sweepBatchSize;
+    private final Counter sweptCounter;
+    private final Timer sweepTimer;
+    private final Timer rotationTimer;
     
     @Autowired
-    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository) {
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${jwt.refresh-token.expiration:604800000}") long refreshTokenExpirationMs, // 7 dias em milissegundos
+                               @Value("${jwt.refresh-token.sweep-batch-size:1000}") int sweepBatchSize) {
         this.refreshTokenRepository = refreshTokenRepository;
         this.userRepository = userRepository;
+        this.refreshTokenExpirationMs = refreshTokenExpirationMs;
+        this.sweepBatchSize = sweepBatchSize;
+        this.sweptCounter = Counter.builder("payment.refresh-tokens.swept")
+                .description("Refresh tokens expirados ou revogados removidos pela varredura")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("payment.refresh-tokens.sweep")
+                .description("Duração de cada varredura de refresh tokens")
+                .register(meterRegistry);
+        this.rotationTimer = Timer.builder("payment.refresh-tokens.rotation")
+                .description("Duração da emissão de um novo refresh token no login")
+                .register(meterRegistry);
     }
     
     public Optional<RefreshToken> findByToken(String token) {
         return refreshTokenRepository.findByToken(token);
     }
     
-    @Transactional
-    public RefreshToken createRefreshToken(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado com email: " + email));
+    // Emite um novo refresh token para o usuário autenticado, invalidando o anterior
+    public String rotateRefreshToken(UserDetails userDetails) {
+        Timer.Sample sample = Timer.start();
+        try {
+            return rotate(userDetails);
+        } finally {
+            sample.stop(rotationTimer);
+        }
+    }
+    
+    private String rotate(UserDetails userDetails) {
+        Long userId = userDetails instanceof AuthenticatedUser authenticatedUser
+                ? authenticatedUser.getId()
+                : userRepository.findByEmail(userDetails.getUsername())
+                        .map(User::getId)
+                        .orElseThrow(() -> new RuntimeException("Usuário não encontrado com email: " + userDetails.getUsername()));
         
-        // Verificar se o usuário já tem um refresh token
-        refreshTokenRepository.findByUser(user).ifPresent(refreshTokenRepository::delete);
+        String token = UUID.randomUUID().toString();
+        Instant expiryDate = Instant.now().plusMillis(refreshTokenExpirationMs);
+        if (refreshTokenRepository.rotate(userId, token, expiryDate) > 0) {
+            return token;
+        }
         
+        // Primeiro login (ou linha já varrida): insere
         RefreshToken refreshToken = new RefreshToken();
-        
-        refreshToken.setUser(user);
-        refreshToken.setExpiryDate(Instant.now().plusMillis(refreshTokenExpirationMs));
-        refreshToken.setToken(UUID.randomUUID().toString());
+        refreshToken.setUser(userRepository.getReferenceById(userId));
+        refreshToken.setExpiryDate(expiryDate);
+        refreshToken.setToken(token);
         refreshToken.setRevoked(false);
-        
-        return refreshTokenRepository.save(refreshToken);
+        try {
+            refreshTokenRepository.save(refreshToken);
+        } catch (DataIntegrityViolationException e) {
+            // Login simultâneo do mesmo usuário inseriu a linha primeiro (user_id é único)
+            refreshTokenRepository.rotate(userId, token, expiryDate);
+        }
+        return token;
     }
     
     public RefreshToken verifyExpiration(RefreshToken token) {
+        // A linha fica para a varredura; aqui só recusa
         if (token.getExpiryDate().compareTo(Instant.now()) < 0 || token.isRevoked()) {
-            refreshTokenRepository.delete(token);
             throw new TokenRefreshException(token.getToken(), 
                     "Refresh token expirado ou revogado. Por favor, faça login novamente.");
         }
@@ -70,6 +125,11 @@ public class RefreshTokenService {
         refreshTokenRepository.save(refreshToken);
     }
     
+    // Logout: um UPDATE, sem carregar usuário nem token
+    public void revokeUserTokens(String email) {
+        refreshTokenRepository.revokeByUserEmail(email);
+    }
+    
     @Transactional
     public void revokeAllUserTokens(Long userId) {
         User user = userRepository.findById(userId)
@@ -77,4 +137,44 @@ public class RefreshTokenService {
         
         refreshTokenRepository.deleteByUser(user);
     }
-}
\ No newline at end of file
+    
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.sweep-interval-ms:600000}",
+            initialDelayString = "${jwt.refresh-token.sweep-interval-ms:600000}")
+    public int sweepExpired() {
+        Timer.Sample sample = Timer.start();
+        Instant now = Instant.now();
+        int removed = 0;
+        try {
+            List<Long> ids;
+            do {
+                ids = refreshTokenRepository.findExpiredIds(now, PageRequest.ofSize(sweepBatchSize));
+                removed += deleteSweepable(ids, now);
+            } while (ids.size() == sweepBatchSize);
+            
+            // Revogados que expiraram já saíram na primeira passada
+            Long afterId = 0L;
+            do {
+                ids = refreshTokenRepository.findRevokedIdsAfter(afterId, PageRequest.ofSize(sweepBatchSize));
+                removed += deleteSweepable(ids, now);
+                if (!ids.isEmpty()) {
+                    afterId = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == sweepBatchSize);
+        } finally {
+            sample.stop(sweepTimer);
+        }
+        if (removed > 0) {
+            log.info("{} refresh tokens expirados ou revogados removidos", removed);
+        }
+        return removed;
+    }
+    
+    private int deleteSweepable(List<Long> ids, Instant now) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deleted = refreshTokenRepository.deleteSweepable(ids, now);
+        sweptCounter.increment(deleted);
+        return deleted;
+    }
+}
@@ -0,0 +1,156 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.dto.AccountDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.AccountBalanceShard;
+import com.vitoroliveira.paymentapi.repository.AccountBalanceShardRepository;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.ShardBalanceTotal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Saldo particionado ("sharded") para contas muito quentes.
+// Créditos são espalhados entre N buckets escolhidos por hash, evitando que todas as
+// transferências recebidas serializem na mesma linha de accounts. O saldo principal da
+// conta funciona como bucket designado para débitos; quando ele não basta, os buckets
+// são varridos (sweep) para dentro dele.
+//
+// Ordem de locks: todas as linhas de accounts da transação antes de qualquer bucket; buckets de
+// contas diferentes em ordem crescente de ID da conta e, dentro da conta, por índice.
+@Service
+public class ShardedBalanceService {
+    
+    private final AccountBalanceShardRepository shardRepository;
+    private final AccountRepository accountRepository;
+    
+    // Números das contas particionadas conhecidas por este nó. É apenas uma dica para decidir
+    // quais locks em memória adquirir; a decisão dentro da transação usa sempre o valor do banco
+    private final Set<String> shardedAccountNumbers = ConcurrentHashMap.newKeySet();
+    
+    @Value("${payment.balance-shards.max:64}")
+    private int maxShards;
+    
+    @Autowired
+    public ShardedBalanceService(AccountBalanceShardRepository shardRepository, AccountRepository accountRepository) {
+        this.shardRepository = shardRepository;
+        this.accountRepository = accountRepository;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadShardedAccounts() {
+        shardedAccountNumbers.addAll(accountRepository.findShardedAccountNumbers());
+    }
+    
+    public boolean isKnownSharded(String accountNumber) {
+        return shardedAccountNumbers.contains(accountNumber);
+    }
+    
+    // Atualiza a dica local com o estado lido do banco
+    public void remember(String accountNumber, int balanceShards) {
+        if (balanceShards > 0) {
+            shardedAccountNumbers.add(accountNumber);
+        } else {
+            shardedAccountNumbers.remove(accountNumber);
+        }
+    }
+    
+    // Credita um bucket escolhido pelo hash da conta de origem. Só depois de todas as linhas da
+    // transação e na ordem de ID da conta em relação a uma consolidação (sweep) de outra conta.
+    // Retorna false se o bucket não existe mais (conta reconfigurada depois da leitura)
+    public boolean credit(Long accountId, int balanceShards, String sourceAccountNumber, BigDecimal amount) {
+        int shardIndex = Math.floorMod(sourceAccountNumber.hashCode(), balanceShards);
+        return shardRepository.credit(accountId, shardIndex, amount) > 0;
+    }
+    
+    // Saldo total = saldo principal + soma dos buckets
+    public BigDecimal totalBalance(Account account) {
+        if (!account.isSharded()) {
+            return account.getBalance();
+        }
+        return account.getBalance().add(shardRepository.sumBalanceByAccountId(account.getId()));
+    }
+    
+    // Completa o saldo das contas particionadas vindas de projeção com a soma dos buckets, em uma consulta
+    public void addShardBalances(List<AccountDTO> accounts) {
+        List<Long> shardedIds = accounts.stream()
+                .filter(account -> account.getBalanceShards() > 0)
+                .map(AccountDTO::getId)
+                .toList();
+        if (shardedIds.isEmpty()) {
+            return;
+        }
+        Map<Long, BigDecimal> shardTotals = shardRepository.sumBalanceByAccountIdIn(shardedIds).stream()
+                .collect(Collectors.toMap(ShardBalanceTotal::accountId, ShardBalanceTotal::balance));
+        for (AccountDTO account : accounts) {
+            BigDecimal shardTotal = shardTotals.get(account.getId());
+            if (shardTotal != null) {
+                account.setBalance(account.getBalance().add(shardTotal));
+            }
+        }
+    }
+    
+    // Move o saldo de todos os buckets para o saldo principal. A conta já deve estar bloqueada
+    public void sweep(Account lockedAccount) {
+        if (!lockedAccount.isSharded()) {
+            return;
+        }
+        BigDecimal swept = BigDecimal.ZERO;
+        for (AccountBalanceShard shard : shardRepository.findByAccountIdForUpdate(lockedAccount.getId())) {
+            if (shard.getBalance().signum() != 0) {
+                swept = swept.add(shard.getBalance());
+                shard.setBalance(BigDecimal.ZERO);
+            }
+        }
+        lockedAccount.setBalance(lockedAccount.getBalance().add(swept));
+    }
+    
+    // Garante saldo principal suficiente para o débito, varrendo os buckets se necessário
+    public void ensureDebitable(Account lockedAccount, BigDecimal amount) {
+        if (lockedAccount.isSharded() && lockedAccount.getBalance().compareTo(amount) < 0) {
+            sweep(lockedAccount);
+        }
+    }
+    
+    // Define o saldo total de uma conta bloqueada, zerando os buckets
+    public void overwriteBalance(Account lockedAccount, BigDecimal newBalance) {
+        sweep(lockedAccount);
+        lockedAccount.setBalance(newBalance);
+    }
+    
+    // Altera a quantidade de buckets (0 desativa). O saldo existente é consolidado no principal
+    public void reconfigure(Account lockedAccount, int balanceShards) {
+        if (balanceShards < 0 || balanceShards > maxShards) {
+            throw new IllegalArgumentException("Quantidade de buckets deve estar entre 0 e " + maxShards);
+        }
+        if (balanceShards == lockedAccount.getBalanceShards()) {
+            return;
+        }
+        
+        List<AccountBalanceShard> current = shardRepository.findByAccountIdForUpdate(lockedAccount.getId());
+        BigDecimal pending = current.stream()
+                .map(AccountBalanceShard::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        shardRepository.deleteAllInBatch(current);
+        lockedAccount.setBalance(lockedAccount.getBalance().add(pending));
+        
+        List<AccountBalanceShard> shards = new ArrayList<>(balanceShards);
+        for (int i = 0; i < balanceShards; i++) {
+            shards.add(new AccountBalanceShard(null, lockedAccount, i, BigDecimal.ZERO));
+        }
+        shardRepository.saveAll(shards);
+        
+        lockedAccount.setBalanceShards(balanceShards);
+        remember(lockedAccount.getAccountNumber(), balanceShards);
+    }
+}
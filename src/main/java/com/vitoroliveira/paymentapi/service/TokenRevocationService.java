@@ -0,0 +1,127 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.model.RevokedToken;
+import com.vitoroliveira.paymentapi.repository.RevokedTokenKey;
+import com.vitoroliveira.paymentapi.repository.RevokedTokenRepository;
+import com.vitoroliveira.paymentapi.security.TokenClaims;
+import com.vitoroliveira.paymentapi.security.TokenRevocationList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+// Revogação de access tokens (logout) sem consulta ao banco por requisição.
+//
+// A tabela revoked_tokens é a fonte de verdade; a TokenRevocationList em memória responde
+// "certamente não revogado" para quase todas as requisições e só os "talvez" são confirmados
+// no banco. Na subida a lista é recarregada da tabela, e revogações feitas em outras instâncias
+// são trazidas periodicamente (jwt.revocation.sync-interval-ms).
+@Service
+public class TokenRevocationService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final int RELOAD_PAGE_SIZE = 10_000;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TokenRevocationList revocationList;
+    private final long syncIntervalMs;
+
+    // Início da próxima sincronização; volta um intervalo extra para cobrir relógios e commits atrasados
+    private volatile Instant syncedUntil = Instant.EPOCH;
+
+    @Autowired
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${jwt.expiration:3600000}") long tokenExpirationMs,
+                                  @Value("${jwt.revocation.window-seconds:300}") long windowSeconds,
+                                  @Value("${jwt.revocation.expected-revocations:10000000}") long expectedRevocations,
+                                  @Value("${jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                  @Value("${jwt.revocation.sync-interval-ms:5000}") long syncIntervalMs) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.syncIntervalMs = syncIntervalMs;
+        this.revocationList = new TokenRevocationList(windowSeconds, Math.max(1, tokenExpirationMs / 1000),
+                expectedRevocations, falsePositiveRate);
+        log.info("Lista de revogação de tokens: {} MB", revocationList.sizeInBytes() / (1024 * 1024));
+    }
+
+    // Recarrega a lista antes de o servidor começar a aceitar requisições
+    @Override
+    public void afterSingletonsInstantiated() {
+        Instant now = Instant.now();
+        long loaded = 0;
+        Long afterId = 0L;
+        List<RevokedTokenKey> page;
+        do {
+            page = revokedTokenRepository.findActiveAfterId(now, afterId, PageRequest.ofSize(RELOAD_PAGE_SIZE));
+            for (RevokedTokenKey key : page) {
+                revocationList.add(key.jti(), key.expiresAt().getEpochSecond(), now.getEpochSecond());
+                afterId = key.id();
+            }
+            loaded += page.size();
+        } while (page.size() == RELOAD_PAGE_SIZE);
+        syncedUntil = now;
+        if (loaded > 0) {
+            log.info("{} tokens revogados recarregados", loaded);
+        }
+    }
+
+    // Revoga o token até a sua expiração; revogar duas vezes não é erro
+    public void revoke(TokenClaims claims) {
+        Instant expiresAt = claims.expiresAt();
+        if (claims.id() == null || expiresAt == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setJti(claims.id());
+        revokedToken.setExpiresAt(expiresAt);
+        revokedToken.setRevokedAt(now);
+        try {
+            revokedTokenRepository.save(revokedToken);
+        } catch (DataIntegrityViolationException e) {
+            // jti já revogado (uk_revoked_token_jti)
+        }
+        revocationList.add(claims.id(), expiresAt.getEpochSecond(), now.getEpochSecond());
+    }
+
+    // Caminho de toda requisição autenticada: sem alocação e sem banco, exceto nos "talvez" do filtro
+    public boolean isRevoked(TokenClaims claims) {
+        String jti = claims.id();
+        Instant expiresAt = claims.expiresAt();
+        if (jti == null || expiresAt == null) {
+            return false;
+        }
+        if (!revocationList.mightContain(jti, expiresAt.getEpochSecond())) {
+            return false;
+        }
+        return revokedTokenRepository.existsByJti(jti);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:5000}",
+            initialDelayString = "${jwt.revocation.sync-interval-ms:5000}")
+    public void syncRevocations() {
+        Instant now = Instant.now();
+        Instant since = syncedUntil.minusMillis(syncIntervalMs);
+        for (RevokedTokenKey key : revokedTokenRepository.findRevokedSince(since, now)) {
+            revocationList.add(key.jti(), key.expiresAt().getEpochSecond(), now.getEpochSecond());
+        }
+        syncedUntil = now;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.cleanup-interval-ms:3600000}",
+            initialDelayString = "${jwt.revocation.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        int removed = revokedTokenRepository.deleteExpired(Instant.now());
+        if (removed > 0) {
+            log.info("{} revogações de tokens expirados removidas", removed);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionExportRow;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Exportação de transações em NDJSON ou CSV com memória constante: as linhas vêm do banco por um
+// Stream forward-only (projeção, sem entidades) e são escritas na resposta conforme chegam.
+// Roda em uma transação somente leitura que dura a exportação inteira, fora da thread da requisição.
+@Service
+public class TransactionExportService {
+    
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER =
+            "id,sourceAccountNumber,targetAccountNumber,amount,transactionDate,type,description,status,failureReason\n";
+    
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    
+    @Autowired
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    AccountRepository accountRepository,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv;charset=UTF-8", "csv");
+        
+        private final String contentType;
+        private final String extension;
+        
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+        
+        public static ExportFormat from(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato de exportação inválido: use ndjson ou csv");
+            }
+        }
+    }
+    
+    // Exportação preparada: parâmetros e conta já validados, linhas lidas só em writeTo
+    @FunctionalInterface
+    public interface Export {
+        
+        // Escreve todas as linhas e devolve quantas foram escritas
+        long writeTo(OutputStream out);
+    }
+    
+    public Export exportByDateRange(LocalDateTime startDate, LocalDateTime endDate, ExportFormat format) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("A data inicial deve ser anterior à data final");
+        }
+        return out -> export(() -> transactionRepository.streamByTransactionDateBetween(startDate, endDate), format, out);
+    }
+    
+    // A conta é resolvida agora, para que conta inexistente vire 404 antes de a resposta começar
+    public Export exportByAccount(String accountNumber, ExportFormat format) {
+        Long accountId = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"))
+                .getId();
+        return out -> export(() -> transactionRepository.streamByAccountId(accountId), format, out);
+    }
+    
+    private long export(Supplier<Stream<TransactionExportRow>> query, ExportFormat format, OutputStream out) {
+        Long written = readOnlyTransaction.execute(status -> {
+            try (Stream<TransactionExportRow> rows = query.get()) {
+                return format == ExportFormat.CSV ? writeCsv(rows.iterator(), out) : writeNdjson(rows.iterator(), out);
+            } catch (IOException e) {
+                // Normalmente o cliente desconectou: a transação é encerrada e o cursor fechado
+                throw new UncheckedIOException(e);
+            }
+        });
+        return written == null ? 0 : written;
+    }
+    
+    private long writeNdjson(Iterator<TransactionExportRow> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            // Sem o espaço padrão entre valores de raiz; cada linha termina com \n.
+            // O stream da resposta é de quem chamou e não é fechado aqui
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (rows.hasNext()) {
+                generator.writeObject(rows.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private long writeCsv(Iterator<TransactionExportRow> rows, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+        while (rows.hasNext()) {
+            TransactionExportRow row = rows.next();
+            writer.write(String.valueOf(row.id()));
+            writer.write(',');
+            writeCsvField(writer, row.sourceAccountNumber());
+            writer.write(',');
+            writeCsvField(writer, row.targetAccountNumber());
+            writer.write(',');
+            writer.write(row.amount() == null ? "" : row.amount().toPlainString());
+            writer.write(',');
+            writer.write(row.transactionDate() == null ? "" : row.transactionDate().toString());
+            writer.write(',');
+            writer.write(row.type() == null ? "" : row.type().name());
+            writer.write(',');
+            writeCsvField(writer, row.description());
+            writer.write(',');
+            writer.write(row.status() == null ? "" : row.status().name());
+            writer.write(',');
+            writeCsvField(writer, row.failureReason());
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+    
+    // RFC 4180: aspas quando há vírgula, aspas ou quebra de linha; aspas internas duplicadas
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
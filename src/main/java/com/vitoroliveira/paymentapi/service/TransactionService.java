@@ -1,47 +1,319 @@
 package com.vitoroliveira.paymentapi.service;
 
+import com.vitoroliveira.paymentapi.dto.TransactionCursorPage;
 import com.vitoroliveira.paymentapi.dto.TransactionDTO;
 import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.exception.ConcurrencyConflictException;
+import com.vitoroliveira.paymentapi.exception.InsufficientFundsException;
 import com.vitoroliveira.paymentapi.model.Account;
 import com.vitoroliveira.paymentapi.model.Transaction;
+import com.vitoroliveira.paymentapi.repository.AccountKey;
 import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionPosition;
 import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class TransactionService {
     
+    public static final int MAX_CURSOR_PAGE_SIZE = 100;
+    
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
+    private final AccountLockManager accountLockManager;
+    private final ShardedBalanceService shardedBalanceService;
+    private final AccountCache accountCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferMetrics transferMetrics;
+    private final Counter optimisticRetryCounter;
+    private final Counter optimisticExhaustedCounter;
+    
+    @Value("${payment.transfer.concurrency-mode:PESSIMISTIC}")
+    private ConcurrencyMode concurrencyMode;
+    
+    @Value("${payment.transfer.optimistic.max-attempts:5}")
+    private int optimisticMaxAttempts;
+    
+    @Value("${payment.transfer.optimistic.backoff-ms:5}")
+    private long optimisticBackoffMs;
+    
+    @Value("${payment.transfer.optimistic.max-backoff-ms:200}")
+    private long optimisticMaxBackoffMs;
     
     @Autowired
-    public TransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository) {
+    public TransactionService(TransactionRepository transactionRepository,
+                              AccountRepository accountRepository,
+                              AccountLockManager accountLockManager,
+                              ShardedBalanceService shardedBalanceService,
+                              AccountCache accountCache,
+                              TransactionTemplate transactionTemplate,
+                              TransferMetrics transferMetrics,
+                              MeterRegistry meterRegistry) {
         this.transactionRepository = transactionRepository;
         this.accountRepository = accountRepository;
+        this.accountLockManager = accountLockManager;
+        this.shardedBalanceService = shardedBalanceService;
+        this.accountCache = accountCache;
+        this.transactionTemplate = transactionTemplate;
+        this.transferMetrics = transferMetrics;
+        this.optimisticRetryCounter = Counter.builder("payment.transfer.optimistic.retries")
+                .description("Transferências repetidas após conflito de versão")
+                .register(meterRegistry);
+        this.optimisticExhaustedCounter = Counter.builder("payment.transfer.optimistic.exhausted")
+                .description("Transferências abandonadas após esgotar as tentativas")
+                .register(meterRegistry);
     }
     
-    @Transactional
     public TransactionDTO transferMoney(TransferDTO transferDTO) {
-        // Buscar contas de origem e destino
-        Account sourceAccount = accountRepository.findByAccountNumber(transferDTO.getSourceAccountNumber())
-                .orElseThrow(() -> new EntityNotFoundException("Conta de origem não encontrada"));
+        return transferMoney(transferDTO, transaction -> { });
+    }
+    
+    // onTransfer roda dentro da transação da transferência, depois que ela foi gravada;
+    // uma exceção lançada por ele desfaz a transferência
+    public TransactionDTO transferMoney(TransferDTO transferDTO, Consumer<TransactionDTO> onTransfer) {
+        TransferMetrics.Phases phases = transferMetrics.start();
+        try {
+            TransactionDTO transaction = executeTransfer(transferDTO, onTransfer, phases);
+            phases.completed();
+            return transaction;
+        } catch (RuntimeException e) {
+            phases.failed(e);
+            throw e;
+        }
+    }
+    
+    private TransactionDTO executeTransfer(TransferDTO transferDTO, Consumer<TransactionDTO> onTransfer,
+                                           TransferMetrics.Phases phases) {
+        if (concurrencyMode == ConcurrencyMode.OPTIMISTIC) {
+            return transferWithRetry(transferDTO, onTransfer, phases);
+        }
+        if (concurrencyMode == ConcurrencyMode.ATOMIC) {
+            return inTransaction(phases, () -> completed(executeAtomicTransfer(transferDTO), onTransfer));
+        }
+        
+        // Os locks em memória são adquiridos antes de abrir a transação e liberados
+        // somente após o commit, para que a próxima transferência já leia o saldo confirmado
+        return accountLockManager.withLocks(stripeLockedAccounts(transferDTO), () -> {
+            phases.locked();
+            return inTransaction(phases, () -> completed(executePessimisticTransfer(transferDTO), onTransfer));
+        });
+    }
+    
+    // Executa o corpo em uma transação marcando onde ele termina e onde o commit termina
+    private TransactionDTO inTransaction(TransferMetrics.Phases phases, Supplier<TransactionDTO> body) {
+        TransactionDTO transaction = transactionTemplate.execute(status -> {
+            phases.bodyStarted();
+            TransactionDTO result = body.get();
+            phases.bodyEnded();
+            return result;
+        });
+        phases.committed();
+        return transaction;
+    }
+    
+    private TransactionDTO completed(TransactionDTO transaction, Consumer<TransactionDTO> onTransfer) {
+        accountCache.invalidateOnCommit(List.of(transaction.getSourceAccountNumber(), transaction.getTargetAccountNumber()));
+        onTransfer.accept(transaction);
+        return transaction;
+    }
+    
+    // Créditos em contas particionadas não disputam o lock em memória da conta de destino
+    private List<String> stripeLockedAccounts(TransferDTO transferDTO) {
+        String sourceNumber = transferDTO.getSourceAccountNumber();
+        String targetNumber = transferDTO.getTargetAccountNumber();
+        if (!sourceNumber.equals(targetNumber) && shardedBalanceService.isKnownSharded(targetNumber)) {
+            return List.of(sourceNumber);
+        }
+        return List.of(sourceNumber, targetNumber);
+    }
+    
+    // Modo otimista: nenhuma linha fica bloqueada durante a transação; conflitos são
+    // detectados pela coluna de versão no commit e a transferência é repetida
+    private TransactionDTO transferWithRetry(TransferDTO transferDTO, Consumer<TransactionDTO> onTransfer,
+                                             TransferMetrics.Phases phases) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return inTransaction(phases, () -> completed(executeOptimisticTransfer(transferDTO), onTransfer));
+            } catch (ConcurrencyFailureException e) {
+                // Conflito de versão ou, em último caso, deadlock/timeout de lock no banco
+                if (attempt >= optimisticMaxAttempts) {
+                    optimisticExhaustedCounter.increment();
+                    throw new ConcurrencyConflictException(
+                            "Não foi possível concluir a transferência devido a operações concorrentes. Tente novamente.", e);
+                }
+                optimisticRetryCounter.increment();
+                backoff(attempt);
+            }
+        }
+    }
+    
+    // Espera exponencial com jitter completo, limitada a optimisticMaxBackoffMs
+    private void backoff(int attempt) {
+        long ceiling = Math.min(optimisticMaxBackoffMs, optimisticBackoffMs << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyConflictException("Transferência interrompida durante nova tentativa", e);
+        }
+    }
+    
+    private TransactionDTO executePessimisticTransfer(TransferDTO transferDTO) {
+        // Resolver IDs e particionamento das contas sem carregá-las
+        Map<String, AccountKey> keys = resolveAccounts(transferDTO);
+        AccountKey source = keys.get(transferDTO.getSourceAccountNumber());
+        AccountKey target = keys.get(transferDTO.getTargetAccountNumber());
+        shardedBalanceService.remember(target.accountNumber(), target.balanceShards());
+        
+        // Destino particionado: apenas a origem é bloqueada; o crédito vai para um bucket
+        if (creditsShard(source, target)) {
+            return applyShardedCredit(lockAccount(source.id()), target, transferDTO);
+        }
+        
+        // Bloquear as linhas sempre em ordem crescente de ID para evitar deadlock no banco
+        Account sourceAccount;
+        Account targetAccount;
+        if (source.id() <= target.id()) {
+            sourceAccount = lockAccount(source.id());
+            targetAccount = lockAccount(target.id());
+        } else {
+            targetAccount = lockAccount(target.id());
+            sourceAccount = lockAccount(source.id());
+        }
         
-        Account targetAccount = accountRepository.findByAccountNumber(transferDTO.getTargetAccountNumber())
-                .orElseThrow(() -> new EntityNotFoundException("Conta de destino não encontrada"));
+        return applyTransfer(sourceAccount, targetAccount, transferDTO);
+    }
+    
+    private TransactionDTO executeOptimisticTransfer(TransferDTO transferDTO) {
+        // Buscar contas sem lock; a versão é verificada no UPDATE. As contas são carregadas
+        // em ordem de ID para que os UPDATEs do flush bloqueiem as linhas na mesma ordem dos outros modos
+        Map<String, Account> accounts = accountRepository
+                .findAllByAccountNumberIn(List.of(transferDTO.getSourceAccountNumber(), transferDTO.getTargetAccountNumber()))
+                .stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+        Account sourceAccount = accounts.get(transferDTO.getSourceAccountNumber());
+        if (sourceAccount == null) {
+            throw new EntityNotFoundException("Conta de origem não encontrada");
+        }
+        Account targetAccount = accounts.get(transferDTO.getTargetAccountNumber());
+        if (targetAccount == null) {
+            throw new EntityNotFoundException("Conta de destino não encontrada");
+        }
+        
+        if (targetAccount.isSharded() && targetAccount != sourceAccount) {
+            return applyShardedCredit(sourceAccount, toKey(targetAccount), transferDTO);
+        }
+        return applyTransfer(sourceAccount, targetAccount, transferDTO);
+    }
+    
+    // Modo atômico: dois UPDATEs condicionais e um INSERT, sem carregar as entidades Account.
+    // A verificação de saldo é feita pelo próprio banco na cláusula WHERE do débito
+    private TransactionDTO executeAtomicTransfer(TransferDTO transferDTO) {
+        Map<String, AccountKey> keys = resolveAccounts(transferDTO);
+        AccountKey source = keys.get(transferDTO.getSourceAccountNumber());
+        AccountKey target = keys.get(transferDTO.getTargetAccountNumber());
+        
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal amount = transferDTO.getAmount();
+        boolean shardCredit = creditsShard(source, target);
+        
+        // Primeiro as linhas: os UPDATEs seguem a ordem crescente de ID, a mesma dos locks dos modos
+        // PESSIMISTIC e OPTIMISTIC, para evitar deadlock entre A→B e B→A mesmo com instâncias em modos
+        // diferentes; se o débito falhar depois do crédito, a exceção desfaz a transação inteira
+        Account toSweep;
+        if (source.id().equals(target.id())) {
+            // Mesma conta: uma linha só, e os buckets dela já vêm depois dela
+            debitOrFail(source, amount, now);
+            accountRepository.credit(target.id(), amount, now);
+            toSweep = null;
+        } else if (shardCredit || source.id() < target.id()) {
+            toSweep = debitOrLock(source, amount, now);
+            if (!shardCredit) {
+                accountRepository.credit(target.id(), amount, now);
+            }
+        } else {
+            accountRepository.credit(target.id(), amount, now);
+            toSweep = debitOrLock(source, amount, now);
+        }
+        
+        // Depois os buckets, em ordem crescente de ID da conta: consolidação da origem e crédito
+        // no bucket do destino nunca esperam por uma linha nem por buckets de uma conta menor
+        if (shardCredit && target.id() < source.id()) {
+            creditShard(source, target, amount, now);
+        }
+        if (toSweep != null) {
+            sweepAndDebit(toSweep, amount, now);
+        }
+        if (shardCredit && target.id() > source.id()) {
+            creditShard(source, target, amount, now);
+        }
+        
+        Transaction savedTransaction = transactionRepository.save(
+                newCompletedTransfer(accountRepository.getReferenceById(source.id()),
+                        accountRepository.getReferenceById(target.id()), transferDTO));
+        
+        // Montar o DTO com os números já conhecidos, sem inicializar os proxies das contas
+        return TransactionDTO.fromEntity(savedTransaction, source.accountNumber(), target.accountNumber());
+    }
+    
+    private void debitOrFail(AccountKey source, BigDecimal amount, LocalDateTime now) {
+        Account toSweep = debitOrLock(source, amount, now);
+        if (toSweep != null) {
+            sweepAndDebit(toSweep, amount, now);
+        }
+    }
+    
+    // Débito condicional na linha da origem. Sem saldo principal, uma conta particionada tem a linha
+    // bloqueada e é devolvida para consolidar os buckets depois (sweepAndDebit); as demais falham aqui
+    private Account debitOrLock(AccountKey source, BigDecimal amount, LocalDateTime now) {
+        if (accountRepository.debit(source.id(), amount, now) > 0) {
+            return null;
+        }
+        if (source.isSharded()) {
+            return lockAccount(source.id());
+        }
+        throw new InsufficientFundsException();
+    }
+    
+    // Consolida os buckets no saldo principal da conta já bloqueada e tenta o débito novamente
+    private void sweepAndDebit(Account lockedSource, BigDecimal amount, LocalDateTime now) {
+        shardedBalanceService.sweep(lockedSource);
+        accountRepository.flush();
+        if (accountRepository.debit(lockedSource.getId(), amount, now) == 0) {
+            throw new InsufficientFundsException();
+        }
+    }
+    
+    private TransactionDTO applyTransfer(Account sourceAccount, Account targetAccount, TransferDTO transferDTO) {
+        shardedBalanceService.ensureDebitable(sourceAccount, transferDTO.getAmount());
         
         // Verificar se há saldo suficiente
         if (sourceAccount.getBalance().compareTo(transferDTO.getAmount()) < 0) {
-            throw new IllegalStateException("Saldo insuficiente para realizar a transferência");
+            throw new InsufficientFundsException();
         }
         
         // Criar a transação
@@ -73,38 +345,175 @@ public class TransactionService {
         return TransactionDTO.fromEntity(savedTransaction);
     }
     
+    // Débito na conta de origem (já carregada) e crédito em um bucket da conta de destino.
+    // A consolidação dos buckets da origem e o crédito no bucket do destino seguem a ordem de ID das contas
+    private TransactionDTO applyShardedCredit(Account sourceAccount, AccountKey target,
+                                              TransferDTO transferDTO) {
+        BigDecimal amount = transferDTO.getAmount();
+        boolean creditFirst = target.id() < sourceAccount.getId();
+        if (creditFirst) {
+            creditShard(toKey(sourceAccount), target, amount, LocalDateTime.now());
+        }
+        shardedBalanceService.ensureDebitable(sourceAccount, amount);
+        
+        if (sourceAccount.getBalance().compareTo(amount) < 0) {
+            throw new InsufficientFundsException();
+        }
+        
+        sourceAccount.setBalance(sourceAccount.getBalance().subtract(amount));
+        accountRepository.save(sourceAccount);
+        if (!creditFirst) {
+            creditShard(toKey(sourceAccount), target, amount, LocalDateTime.now());
+        }
+        
+        Transaction savedTransaction = transactionRepository.save(
+                newCompletedTransfer(sourceAccount, accountRepository.getReferenceById(target.id()), transferDTO));
+        
+        return TransactionDTO.fromEntity(savedTransaction, sourceAccount.getAccountNumber(), target.accountNumber());
+    }
+    
+    private void creditShard(AccountKey source, AccountKey target,
+                             BigDecimal amount, LocalDateTime now) {
+        // Se os buckets foram reconfigurados depois da leitura, credita o saldo principal
+        if (!shardedBalanceService.credit(target.id(), target.balanceShards(), source.accountNumber(), amount)) {
+            accountRepository.credit(target.id(), amount, now);
+        }
+    }
+    
+    private Transaction newCompletedTransfer(Account sourceAccount, Account targetAccount, TransferDTO transferDTO) {
+        Transaction transaction = new Transaction();
+        transaction.setSourceAccount(sourceAccount);
+        transaction.setTargetAccount(targetAccount);
+        transaction.setAmount(transferDTO.getAmount());
+        transaction.setDescription(transferDTO.getDescription());
+        transaction.setType(Transaction.TransactionType.TRANSFER);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        return transaction;
+    }
+    
+    private boolean creditsShard(AccountKey source, AccountKey target) {
+        return target.isSharded() && !target.id().equals(source.id());
+    }
+    
+    // Resolve ID e particionamento das duas contas em uma única consulta
+    private Map<String, AccountKey> resolveAccounts(TransferDTO transferDTO) {
+        Map<String, AccountKey> keys = accountRepository
+                .findKeysByAccountNumberIn(List.of(transferDTO.getSourceAccountNumber(), transferDTO.getTargetAccountNumber()))
+                .stream()
+                .collect(Collectors.toMap(AccountKey::accountNumber, Function.identity()));
+        
+        if (!keys.containsKey(transferDTO.getSourceAccountNumber())) {
+            throw new EntityNotFoundException("Conta de origem não encontrada");
+        }
+        if (!keys.containsKey(transferDTO.getTargetAccountNumber())) {
+            throw new EntityNotFoundException("Conta de destino não encontrada");
+        }
+        return keys;
+    }
+    
+    private AccountKey toKey(Account account) {
+        return new AccountKey(account.getId(), account.getAccountNumber(), account.getBalanceShards());
+    }
+    
+    private Account lockAccount(Long id) {
+        return accountRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada com ID: " + id));
+    }
+    
+    @Transactional(readOnly = true)
     public TransactionDTO getTransactionById(Long id) {
-        Transaction transaction = transactionRepository.findById(id)
+        return transactionRepository.findDtoById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Transação não encontrada com ID: " + id));
-        
-        return TransactionDTO.fromEntity(transaction);
     }
     
+    @Transactional(readOnly = true)
     public List<TransactionDTO> getAccountTransactions(String accountNumber) {
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"));
         
-        List<Transaction> transactions = transactionRepository.findAllByAccount(account);
-        
-        return transactions.stream()
-                .map(TransactionDTO::fromEntity)
-                .collect(Collectors.toList());
+        return transactionRepository.findDtosByAccountId(account.getId());
     }
     
+    @Transactional(readOnly = true)
     public Page<TransactionDTO> getAccountTransactionsPaged(String accountNumber, Pageable pageable) {
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"));
         
-        Page<Transaction> transactionsPage = transactionRepository.findAllByAccount(account, pageable);
+        return transactionRepository.findDtosByAccountId(account.getId(), pageable);
+    }
+    
+    // Histórico por cursor: custo constante em qualquer profundidade, sem OFFSET e sem COUNT
+    @Transactional(readOnly = true)
+    public TransactionCursorPage getAccountTransactionsByCursor(String accountNumber, String cursor, int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("O tamanho da página deve estar entre 1 e " + MAX_CURSOR_PAGE_SIZE);
+        }
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"));
+        
+        // Uma linha a mais só para saber se existe próxima página
+        List<TransactionPosition> positions;
+        if (cursor == null || cursor.isBlank()) {
+            positions = transactionRepository.findLatestPositionsByAccount(account.getId(), size + 1);
+        } else {
+            CursorPosition position = decodeCursor(cursor);
+            positions = transactionRepository.findPositionsByAccountBefore(account.getId(), position.transactionDate(),
+                    position.id(), size + 1);
+        }
+        // Intercala os dois ramos (enviadas e recebidas); transferência da conta para ela mesma vem nos dois
+        List<Long> ids = positions.stream()
+                .sorted(Comparator.comparing(TransactionPosition::getTransactionDate)
+                        .thenComparing(TransactionPosition::getId)
+                        .reversed())
+                .map(TransactionPosition::getId)
+                .distinct()
+                .limit(size + 1L)
+                .toList();
+        boolean hasMore = ids.size() > size;
+        List<Long> pageIds = hasMore ? ids.subList(0, size) : ids;
+        if (pageIds.isEmpty()) {
+            return new TransactionCursorPage(List.of(), 0, null);
+        }
+        
+        Map<Long, TransactionDTO> byId = transactionRepository.findDtosByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(TransactionDTO::getId, Function.identity()));
+        List<TransactionDTO> content = pageIds.stream()
+                .map(byId::get)
+                .toList();
         
-        return transactionsPage.map(TransactionDTO::fromEntity);
+        TransactionDTO last = content.get(content.size() - 1);
+        String nextCursor = hasMore ? encodeCursor(last.getTransactionDate(), last.getId()) : null;
+        return new TransactionCursorPage(content, content.size(), nextCursor);
+    }
+    
+    private record CursorPosition(LocalDateTime transactionDate, Long id) {
+    }
+    
+    // O cursor é a posição (data, id) da última linha entregue; opaco para o cliente
+    static String encodeCursor(LocalDateTime transactionDate, Long id) {
+        String position = transactionDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static CursorPosition decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            return new CursorPosition(LocalDateTime.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
     }
     
+    @Transactional(readOnly = true)
     public List<TransactionDTO> getTransactionsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Transaction> transactions = transactionRepository.findByTransactionDateBetween(startDate, endDate);
-        
-        return transactions.stream()
-                .map(TransactionDTO::fromEntity)
-                .collect(Collectors.toList());
+        return transactionRepository.findDtosByTransactionDateBetween(startDate, endDate);
+    }
+    
+    public enum ConcurrencyMode {
+        PESSIMISTIC,
+        OPTIMISTIC,
+        ATOMIC
     }
 }
\ No newline at end of file
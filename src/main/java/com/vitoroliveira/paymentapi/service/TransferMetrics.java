@@ -0,0 +1,149 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.exception.ConcurrencyConflictException;
+import com.vitoroliveira.paymentapi.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Métricas de TransactionService.transferMoney:
+//   payment.transfer.latency             duração total da transferência, sucesso ou falha
+//   payment.transfer.phase{phase}        lock_wait: espera pelos locks em memória (modo PESSIMISTIC);
+//                                        db: corpo da transação (consultas, locks de linha, UPDATEs, INSERT);
+//                                        commit: flush e COMMIT depois do corpo
+//   payment.transfer.outcomes{outcome}   completed, insufficient_funds, account_not_found, conflict, failed
+//                                        e rolled_back (item desfeito em um lote ALL_OR_NOTHING)
+// Os lotes (BatchTransferService) e a liquidação assíncrona (AsyncTransferService) contam só os
+// resultados, um por item: latência e fases medem a transferência individual.
+// Os histogramas e percentis vêm do MetricsConfig. Os meters são resolvidos uma vez aqui; por
+// transferência ficam só leituras de System.nanoTime e os registros
+@Component
+public class TransferMetrics {
+    
+    private final Timer latency;
+    private final Timer lockWait;
+    private final Timer database;
+    private final Timer commit;
+    private final Counter completed;
+    private final Counter insufficientFunds;
+    private final Counter accountNotFound;
+    private final Counter conflict;
+    private final Counter failed;
+    private final Counter rolledBack;
+    
+    @Autowired
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.latency = Timer.builder("payment.transfer.latency")
+                .description("Duração total de cada transferência")
+                .register(meterRegistry);
+        this.lockWait = phase(meterRegistry, "lock_wait");
+        this.database = phase(meterRegistry, "db");
+        this.commit = phase(meterRegistry, "commit");
+        this.completed = outcome(meterRegistry, "completed");
+        this.insufficientFunds = outcome(meterRegistry, "insufficient_funds");
+        this.accountNotFound = outcome(meterRegistry, "account_not_found");
+        this.conflict = outcome(meterRegistry, "conflict");
+        this.failed = outcome(meterRegistry, "failed");
+        this.rolledBack = outcome(meterRegistry, "rolled_back");
+    }
+    
+    public Phases start() {
+        return new Phases(System.nanoTime());
+    }
+    
+    // Item de lote aplicado; error é o retorno de BatchTransferService.applyInMemory
+    void settled(String error) {
+        if (error == null) {
+            completed.increment();
+        } else if (error.equals(BatchTransferService.INSUFFICIENT_FUNDS)) {
+            insufficientFunds.increment();
+        } else if (error.equals(BatchTransferService.SOURCE_NOT_FOUND)
+                || error.equals(BatchTransferService.TARGET_NOT_FOUND)) {
+            accountNotFound.increment();
+        } else {
+            failed.increment();
+        }
+    }
+    
+    void rolledBack(int items) {
+        rolledBack.increment(items);
+    }
+    
+    // Itens de um lote cuja transação inteira falhou
+    void failed(RuntimeException e, int items) {
+        outcomeOf(e).increment(items);
+    }
+    
+    private static Timer phase(MeterRegistry meterRegistry, String phase) {
+        return Timer.builder("payment.transfer.phase")
+                .description("Duração de cada fase da transferência")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+    
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payment.transfer.outcomes")
+                .description("Transferências por resultado")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+    
+    private Counter outcomeOf(RuntimeException e) {
+        if (e instanceof InsufficientFundsException) {
+            return insufficientFunds;
+        }
+        if (e instanceof EntityNotFoundException) {
+            return accountNotFound;
+        }
+        if (e instanceof ConcurrencyConflictException || e instanceof ConcurrencyFailureException) {
+            return conflict;
+        }
+        return failed;
+    }
+    
+    // Marcações de uma transferência, feitas pela thread que a executa. No modo otimista cada
+    // tentativa soma ao db e ao commit
+    public final class Phases {
+        
+        private final long startedAt;
+        private long bodyStartedAt;
+        private long bodyEndedAt;
+        
+        private Phases(long startedAt) {
+            this.startedAt = startedAt;
+        }
+        
+        void locked() {
+            lockWait.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+        
+        void bodyStarted() {
+            bodyStartedAt = System.nanoTime();
+        }
+        
+        void bodyEnded() {
+            bodyEndedAt = System.nanoTime();
+            database.record(bodyEndedAt - bodyStartedAt, TimeUnit.NANOSECONDS);
+        }
+        
+        void committed() {
+            commit.record(System.nanoTime() - bodyEndedAt, TimeUnit.NANOSECONDS);
+        }
+        
+        void completed() {
+            latency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            TransferMetrics.this.completed.increment();
+        }
+        
+        void failed(RuntimeException e) {
+            latency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            outcomeOf(e).increment();
+        }
+    }
+}
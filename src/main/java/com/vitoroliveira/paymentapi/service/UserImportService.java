@@ -0,0 +1,518 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.dto.ImportRowError;
+import com.vitoroliveira.paymentapi.dto.UserImportJobDTO;
+import com.vitoroliveira.paymentapi.dto.UserRegistrationDTO;
+import com.vitoroliveira.paymentapi.exception.ImportQueueFullException;
+import com.vitoroliveira.paymentapi.exception.ImportTooLargeException;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cadastro em massa de usuários (cada um com uma conta) a partir de um CSV.
+// O upload é copiado para um arquivo temporário e processado em segundo plano, um job por vez,
+// em lotes de chunk-size linhas: validação com as mesmas regras do cadastro, duplicados do lote
+// descartados em memória e os já cadastrados em uma consulta por lote (os lotes anteriores já
+// foram gravados, então isso cobre também repetições entre lotes), hash das senhas em um pool
+// fixo de threads e INSERTs em batch de JDBC. A memória usada depende do tamanho do lote, não do arquivo.
+//
+// Limites: arquivos acima de max-file-size-mb são recusados (413) sem terminar a cópia, no máximo
+// queue-capacity jobs aguardam (acima disso 429) e jobs encerrados somem após retention-minutes.
+@Service
+public class UserImportService implements DisposableBean {
+    
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+    
+    static final List<String> REQUIRED_COLUMNS = List.of("name", "email", "cpf", "password");
+    static final String ACCOUNT_TYPE_COLUMN = "accounttype";
+    private static final int MAX_FIELD_LENGTH = 4096;
+    
+    private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+    private final long retentionNanos;
+    private final long maxFileSizeBytes;
+    
+    private final ThreadPoolExecutor jobExecutor;
+    private final ExecutorService hashExecutor;
+    private final Cache<String, ImportJob> jobs;
+    
+    @Autowired
+    public UserImportService(UserRepository userRepository,
+                             AccountRepository accountRepository,
+                             AccountNumberGenerator accountNumberGenerator,
+                             PasswordEncoder passwordEncoder,
+                             TransactionTemplate transactionTemplate,
+                             Validator validator,
+                             @Value("${payment.import.chunk-size:1000}") int chunkSize,
+                             @Value("${payment.import.hash-threads:0}") int hashThreads,
+                             @Value("${payment.import.max-reported-errors:1000}") int maxReportedErrors,
+                             @Value("${payment.import.retention-minutes:60}") long retentionMinutes,
+                             @Value("${payment.import.queue-capacity:10}") int queueCapacity,
+                             @Value("${payment.import.max-file-size-mb:50}") long maxFileSizeMb) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("payment.import.chunk-size deve ser maior que zero");
+        }
+        this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
+        this.accountNumberGenerator = accountNumberGenerator;
+        this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.retentionNanos = TimeUnit.MINUTES.toNanos(retentionMinutes);
+        this.maxFileSizeBytes = maxFileSizeMb * 1024 * 1024;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new RetainedAfterFinish())
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+        
+        // O hash é CPU pura: threads de plataforma, uma por núcleo por padrão
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        this.jobExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), daemonThreads("user-import-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.hashExecutor = Executors.newFixedThreadPool(threads, daemonThreads("user-import-hash-"));
+    }
+    
+    // Copia o CSV para disco, confere o cabeçalho e enfileira o job; as linhas são lidas depois
+    public UserImportJobDTO startImport(InputStream csv) {
+        // Recusa antes de gravar o arquivo; a submissão abaixo continua sendo a checagem definitiva
+        if (jobExecutor.getQueue().remainingCapacity() == 0) {
+            throw queueFull();
+        }
+        Path file;
+        try {
+            file = Files.createTempFile("user-import-", ".csv");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            copyWithLimit(csv, file);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                columns(new CsvRecordReader(reader, MAX_FIELD_LENGTH).next());
+            }
+            ImportJob job = new ImportJob(UUID.randomUUID().toString(), Files.size(file));
+            jobs.put(job.id, job);
+            try {
+                jobExecutor.execute(() -> run(job, file));
+            } catch (RejectedExecutionException e) {
+                jobs.invalidate(job.id);
+                throw queueFull();
+            }
+            return job.toDTO();
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+    
+    public UserImportJobDTO getJob(String id) {
+        ImportJob job = jobs.getIfPresent(id);
+        if (job == null) {
+            throw new EntityNotFoundException("Importação não encontrada: " + id);
+        }
+        return job.toDTO();
+    }
+    
+    private void copyWithLimit(InputStream csv, Path file) throws IOException {
+        byte[] buffer = new byte[8192];
+        long copied = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = csv.read(buffer)) != -1) {
+                copied += read;
+                if (copied > maxFileSizeBytes) {
+                    throw new ImportTooLargeException("O arquivo passa do limite de "
+                            + maxFileSizeBytes / (1024 * 1024) + " MB por importação");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+    
+    private static ImportQueueFullException queueFull() {
+        return new ImportQueueFullException("Muitas importações na fila. Tente novamente mais tarde.");
+    }
+    
+    private void run(ImportJob job, Path file) {
+        job.status = JobStatus.RUNNING;
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(file));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            CsvRecordReader records = new CsvRecordReader(reader, MAX_FIELD_LENGTH);
+            Map<String, Integer> columns = columns(records.next());
+            List<ImportRow> chunk = new ArrayList<>(chunkSize);
+            List<String> record;
+            while ((record = records.next()) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                job.rowsRead.incrementAndGet();
+                ImportRow row = parse(records.recordLine(), record, columns, job);
+                if (row != null) {
+                    chunk.add(row);
+                }
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, job);
+                    chunk.clear();
+                }
+                job.processedBytes = in.count;
+            }
+            importChunk(chunk, job);
+            job.processedBytes = job.totalBytes;
+            job.finish(JobStatus.COMPLETED, null);
+            log.info("Importação {} concluída: {} linhas, {} usuários criados, {} rejeitadas",
+                    job.id, job.rowsRead.get(), job.usersCreated.get(), job.rowsRejected.get());
+        } catch (Exception e) {
+            log.warn("Importação {} interrompida na linha {}", job.id, job.rowsRead.get() + 1, e);
+            job.finish(JobStatus.FAILED, e.getMessage());
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+    
+    // Cabeçalho: nome da coluna (sem diferenciar maiúsculas) -> posição
+    private static Map<String, Integer> columns(List<String> header) {
+        if (header == null) {
+            throw new IllegalArgumentException("Arquivo CSV vazio");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+            columns.putIfAbsent(name, i);
+        }
+        if (!columns.keySet().containsAll(REQUIRED_COLUMNS)) {
+            throw new IllegalArgumentException("O cabeçalho do CSV deve conter as colunas name, email, cpf e password "
+                    + "(accountType é opcional)");
+        }
+        return columns;
+    }
+    
+    private ImportRow parse(long line, List<String> record, Map<String, Integer> columns, ImportJob job) {
+        UserRegistrationDTO user = new UserRegistrationDTO(field(record, columns, "name"), field(record, columns, "cpf"),
+                field(record, columns, "email"), field(record, columns, "password"));
+        // Mensagem determinística quando há mais de uma violação: a do primeiro campo em ordem alfabética
+        String violation = validator.validate(user).stream()
+                .min(Comparator.comparing((ConstraintViolation<UserRegistrationDTO> v) -> v.getPropertyPath().toString()))
+                .map(ConstraintViolation::getMessage)
+                .orElse(null);
+        if (violation != null) {
+            job.reject(line, violation);
+            return null;
+        }
+        
+        String accountType = field(record, columns, ACCOUNT_TYPE_COLUMN);
+        Account.AccountType type;
+        try {
+            type = accountType == null || accountType.isEmpty()
+                    ? Account.AccountType.CHECKING
+                    : Account.AccountType.valueOf(accountType.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            job.reject(line, "Tipo de conta inválido: " + accountType);
+            return null;
+        }
+        return new ImportRow(line, user, type);
+    }
+    
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        // A senha é usada como veio; os demais campos sem espaços nas pontas
+        String value = record.get(index);
+        return column.equals("password") ? value : value.trim();
+    }
+    
+    private void importChunk(List<ImportRow> chunk, ImportJob job) throws InterruptedException, ExecutionException {
+        List<ImportRow> unique = removeDuplicatesInChunk(chunk, job);
+        if (unique.isEmpty()) {
+            return;
+        }
+        
+        // Fora da transação: nenhuma conexão fica presa enquanto as senhas são processadas
+        List<Future<String>> hashes = new ArrayList<>(unique.size());
+        for (ImportRow row : unique) {
+            hashes.add(hashExecutor.submit(() -> passwordEncoder.encode(row.user().getPassword())));
+        }
+        List<String> encoded = new ArrayList<>(unique.size());
+        for (Future<String> hash : hashes) {
+            encoded.add(hash.get());
+        }
+        
+        // Um cadastro concorrente pode usar o mesmo email/CPF entre a checagem e o INSERT:
+        // o lote é refeito uma vez com os existentes consultados de novo
+        for (int attempt = 1; ; attempt++) {
+            List<ImportRow> rows = new ArrayList<>(unique);
+            List<String> passwords = new ArrayList<>(encoded);
+            removeExisting(rows, passwords, job);
+            if (rows.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(rows, passwords));
+                job.usersCreated.addAndGet(rows.size());
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= 2) {
+                    insertOneByOne(rows, passwords, job);
+                    return;
+                }
+            }
+        }
+    }
+    
+    // Conflito de novo no lote refeito: cada linha na sua transação, para rejeitar só as que conflitam
+    private void insertOneByOne(List<ImportRow> rows, List<String> passwords, ImportJob job) {
+        for (int i = 0; i < rows.size(); i++) {
+            List<ImportRow> row = List.of(rows.get(i));
+            List<String> password = List.of(passwords.get(i));
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(row, password));
+                job.usersCreated.incrementAndGet();
+            } catch (DataIntegrityViolationException e) {
+                job.reject(rows.get(i).line(), "Não foi possível gravar o usuário: email, CPF ou conta em conflito");
+            }
+        }
+    }
+    
+    private List<ImportRow> removeDuplicatesInChunk(List<ImportRow> chunk, ImportJob job) {
+        Set<String> emails = new HashSet<>();
+        Set<String> cpfs = new HashSet<>();
+        List<ImportRow> unique = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (!emails.add(row.user().getEmail())) {
+                job.reject(row.line(), "Email repetido no arquivo");
+            } else if (!cpfs.add(row.user().getCpf())) {
+                job.reject(row.line(), "CPF repetido no arquivo");
+            } else {
+                unique.add(row);
+            }
+        }
+        return unique;
+    }
+    
+    // Remove (das duas listas, na mesma posição) as linhas com email ou CPF já cadastrados
+    private void removeExisting(List<ImportRow> rows, List<String> passwords, ImportJob job) {
+        Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(
+                rows.stream().map(row -> row.user().getEmail()).toList()));
+        Set<String> existingCpfs = new HashSet<>(userRepository.findExistingCpfs(
+                rows.stream().map(row -> row.user().getCpf()).toList()));
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            ImportRow row = rows.get(i);
+            String error = existingEmails.contains(row.user().getEmail()) ? "Email já está em uso"
+                    : existingCpfs.contains(row.user().getCpf()) ? "CPF já está em uso"
+                    : null;
+            if (error != null) {
+                job.reject(row.line(), error);
+                rows.remove(i);
+                passwords.remove(i);
+            }
+        }
+    }
+    
+    // Ids do gerador hi/lo: com hibernate.jdbc.batch_size os INSERTs saem em batch
+    private void insert(List<ImportRow> rows, List<String> passwords) {
+        List<User> users = new ArrayList<>(rows.size());
+        List<Account> accounts = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            UserRegistrationDTO registration = rows.get(i).user();
+            User user = new User();
+            user.setName(registration.getName());
+            user.setEmail(registration.getEmail());
+            user.setCpf(registration.getCpf());
+            user.setPassword(passwords.get(i));
+            users.add(user);
+            
+            Account account = new Account();
+            account.setUser(user);
+            account.setType(rows.get(i).accountType());
+            account.setAccountNumber(accountNumberGenerator.next());
+            account.setBalance(BigDecimal.ZERO);
+            accounts.add(account);
+        }
+        userRepository.saveAll(users);
+        accountRepository.saveAll(accounts);
+    }
+    
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover o arquivo temporário {}", file, e);
+        }
+    }
+    
+    private static CustomizableThreadFactory daemonThreads(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+    
+    @Override
+    public void destroy() {
+        jobExecutor.shutdownNow();
+        hashExecutor.shutdownNow();
+    }
+    
+    private record ImportRow(long line, UserRegistrationDTO user, Account.AccountType accountType) {
+    }
+    
+    private enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+    
+    // Estado de um job: escrito só pela thread do job, lido pelas consultas de status
+    private final class ImportJob {
+        
+        private final String id;
+        private final long totalBytes;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong usersCreated = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private final List<ImportRowError> errors = new ArrayList<>();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile long processedBytes;
+        private volatile String failureReason;
+        private volatile LocalDateTime finishedAt;
+        
+        private ImportJob(String id, long totalBytes) {
+            this.id = id;
+            this.totalBytes = totalBytes;
+        }
+        
+        private void reject(long line, String message) {
+            rowsRejected.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxReportedErrors) {
+                    errors.add(new ImportRowError(line, message));
+                }
+            }
+        }
+        
+        private void finish(JobStatus finalStatus, String reason) {
+            failureReason = reason;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+            // Regrava para o cache recalcular a expiração a partir de agora
+            jobs.put(id, this);
+        }
+        
+        private UserImportJobDTO toDTO() {
+            List<ImportRowError> reported;
+            synchronized (errors) {
+                reported = new ArrayList<>(errors);
+            }
+            long rejected = rowsRejected.get();
+            return new UserImportJobDTO(id, status.name(), totalBytes, processedBytes, rowsRead.get(),
+                    usersCreated.get(), rejected, reported, rejected > reported.size(), failureReason,
+                    createdAt, finishedAt);
+        }
+    }
+    
+    // Jobs na fila ou rodando não expiram; encerrados vivem retention-minutes a partir do fim
+    private final class RetainedAfterFinish implements Expiry<String, ImportJob> {
+        
+        @Override
+        public long expireAfterCreate(String key, ImportJob job, long currentTime) {
+            return job.finishedAt == null ? Long.MAX_VALUE : retentionNanos;
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, ImportJob job, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, job, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(String key, ImportJob job, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+    
+    // Bytes já consumidos do arquivo, para o progresso
+    private static final class CountingInputStream extends FilterInputStream {
+        
+        private volatile long count;
+        
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -5,10 +5,13 @@ import com.vitoroliveira.paymentapi.dto.UserRegistrationDTO;
 import com.vitoroliveira.paymentapi.model.User;
 import com.vitoroliveira.paymentapi.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
 
 @Service
 public class UserService {
@@ -22,18 +25,10 @@ public class UserService {
         this.passwordEncoder = passwordEncoder;
     }
     
-    @Transactional
+    // Sem consulta prévia por email/CPF: o INSERT é a única ida ao banco e as constraints únicas decidem,
+    // inclusive entre cadastros simultâneos. Sem transação externa, o save confirma na hora e a violação
+    // chega aqui já traduzida pelo Spring
     public UserDTO registerUser(UserRegistrationDTO registrationDTO) {
-        // Verificar se o e-mail já está em uso
-        if (userRepository.existsByEmail(registrationDTO.getEmail())) {
-            throw new IllegalStateException("Email já está em uso");
-        }
-        
-        // Verificar se o CPF já está em uso
-        if (userRepository.existsByCpf(registrationDTO.getCpf())) {
-            throw new IllegalStateException("CPF já está em uso");
-        }
-        
         // Criar novo usuário
         User user = new User();
         user.setName(registrationDTO.getName());
@@ -43,7 +38,12 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(registrationDTO.getPassword()));
         
         // Salvar o usuário
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateField(e, registrationDTO);
+        }
         
         // Retornar DTO do usuário
         return convertToDTO(savedUser);
@@ -63,6 +63,34 @@ public class UserService {
         return convertToDTO(user);
     }
     
+    // Traduz a violação pelo nome da constraint. Se o nome não vier (driver ou constraint criada antes
+    // de elas terem nome fixo), consulta os dois campos; esse caminho só é percorrido quando o cadastro falha
+    private RuntimeException duplicateField(DataIntegrityViolationException e, UserRegistrationDTO registrationDTO) {
+        String constraint = violatedConstraint(e);
+        if (constraint.contains(User.EMAIL_CONSTRAINT)) {
+            return new IllegalStateException("Email já está em uso");
+        }
+        if (constraint.contains(User.CPF_CONSTRAINT)) {
+            return new IllegalStateException("CPF já está em uso");
+        }
+        if (userRepository.existsByEmail(registrationDTO.getEmail())) {
+            return new IllegalStateException("Email já está em uso");
+        }
+        if (userRepository.existsByCpf(registrationDTO.getCpf())) {
+            return new IllegalStateException("CPF já está em uso");
+        }
+        return e;
+    }
+    
+    private static String violatedConstraint(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT);
+            }
+        }
+        return "";
+    }
+    
     private UserDTO convertToDTO(User user) {
         UserDTO dto = new UserDTO();
         dto.setId(user.getId());
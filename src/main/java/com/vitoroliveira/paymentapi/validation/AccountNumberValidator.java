@@ -0,0 +1,14 @@
+package com.vitoroliveira.paymentapi.validation;
+
+import com.vitoroliveira.paymentapi.model.AccountNumbers;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+// Rejeita números digitados errado antes de qualquer consulta ao banco
+public class AccountNumberValidator implements ConstraintValidator<ValidAccountNumber, String> {
+    
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || AccountNumbers.isValid(value);
+    }
+}
@@ -0,0 +1,23 @@
+package com.vitoroliveira.paymentapi.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Número de conta com formato e dígito verificador corretos (AccountNumbers.isValid).
+// Nulo é aceito; campos obrigatórios combinam com @NotBlank
+@Constraint(validatedBy = AccountNumberValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ValidAccountNumber {
+    
+    String message() default "Número de conta inválido";
+    
+    Class<?>[] groups() default {};
+    
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,20 @@
+package com.vitoroliveira.paymentapi;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+import java.sql.SQLException;
+
+// O H2 sinaliza timeout de lock de linha com JdbcSQLTimeoutException, que o Hikari trata como conexão
+// quebrada: o rollback seguinte falha e a exceção de rollback esconde a falha de lock, que deixa de
+// ser reconhecida como transitória. No MySQL o timeout de lock (erro 1205) é um rollback de transação
+// e a conexão continua válida; esta regra reproduz isso nos testes.
+// Registrado em spring.datasource.hikari.exception-override-class-name
+public class H2LockTimeoutOverride implements SQLExceptionOverride {
+
+    private static final int LOCK_TIMEOUT_1 = 50200;
+
+    @java.lang.Override
+    public Override adjudicate(SQLException e) {
+        return e.getErrorCode() == LOCK_TIMEOUT_1 ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+    }
+}
@@ -0,0 +1,65 @@
+package com.vitoroliveira.paymentapi;
+
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+// Usuário e contas dos testes de integração, gravados direto pelos repositórios (sem cadastro,
+// hash de senha ou numeração de contas), e a limpeza correspondente. Entra no contexto pelo
+// component scan, então basta um @Autowired nos testes com @SpringBootTest
+@Component
+public class TestFixtures {
+
+    // Nenhum desses testes faz login: a senha só precisa preencher a coluna
+    private static final String PASSWORD = "senha-irrelevante";
+
+    private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TestFixtures(UserRepository userRepository, AccountRepository accountRepository, JdbcTemplate jdbcTemplate) {
+        this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public User createUser(String name, String email, String cpf) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        user.setCpf(cpf);
+        user.setPassword(PASSWORD);
+        return userRepository.save(user);
+    }
+
+    public Account createAccount(User user, String accountNumber) {
+        return createAccount(user, accountNumber, BigDecimal.ZERO);
+    }
+
+    public Account createAccount(User user, String accountNumber, BigDecimal balance) {
+        Account account = new Account();
+        account.setUser(user);
+        account.setType(Account.AccountType.CHECKING);
+        account.setAccountNumber(accountNumber);
+        account.setBalance(balance);
+        return accountRepository.save(account);
+    }
+
+    // As tabelas informadas (na ordem dada) e as transações saem por DELETE direto, sem carregar
+    // as linhas; contas e usuários pelos repositórios
+    public void deleteAll(String... dependentTables) {
+        for (String table : dependentTables) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        jdbcTemplate.update("DELETE FROM transactions");
+        accountRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+}
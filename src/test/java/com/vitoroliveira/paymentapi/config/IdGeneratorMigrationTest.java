@@ -0,0 +1,129 @@
+package com.vitoroliveira.paymentapi.config;
+
+import com.vitoroliveira.paymentapi.PaymentApiApplication;
+import com.vitoroliveira.paymentapi.model.HiLoId;
+import com.vitoroliveira.paymentapi.model.IdGenerators;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class IdGeneratorMigrationTest {
+
+    private static final long LEGACY_ID = 1_000_000L;
+
+    @Autowired
+    private IdGeneratorMigration migration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void seedsGeneratorPastExistingIdsAndNeverMovesItBack() {
+        insertLegacyUser();
+
+        migration.seed("users", "users");
+        long seeded = nextValue("users");
+        assertThat(seeded).isEqualTo(LEGACY_ID + 1);
+
+        // Novo bloco reservado depois do id legado
+        jdbcTemplate.update("UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = ? WHERE "
+                + IdGenerators.SEGMENT_COLUMN + " = 'users'", seeded + 500);
+        migration.seed("users", "users");
+        assertThat(nextValue("users")).isEqualTo(seeded + 500);
+    }
+
+    @Test
+    void createsMissingSegment() {
+        insertLegacyUser();
+        jdbcTemplate.update("DELETE FROM " + IdGenerators.TABLE + " WHERE " + IdGenerators.SEGMENT_COLUMN + " = 'users'");
+
+        migration.seed("users", "users");
+
+        assertThat(nextValue("users")).isEqualTo(LEGACY_ID + 1);
+    }
+
+    @Test
+    void segmentsComeFromTheEntityMapping() {
+        // Caminho independente do gerador: a anotação no id e o @Table de cada entidade
+        Map<String, String> annotated = new HashMap<>();
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            for (Field field : type.getDeclaredFields()) {
+                HiLoId hiLoId = field.getAnnotation(HiLoId.class);
+                if (hiLoId != null) {
+                    annotated.put(hiLoId.value(), type.getAnnotation(Table.class).name());
+                }
+            }
+        }
+
+        assertThat(annotated).isNotEmpty();
+        assertThat(migration.segments()).isEqualTo(annotated);
+    }
+
+    // Com o cache de contextos do Spring há vários contextos vivos; fechar um deles não pode
+    // deixar os outros sem alocador
+    @Test
+    void idsKeepWorkingAfterAnotherContextCloses() {
+        // Argumento de linha de comando: precisa prevalecer sobre o application.properties dos testes
+        ConfigurableApplicationContext other = new SpringApplicationBuilder(PaymentApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:other_context;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try {
+            assertThat(other.getBean(UserRepository.class).save(user("outro@teste.com", "99988877766")).getId()).isNotNull();
+        } finally {
+            other.close();
+        }
+
+        assertThat(userRepository.save(user("este@teste.com", "55544433322")).getId()).isNotNull();
+    }
+
+    private static User user(String email, String cpf) {
+        User user = new User();
+        user.setName("Contexto");
+        user.setEmail(email);
+        user.setCpf(cpf);
+        user.setPassword("senha-irrelevante");
+        return user;
+    }
+
+    // Linha criada pelo AUTO_INCREMENT antes da migração
+    private void insertLegacyUser() {
+        jdbcTemplate.update("INSERT INTO users (id, name, email, cpf, password, created_at, updated_at) "
+                + "VALUES (?, 'Legado', 'legado@teste.com', '00011122233', 'x', ?, ?)",
+                LEGACY_ID, LocalDateTime.now(), LocalDateTime.now());
+    }
+
+    private long nextValue(String segment) {
+        return jdbcTemplate.queryForObject("SELECT " + IdGenerators.VALUE_COLUMN + " FROM " + IdGenerators.TABLE
+                + " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ?", Long.class, segment);
+    }
+}
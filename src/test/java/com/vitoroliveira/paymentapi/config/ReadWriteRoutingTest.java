@@ -0,0 +1,137 @@
+package com.vitoroliveira.paymentapi.config;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.service.AccountService;
+import com.vitoroliveira.paymentapi.service.TransactionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Roteamento leitura/escrita com dois pools locais. Primário e "réplica" apontam para o mesmo H2
+// (réplica sem atraso), então o destino de cada conexão é conferido pelos contadores do roteamento
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingTest.URL,
+        "payment.datasource.replica.url=" + ReadWriteRoutingTest.URL,
+        "payment.datasource.replica.pin-window-ms=" + ReadWriteRoutingTest.PIN_WINDOW_MS
+})
+class ReadWriteRoutingTest {
+
+    static final String URL = "jdbc:h2:mem:payment_routing;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0";
+    static final long PIN_WINDOW_MS = 500;
+
+    private static final String SOURCE = "7300000001";
+    private static final String TARGET = "7300000002";
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Roteamento", "roteamento@teste.com", "55566677788");
+
+        fixtures.createAccount(user, SOURCE, new BigDecimal("100.00"));
+        fixtures.createAccount(user, TARGET, BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertThat(connections(() -> transactionService.getAccountTransactions(SOURCE)))
+                .containsExactly(0.0, 1.0);
+        assertThat(connections(() -> accountService.getUserAccounts(accountRepository.findByAccountNumber(SOURCE)
+                .orElseThrow().getUser().getId())))
+                .containsExactly(1.0, 1.0);
+
+        // Escrita e carregamento do cache de contas ficam no primário
+        assertThat(connections(() -> transactionService.transferMoney(transfer("10.00"))))
+                .containsExactly(1.0, 0.0);
+        assertThat(connections(() -> accountService.getAccountByNumber(TARGET)))
+                .containsExactly(1.0, 0.0);
+    }
+
+    @Test
+    void readsRightAfterATransferStayOnThePrimaryForTheSameUser() throws InterruptedException {
+        authenticateAs("quem-transferiu@teste.com");
+        transactionService.transferMoney(transfer("10.00"));
+
+        assertThat(connections(() -> transactionService.getAccountTransactions(SOURCE)))
+                .containsExactly(1.0, 0.0);
+
+        authenticateAs("outro-usuario@teste.com");
+        assertThat(connections(() -> transactionService.getAccountTransactions(SOURCE)))
+                .containsExactly(0.0, 1.0);
+
+        // Depois da janela o mesmo usuário volta para a réplica
+        Thread.sleep(PIN_WINDOW_MS + 200);
+        authenticateAs("quem-transferiu@teste.com");
+        assertThat(connections(() -> transactionService.getAccountTransactions(SOURCE)))
+                .containsExactly(0.0, 1.0);
+    }
+
+    @Test
+    void rolledBackWriteDoesNotPin() {
+        authenticateAs("sem-saldo@teste.com");
+        assertThatThrownBy(() -> transactionService.transferMoney(transfer("1000.00")))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(connections(() -> transactionService.getAccountTransactions(SOURCE)))
+                .containsExactly(0.0, 1.0);
+    }
+
+    // Conexões obtidas pela chamada: [primário, réplica]
+    private List<Double> connections(Runnable call) {
+        double primary = count("primary");
+        double replica = count("replica");
+        call.run();
+        return List.of(count("primary") - primary, count("replica") - replica);
+    }
+
+    private double count(String target) {
+        return meterRegistry.get("payment.datasource.connections").tag("target", target).counter().count();
+    }
+
+    private static void authenticateAs(String email) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+
+    private static TransferDTO transfer(String amount) {
+        TransferDTO transfer = new TransferDTO();
+        transfer.setSourceAccountNumber(SOURCE);
+        transfer.setTargetAccountNumber(TARGET);
+        transfer.setAmount(new BigDecimal(amount));
+        transfer.setDescription("roteamento");
+        return transfer;
+    }
+}
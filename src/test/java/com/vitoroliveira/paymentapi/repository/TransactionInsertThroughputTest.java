@@ -0,0 +1,120 @@
+package com.vitoroliveira.paymentapi.repository;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.Transaction;
+import com.vitoroliveira.paymentapi.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Vazão de INSERTs em transactions: uma ida ao banco por linha (o que o IDENTITY impunha)
+// contra o batch de JDBC liberado pelo gerador hi/lo
+@SpringBootTest
+class TransactionInsertThroughputTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionInsertThroughputTest.class);
+
+    private static final int ROWS = 2000;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Account source;
+    private Account target;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Gerador de Carga", "carga@teste.com", "55566677788");
+
+        source = fixtures.createAccount(user, "3000000001");
+        target = fixtures.createAccount(user, "3000000002");
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void batchedInsertsUseFewerStatementsAndRunFaster() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            // Aquecimento (JIT, blocos do gerador de ids)
+            insert(ROWS / 4, 1);
+            insert(ROWS / 4, BATCH_SIZE);
+
+            statistics.clear();
+            double perRow = insert(ROWS, 1);
+            long perRowStatements = statistics.getPrepareStatementCount();
+
+            statistics.clear();
+            double batched = insert(ROWS, BATCH_SIZE);
+            long batchedStatements = statistics.getPrepareStatementCount();
+
+            log.info("INSERT em transactions: {} linhas/s uma a uma ({} statements), {} linhas/s em batch de {} ({} statements)",
+                    String.format("%.0f", perRow), perRowStatements,
+                    String.format("%.0f", batched), BATCH_SIZE, batchedStatements);
+
+            assertThat(batchedStatements).isLessThan(perRowStatements / 10);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        assertThat(transactionRepository.count()).isEqualTo(ROWS * 2L + ROWS / 2);
+    }
+
+    // Insere as linhas em uma única transação e devolve linhas/s
+    private double insert(int rows, int jdbcBatchSize) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            Account sourceRef = entityManager.getReference(Account.class, source.getId());
+            Account targetRef = entityManager.getReference(Account.class, target.getId());
+            for (int i = 0; i < rows; i++) {
+                Transaction transaction = new Transaction();
+                transaction.setSourceAccount(sourceRef);
+                transaction.setTargetAccount(targetRef);
+                transaction.setAmount(BigDecimal.ONE);
+                transaction.setType(Transaction.TransactionType.TRANSFER);
+                transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+                transaction.setDescription("carga");
+                entityManager.persist(transaction);
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    sourceRef = entityManager.getReference(Account.class, source.getId());
+                    targetRef = entityManager.getReference(Account.class, target.getId());
+                }
+            }
+        });
+        return rows / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,155 @@
+package com.vitoroliveira.paymentapi.security;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import com.vitoroliveira.paymentapi.service.TokenRevocationService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Consultas ao banco por requisição autenticada em cada modo de montagem do principal
+@SpringBootTest
+class JwtAuthenticationQueriesTest {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationQueriesTest.class);
+
+    private static final int REQUESTS = 100;
+    private static final String EMAIL = "stateless@teste.com";
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Value("${jwt.secret}")
+    private String secret;
+
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        user = fixtures.createUser("Sem Estado", EMAIL, "77788899900");
+        token = jwtUtil.generateToken(userDetailsService.loadUserByUsername(EMAIL));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void claimsModeAuthenticatesWithoutQueries() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            double database = queriesPerRequest(statistics, AuthenticatedUserResolver.PrincipalSource.DATABASE);
+            double cached = queriesPerRequest(statistics, AuthenticatedUserResolver.PrincipalSource.CACHED);
+            double claims = queriesPerRequest(statistics, AuthenticatedUserResolver.PrincipalSource.CLAIMS);
+
+            log.info("Consultas por requisição autenticada: {} com DATABASE, {} com CACHED, {} com CLAIMS",
+                    database, cached, claims);
+
+            assertThat(database).isEqualTo(1.0);
+            assertThat(cached).isEqualTo(1.0 / REQUESTS);
+            assertThat(claims).isZero();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    void principalFromClaimsCarriesIdAndRolesButNoPassword() throws Exception {
+        Authentication authentication = authenticate(filter(AuthenticatedUserResolver.PrincipalSource.CLAIMS), token);
+
+        AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
+        assertThat(principal.getId()).isEqualTo(user.getId());
+        assertThat(principal.getUsername()).isEqualTo(EMAIL);
+        assertThat(principal.getPassword()).isEmpty();
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void tokensWithoutIdClaimFallBackToTheDatabase() throws Exception {
+        // Formato dos tokens emitidos antes das claims de id e roles
+        String legacyToken = Jwts.builder()
+                .setSubject(EMAIL)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        Authentication authentication = authenticate(filter(AuthenticatedUserResolver.PrincipalSource.CLAIMS), legacyToken);
+
+        assertThat(((AuthenticatedUser) authentication.getPrincipal()).getId()).isEqualTo(user.getId());
+    }
+
+    @Test
+    void databaseModeRejectsRemovedUsers() throws Exception {
+        userRepository.deleteAll();
+
+        assertThat(authenticate(filter(AuthenticatedUserResolver.PrincipalSource.DATABASE), token)).isNull();
+        assertThat(authenticate(filter(AuthenticatedUserResolver.PrincipalSource.CLAIMS), token)).isNotNull();
+    }
+
+    private double queriesPerRequest(Statistics statistics, AuthenticatedUserResolver.PrincipalSource source) throws Exception {
+        JwtRequestFilter filter = filter(source);
+        statistics.clear();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertThat(authenticate(filter, token)).isNotNull();
+        }
+        return (double) statistics.getPrepareStatementCount() / REQUESTS;
+    }
+
+    private JwtRequestFilter filter(AuthenticatedUserResolver.PrincipalSource source) {
+        AuthenticatedUserResolver resolver = new AuthenticatedUserResolver(userDetailsService, new SimpleMeterRegistry(),
+                source, 60, 100);
+        return new JwtRequestFilter(resolver, tokenRevocationService, jwtUtil, new SimpleMeterRegistry());
+    }
+
+    private Authentication authenticate(JwtRequestFilter filter, String bearerToken) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/accounts/my-accounts");
+        request.addHeader("Authorization", "Bearer " + bearerToken);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,90 @@
+package com.vitoroliveira.paymentapi.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "chave-de-teste-com-pelo-menos-32-bytes-123";
+
+    private final UserDetails user = new User("jwt@teste.com", "senha", List.of());
+
+    @Test
+    void repeatedTokenIsVerifiedOnceAndServedFromCache() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtil jwtUtil = new JwtUtil(meterRegistry, SECRET, 60_000, 100);
+        String token = jwtUtil.generateToken(user);
+
+        TokenClaims first = jwtUtil.getVerifiedClaims(token);
+        TokenClaims second = jwtUtil.getVerifiedClaims(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(jwtUtil.validateToken(second, user)).isTrue();
+        assertThat(jwtUtil.extractUsername(token)).isEqualTo("jwt@teste.com");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "jwt-claims").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "jwt-claims").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedClaimsCannotBeChangedByARequest() {
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 60_000, 100);
+        String token = jwtUtil.generateToken(new AuthenticatedUser(7L, "jwt@teste.com",
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        TokenClaims claims = jwtUtil.getVerifiedClaims(token);
+        assertThatThrownBy(() -> claims.roles().add("ROLE_ADMIN")).isInstanceOf(UnsupportedOperationException.class);
+
+        // A instância compartilhada pelo cache continua igual ao token assinado
+        TokenClaims cached = jwtUtil.getVerifiedClaims(token);
+        assertThat(cached.userId()).isEqualTo(7L);
+        assertThat(cached.roles()).containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void tamperedTokenIsRejectedEvenAfterTheOriginalWasCached() {
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 60_000, 100);
+        String token = jwtUtil.generateToken(user);
+        jwtUtil.getVerifiedClaims(token);
+
+        String forged = new JwtUtil(new SimpleMeterRegistry(), SECRET.replace('1', '9'), 60_000, 100)
+                .generateToken(new User("outro@teste.com", "senha", List.of()));
+        String tampered = forged.substring(0, forged.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+
+        assertThatThrownBy(() -> jwtUtil.getVerifiedClaims(forged)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> jwtUtil.getVerifiedClaims(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void cachedClaimsExpireWithTheToken() throws InterruptedException {
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 1_000, 100);
+        String token = jwtUtil.generateToken(user);
+        assertThat(jwtUtil.validateToken(token, user)).isTrue();
+
+        // "exp" tem precisão de segundos
+        Thread.sleep(2_100);
+
+        assertThatThrownBy(() -> jwtUtil.getVerifiedClaims(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void worksWithTheCacheDisabled() {
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 60_000, 0);
+        String token = jwtUtil.generateToken(user);
+
+        assertThat(jwtUtil.validateToken(token, user)).isTrue();
+        assertThat(jwtUtil.validateToken(token, new User("outro@teste.com", "senha", List.of()))).isFalse();
+    }
+}
@@ -0,0 +1,98 @@
+package com.vitoroliveira.paymentapi.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationListTest {
+
+    private static final long NOW = 1_800_000_000L;
+    private static final long LIFETIME = 3600;
+
+    @Test
+    void revokedTokensAreAlwaysFoundAndOthersRarelyAre() {
+        TokenRevocationList list = new TokenRevocationList(300, LIFETIME, 100_000, 0.001);
+        List<String> revoked = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            String jti = UUID.randomUUID().toString();
+            revoked.add(jti);
+            list.add(jti, expiresAt(i), NOW);
+        }
+
+        for (int i = 0; i < revoked.size(); i++) {
+            assertThat(list.mightContain(revoked.get(i), expiresAt(i))).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (list.mightContain(UUID.randomUUID().toString(), expiresAt(i))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    void revocationsAgeOutWhenTheirWindowIsReused() {
+        TokenRevocationList list = new TokenRevocationList(300, LIFETIME, 1000, 0.001);
+        list.add("expira-cedo", NOW + 100, NOW);
+        assertThat(list.mightContain("expira-cedo", NOW + 100)).isTrue();
+
+        // Uma volta inteira do anel depois, a mesma posição recebe uma janela nova
+        long later = NOW + 100 + 14 * 300;
+        list.add("outro", later, later - 60);
+
+        assertThat(list.mightContain("expira-cedo", NOW + 100)).isFalse();
+        assertThat(list.mightContain("outro", later)).isTrue();
+        // Tokens de janelas já recicladas não entram de volta
+        list.add("atrasado", NOW + 100, NOW);
+        assertThat(list.mightContain("atrasado", NOW + 100)).isFalse();
+    }
+
+    @Test
+    void expiredTokensAreNotStored() {
+        TokenRevocationList list = new TokenRevocationList(300, LIFETIME, 1000, 0.001);
+        list.add("expirado", NOW - 1, NOW);
+
+        assertThat(list.mightContain("expirado", NOW - 1)).isFalse();
+    }
+
+    @Test
+    void tenMillionRevocationsFitInAFixedBudget() {
+        TokenRevocationList list = new TokenRevocationList(300, LIFETIME, 10_000_000, 0.001);
+
+        assertThat(list.sizeInBytes()).isLessThan(32L * 1024 * 1024);
+    }
+
+    @Test
+    void membershipCheckDoesNotAllocate() {
+        TokenRevocationList list = new TokenRevocationList(300, LIFETIME, 10_000, 0.001);
+        String jti = UUID.randomUUID().toString();
+        String other = UUID.randomUUID().toString();
+        list.add(jti, NOW + 600, NOW);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        boolean found = false;
+        // Aquecimento: a própria medição aloca na primeira chamada
+        threads.getThreadAllocatedBytes(threadId);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1_000_000; i++) {
+            found |= list.mightContain(jti, NOW + 600);
+            found &= !list.mightContain(other, NOW + 600);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(found).isTrue();
+        assertThat(allocated).isLessThan(1024);
+    }
+
+    // Expirações espalhadas pela validade do token
+    private static long expiresAt(int i) {
+        return NOW + 1 + (i % LIFETIME);
+    }
+}
@@ -0,0 +1,167 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.AccountDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class AccountCacheTest {
+
+    private static final String SOURCE = "6000000001";
+    private static final String TARGET = "6000000002";
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Leitor Frequente", "cache@teste.com", "66677788899");
+
+        fixtures.createAccount(user, SOURCE, new BigDecimal("1000.00"));
+        fixtures.createAccount(user, TARGET, BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.deleteAll();
+        accountCache.invalidateAll();
+    }
+
+    @Test
+    void repeatedReadsAreServedFromCache() {
+        double hitsBefore = hits();
+
+        accountService.getAccountByNumber(SOURCE);
+        accountService.getAccountByNumber(SOURCE);
+        accountService.getAccountByNumber(SOURCE);
+
+        assertThat(hits() - hitsBefore).isEqualTo(2);
+    }
+
+    @Test
+    void transferAndBalanceUpdateInvalidateEntries() {
+        assertThat(accountService.getAccountByNumber(SOURCE).getBalance()).isEqualByComparingTo("1000.00");
+        assertThat(accountService.getAccountByNumber(TARGET).getBalance()).isEqualByComparingTo("0.00");
+
+        transactionService.transferMoney(new TransferDTO(SOURCE, TARGET, new BigDecimal("40.00"), "cache"));
+        assertThat(accountService.getAccountByNumber(SOURCE).getBalance()).isEqualByComparingTo("960.00");
+        assertThat(accountService.getAccountByNumber(TARGET).getBalance()).isEqualByComparingTo("40.00");
+
+        // Transferência recusada: a entrada continua válida
+        assertThatThrownBy(() -> transactionService.transferMoney(
+                new TransferDTO(TARGET, SOURCE, new BigDecimal("41.00"), "cache")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(accountService.getAccountByNumber(TARGET).getBalance()).isEqualByComparingTo("40.00");
+
+        accountService.updateBalance(TARGET, new BigDecimal("7.00"));
+        assertThat(accountService.getAccountByNumber(TARGET).getBalance()).isEqualByComparingTo("7.00");
+    }
+
+    @Test
+    void neverServesBalanceOlderThanCommittedTransfer() throws Exception {
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String accountNumber = i % 2 == 0 ? SOURCE : TARGET;
+                futures.add(readers.submit(() -> {
+                    while (running.get()) {
+                        accountService.getAccountByNumber(accountNumber);
+                    }
+                }));
+            }
+
+            for (int i = 1; i <= 100; i++) {
+                transactionService.transferMoney(new TransferDTO(SOURCE, TARGET, BigDecimal.ONE, "cache"));
+                assertThat(accountService.getAccountByNumber(TARGET).getBalance())
+                        .isEqualByComparingTo(BigDecimal.valueOf(i));
+                assertThat(accountService.getAccountByNumber(SOURCE).getBalance())
+                        .isEqualByComparingTo(BigDecimal.valueOf(1000 - i));
+            }
+
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            running.set(false);
+            readers.shutdownNow();
+            assertThat(readers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    // Intercalação fixa, sem depender do banco: o carregamento lê o saldo antes do commit e só tenta
+    // gravar no cache depois da invalidação, que é o caso que a geração do stripe precisa descartar
+    @Test
+    void discardsLoadStartedBeforeCommittedInvalidation() throws Exception {
+        AccountDTO before = accountService.getAccountByNumber(SOURCE);
+        accountCache.invalidateAll();
+
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Future<AccountDTO> staleRead = reader.submit(() -> accountCache.get(SOURCE, () -> {
+                loaded.countDown();
+                try {
+                    committed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return before;
+            }));
+
+            assertThat(loaded.await(10, TimeUnit.SECONDS)).isTrue();
+            transactionTemplate.executeWithoutResult(status -> accountCache.invalidateOnCommit(List.of(SOURCE)));
+            committed.countDown();
+            assertThat(staleRead.get(10, TimeUnit.SECONDS)).isSameAs(before);
+        } finally {
+            reader.shutdownNow();
+        }
+
+        AccountDTO after = new AccountDTO(before.getId(), SOURCE, before.getAccountType(), new BigDecimal("960.00"),
+                before.getUserId(), before.getCreatedAt(), before.getBalanceShards());
+        assertThat(accountCache.get(SOURCE, () -> after)).isSameAs(after);
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "accounts").tag("result", "hit").functionCounter().count();
+    }
+}
@@ -0,0 +1,163 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.AccountDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.AccountNumbers;
+import com.vitoroliveira.paymentapi.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Números de conta: permutação sem colisões, dígito verificador que pega erros de digitação,
+// emissão concorrente sem repetição e criação de conta sem consulta pelo número
+@SpringBootTest
+class AccountNumberGeneratorTest {
+
+    @Autowired
+    private AccountNumberGenerator accountNumberGenerator;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @AfterEach
+    void tearDown() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void permutationIsCollisionFreeAndNotSequential() {
+        int count = 1_000_000;
+        long[] outputs = new long[count];
+        int consecutive = 0;
+        for (int i = 0; i < count; i++) {
+            outputs[i] = accountNumberGenerator.permute(i);
+            assertThat(outputs[i]).isBetween(0L, AccountNumbers.BODY_COUNT - 1);
+            if (i > 0 && Math.abs(outputs[i] - outputs[i - 1]) == 1) {
+                consecutive++;
+            }
+        }
+        assertThat(consecutive).isLessThan(5);
+
+        Arrays.sort(outputs);
+        for (int i = 1; i < count; i++) {
+            assertThat(outputs[i]).isNotEqualTo(outputs[i - 1]);
+        }
+    }
+
+    @Test
+    void checkDigitRejectsTypos() {
+        for (int n = 0; n < 200; n++) {
+            String number = accountNumberGenerator.next();
+            assertThat(number).hasSize(AccountNumbers.LENGTH).doesNotStartWith("0");
+            assertThat(AccountNumbers.isValid(number)).isTrue();
+
+            char[] digits = number.toCharArray();
+            // Qualquer dígito trocado por outro (sem gerar o prefixo 0 dos números antigos)
+            for (int i = 0; i < digits.length; i++) {
+                for (char digit = '0'; digit <= '9'; digit++) {
+                    if (digit == digits[i] || (i == 0 && digit == '0')) {
+                        continue;
+                    }
+                    char[] typo = digits.clone();
+                    typo[i] = digit;
+                    assertThat(AccountNumbers.isValid(new String(typo))).as(new String(typo)).isFalse();
+                }
+            }
+            // Inversão de dígitos vizinhos, exceto iguais e 0/9, que o Luhn não distingue
+            for (int i = 0; i + 1 < digits.length; i++) {
+                int difference = Math.abs(digits[i] - digits[i + 1]);
+                if (difference == 0 || difference == 9 || (i == 0 && digits[1] == '0')) {
+                    continue;
+                }
+                char[] swapped = digits.clone();
+                swapped[i] = digits[i + 1];
+                swapped[i + 1] = digits[i];
+                assertThat(AccountNumbers.isValid(new String(swapped))).as(new String(swapped)).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void legacyNumbersStayValidAndMalformedOnesAreRejected() {
+        assertThat(AccountNumbers.isValid("0123456789")).isTrue();
+        assertThat(AccountNumbers.isValid("123456789")).isFalse();
+        assertThat(AccountNumbers.isValid("12345678901")).isFalse();
+        assertThat(AccountNumbers.isValid("12345a7890")).isFalse();
+
+        TransferDTO transfer = new TransferDTO("1234567890", accountNumberGenerator.next(), BigDecimal.ONE, null);
+        assertThat(validator.validate(transfer)).extracting(violation -> violation.getPropertyPath().toString())
+                .containsExactly("sourceAccountNumber");
+    }
+
+    @Test
+    void concurrentIssuanceNeverRepeats() throws Exception {
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        assertThat(issued.add(accountNumberGenerator.next())).isTrue();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(issued).hasSize(4000);
+    }
+
+    @Test
+    void createAccountRunsNoQueryForTheNumber() {
+        User user = fixtures.createUser("Numeração", "numeracao@teste.com", "88899900011");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        Set<String> numbers = new HashSet<>();
+        try {
+            statistics.clear();
+            // Mais contas que um bloco do gerador (payment.ids.block-size)
+            for (int i = 0; i < 120; i++) {
+                AccountDTO account = accountService.createAccount(user.getId(), Account.AccountType.CHECKING);
+                numbers.add(account.getAccountNumber());
+            }
+            assertThat(statistics.getQueryExecutionCount()).isZero();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        assertThat(numbers).hasSize(120).allMatch(AccountNumbers::isValid);
+    }
+}
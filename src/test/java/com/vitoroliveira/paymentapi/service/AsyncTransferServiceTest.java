@@ -0,0 +1,196 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.dto.TransferStatusDTO;
+import com.vitoroliveira.paymentapi.exception.TransferQueueFullException;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class AsyncTransferServiceTest {
+
+    private static final int TRANSFERS = 200;
+
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Cliente Assíncrono", "async@teste.com", "77788899900");
+
+        fixtures.createAccount(user, "5000000001", new BigDecimal("150.00"));
+        fixtures.createAccount(user, "5000000002", new BigDecimal("50.00"));
+        fixtures.createAccount(user, "5000000003", BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void acceptedTransfersAreSettledInOrderWithFailuresReported() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            String source = i % 2 == 0 ? "5000000001" : "5000000002";
+            TransactionDTO pending = asyncTransferService.submitTransfer(
+                    new TransferDTO(source, "5000000003", BigDecimal.ONE, "assíncrona"));
+            assertThat(pending.getStatus()).isEqualTo("PENDING");
+            ids.add(pending.getId());
+        }
+
+        List<TransferStatusDTO> statuses = awaitSettlement(ids);
+
+        // 5000000002 só tem saldo para as 50 primeiras transferências que partem dela
+        assertThat(statuses).filteredOn(status -> status.getStatus().equals("COMPLETED")).hasSize(150);
+        assertThat(statuses).filteredOn(status -> status.getStatus().equals("FAILED"))
+                .hasSize(50)
+                .allSatisfy(status -> assertThat(status.getFailureReason())
+                        .isEqualTo("Saldo insuficiente para realizar a transferência"));
+        for (int i = 1; i < 100; i += 2) {
+            assertThat(statuses.get(i).getStatus()).isEqualTo("COMPLETED");
+        }
+
+        assertThat(balance("5000000001")).isEqualByComparingTo("50.00");
+        assertThat(balance("5000000002")).isEqualByComparingTo("0.00");
+        assertThat(balance("5000000003")).isEqualByComparingTo("150.00");
+    }
+
+    @Test
+    void rejectsWhenQueueIsFullWithoutPersisting() {
+        int capacity = (int) ReflectionTestUtils.getField(asyncTransferService, "queueCapacity");
+        ReflectionTestUtils.setField(asyncTransferService, "queueCapacity", 0);
+        try {
+            assertThatThrownBy(() -> asyncTransferService.submitTransfer(
+                    new TransferDTO("5000000001", "5000000003", BigDecimal.ONE, "cheia")))
+                    .isInstanceOf(TransferQueueFullException.class);
+        } finally {
+            ReflectionTestUtils.setField(asyncTransferService, "queueCapacity", capacity);
+        }
+        assertThat(transactionRepository.count()).isZero();
+    }
+
+    @Test
+    void lockTimeoutIsRetriedUntilTheTransferCompletes() throws Exception {
+        double retriesBefore = retries();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = holdLock("5000000001", release);
+        try {
+            TransactionDTO pending = asyncTransferService.submitTransfer(
+                    new TransferDTO("5000000001", "5000000003", BigDecimal.TEN, "lock ocupado"));
+
+            // A primeira liquidação esgota a espera pelo lock e é reagendada, não marcada FAILED
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (retries() == retriesBefore) {
+                assertThat(System.currentTimeMillis()).as("nova tentativa agendada").isLessThan(deadline);
+                Thread.sleep(10);
+            }
+            assertThat(asyncTransferService.getTransferStatus(pending.getId()).getStatus()).isEqualTo("PENDING");
+            release.countDown();
+            holder.get();
+
+            TransferStatusDTO status = awaitSettlement(List.of(pending.getId())).get(0);
+            assertThat(status.getStatus()).isEqualTo("COMPLETED");
+            assertThat(balance("5000000001")).isEqualByComparingTo("140.00");
+            assertThat(balance("5000000003")).isEqualByComparingTo("10.00");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void transferFailsOnlyAfterRetriesAreExhausted() throws Exception {
+        int maxAttempts = (int) ReflectionTestUtils.getField(asyncTransferService, "maxAttempts");
+        ReflectionTestUtils.setField(asyncTransferService, "maxAttempts", 3);
+        double retriesBefore = retries();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = holdLock("5000000001", release);
+        try {
+            TransactionDTO pending = asyncTransferService.submitTransfer(
+                    new TransferDTO("5000000001", "5000000003", BigDecimal.TEN, "lock sempre ocupado"));
+
+            TransferStatusDTO status = awaitSettlement(List.of(pending.getId())).get(0);
+            assertThat(status.getStatus()).isEqualTo("FAILED");
+            assertThat(status.getFailureReason()).isEqualTo("Erro ao processar a transferência");
+            assertThat(retries() - retriesBefore).isEqualTo(2.0);
+        } finally {
+            release.countDown();
+            holder.get();
+            ReflectionTestUtils.setField(asyncTransferService, "maxAttempts", maxAttempts);
+        }
+        assertThat(balance("5000000001")).isEqualByComparingTo("150.00");
+    }
+
+    // Segura o lock de linha da conta (a liquidação não usa os locks em memória) até o latch ser liberado.
+    // A liquidação desiste pelo timeout de lock do banco e trata a falha como transitória
+    private CompletableFuture<Void> holdLock(String accountNumber, CountDownLatch release) throws InterruptedException {
+        CountDownLatch held = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                status -> {
+                    accountRepository.findByAccountNumberForUpdate(accountNumber).orElseThrow();
+                    held.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        held.await();
+        return holder;
+    }
+
+    private double retries() {
+        return meterRegistry.get("payment.transfer.async.retries").counter().count();
+    }
+
+    private List<TransferStatusDTO> awaitSettlement(List<Long> ids) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            List<TransferStatusDTO> statuses = ids.stream().map(asyncTransferService::getTransferStatus).toList();
+            if (statuses.stream().noneMatch(status -> status.getStatus().equals("PENDING"))) {
+                return statuses;
+            }
+            assertThat(System.currentTimeMillis()).as("liquidação dentro do prazo").isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    private BigDecimal balance(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance();
+    }
+}
@@ -0,0 +1,268 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.AccountStatementDTO;
+import com.vitoroliveira.paymentapi.dto.StatementLineDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.BalanceSnapshotCheckpoint;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountBalanceShardRepository;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.BalanceSnapshotCheckpointRepository;
+import com.vitoroliveira.paymentapi.repository.BalanceSnapshotRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Extratos a partir dos snapshots de saldo: o mesmo resultado com e sem snapshot, construção
+// incremental (cada transação contada uma vez, em lotes), parada antes de transferências pendentes,
+// saldo de abertura de contas anteriores ao histórico e retenção
+@SpringBootTest
+class BalanceSnapshotServiceTest {
+
+    private static final String ACCOUNT = "7200000001";
+    private static final String OTHER = "7200000002";
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 1, 10, 0);
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountBalanceShardRepository shardRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private BalanceSnapshotCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Account account;
+    private Account other;
+    private long nextId = 2_000_000_000_000L;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Extratos", "extratos@teste.com", "66677788899");
+
+        account = fixtures.createAccount(user, ACCOUNT);
+        other = fixtures.createAccount(user, OTHER);
+        // Contas novas, sem saldo anterior ao histórico: o preenchimento das aberturas termina vazio
+        assertThat(balanceSnapshotService.seedOpeningBalances()).isZero();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.deleteAll("balance_snapshots", "balance_snapshot_checkpoint");
+    }
+
+    @Test
+    void statementIsTheSameWithAndWithoutSnapshots() {
+        seedHistory();
+        LocalDateTime start = DAY.plusDays(2).minusHours(1);
+        LocalDateTime end = DAY.plusDays(5).plusHours(1);
+
+        AccountStatementDTO replayed = balanceSnapshotService.getStatement(ACCOUNT, start, end);
+        assertThat(replayed.getOpeningBalance()).isEqualByComparingTo("800.00");
+        assertThat(replayed.getLines()).extracting(StatementLineDTO::getAmount)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("50.00"), new BigDecimal("-100.00"), BigDecimal.ZERO);
+        assertThat(replayed.getLines()).extracting(StatementLineDTO::getBalance)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("850.00"), new BigDecimal("750.00"), new BigDecimal("750.00"));
+        assertThat(replayed.getLines().get(0).getCounterpartyAccountNumber()).isEqualTo(OTHER);
+        assertThat(replayed.getClosingBalance()).isEqualByComparingTo("750.00");
+
+        // A transferência que falhou não conta
+        assertThat(balanceSnapshotService.buildSnapshots()).isEqualTo(6);
+        assertThat(balanceSnapshotService.buildSnapshots()).isZero();
+        assertThat(balanceSnapshotService.getStatement(ACCOUNT, start, end)).isEqualTo(replayed);
+
+        // Só a transação nova é lida; cada execução cria um snapshot por conta movimentada
+        insert(ACCOUNT, ACCOUNT, "25.00", DAY.plusDays(7), "DEPOSIT", "COMPLETED");
+        assertThat(balanceSnapshotService.buildSnapshots()).isEqualTo(1);
+        AccountStatementDTO latest = balanceSnapshotService.getStatement(ACCOUNT, DAY.plusDays(7).minusHours(1), DAY.plusDays(8));
+        assertThat(latest.getOpeningBalance()).isEqualByComparingTo("755.00");
+        assertThat(latest.getClosingBalance()).isEqualByComparingTo("780.00");
+        assertThat(snapshotRepository.findAll()).hasSize(3);
+    }
+
+    @Test
+    void buildsInChunksReadingEachTransactionOnce() {
+        seedHistory();
+        BalanceSnapshotService smallChunks = new BalanceSnapshotService(transactionRepository, accountRepository,
+                shardRepository, snapshotRepository, checkpointRepository, transactionTemplate, new SimpleMeterRegistry(),
+                2, 60, 30, 10_000);
+
+        assertThat(smallChunks.buildSnapshots()).isEqualTo(6);
+        assertThat(smallChunks.buildSnapshots()).isZero();
+
+        // Os lotes de uma mesma execução atualizam o snapshot criado nela
+        assertThat(snapshotRepository.findAll()).hasSize(2);
+        AccountStatementDTO statement = smallChunks.getStatement(ACCOUNT, DAY.plusDays(10), DAY.plusDays(11));
+        assertThat(statement.getOpeningBalance()).isEqualByComparingTo("755.00");
+        assertThat(statement.getLines()).isEmpty();
+        assertThat(smallChunks.getStatement(OTHER, DAY.plusDays(10), DAY.plusDays(11)).getOpeningBalance())
+                .isEqualByComparingTo("145.00");
+    }
+
+    @Test
+    void stopsBeforeThePendingTransfer() {
+        insert(ACCOUNT, ACCOUNT, "100.00", DAY, "DEPOSIT", "COMPLETED");
+        long pending = insert(ACCOUNT, OTHER, "30.00", DAY.plusDays(1), "TRANSFER", "PENDING");
+        insert(ACCOUNT, ACCOUNT, "10.00", DAY.plusDays(2), "WITHDRAWAL", "COMPLETED");
+
+        assertThat(balanceSnapshotService.buildSnapshots()).isEqualTo(1);
+
+        jdbcTemplate.update("UPDATE transactions SET status = 'COMPLETED' WHERE id = ?", pending);
+        assertThat(balanceSnapshotService.buildSnapshots()).isEqualTo(2);
+        assertThat(balanceSnapshotService.getStatement(ACCOUNT, DAY.plusDays(3), DAY.plusDays(4)).getOpeningBalance())
+                .isEqualByComparingTo("60.00");
+    }
+
+    @Test
+    void balanceAdjustmentsAreRecordedAsTransactions() {
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        accountService.updateBalance(ACCOUNT, new BigDecimal("100.00"));
+        accountService.updateBalance(ACCOUNT, new BigDecimal("40.00"));
+
+        AccountStatementDTO statement = balanceSnapshotService.getStatement(ACCOUNT, start, LocalDateTime.now().plusHours(1));
+        assertThat(statement.getOpeningBalance()).isEqualByComparingTo("0.00");
+        assertThat(statement.getLines()).extracting(StatementLineDTO::getType).containsExactly("DEPOSIT", "WITHDRAWAL");
+        assertThat(statement.getClosingBalance()).isEqualByComparingTo("40.00");
+        assertThat(accountService.getAccountByNumber(ACCOUNT).getBalance()).isEqualByComparingTo("40.00");
+    }
+
+    @Test
+    void balanceFromBeforeTheHistoryBecomesTheOpeningSnapshot() {
+        seedHistory();
+        // Conta antiga: 245.00 de saldo que nenhuma transação explica; a contraparte bate com o histórico
+        jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id = ?", new BigDecimal("1000.00"), account.getId());
+        jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id = ?", new BigDecimal("145.00"), other.getId());
+        resetOpeningBalances();
+        // Uma conta por lote: o ponto de retomada avança a cada transação
+        BalanceSnapshotService oneAccountPerChunk = new BalanceSnapshotService(transactionRepository, accountRepository,
+                shardRepository, snapshotRepository, checkpointRepository, transactionTemplate, new SimpleMeterRegistry(),
+                1, 60, 30, 10_000);
+
+        // A construção preenche as aberturas antes de contar qualquer transação
+        assertThat(oneAccountPerChunk.buildSnapshots()).isEqualTo(6);
+        BalanceSnapshotCheckpoint checkpoint = checkpointRepository.findById(BalanceSnapshotCheckpoint.SINGLETON_ID).orElseThrow();
+        assertThat(checkpoint.getOpeningBalancesSeededAt()).isNotNull();
+        assertThat(checkpoint.getOpeningBalancesAfterId()).isEqualTo(Math.max(account.getId(), other.getId()));
+        assertThat(oneAccountPerChunk.seedOpeningBalances()).isZero();
+
+        AccountStatementDTO beforeHistory = balanceSnapshotService.getStatement(ACCOUNT, DAY.minusDays(1), DAY.minusHours(1));
+        assertThat(beforeHistory.getOpeningBalance()).isEqualByComparingTo("245.00");
+        AccountStatementDTO middle = balanceSnapshotService.getStatement(ACCOUNT, DAY.plusDays(2).minusHours(1), DAY.plusDays(5).plusHours(1));
+        assertThat(middle.getOpeningBalance()).isEqualByComparingTo("1045.00");
+        assertThat(middle.getClosingBalance()).isEqualByComparingTo("995.00");
+        // Os snapshots construídos partem da abertura: o extrato atual fecha com o saldo da conta
+        assertThat(balanceSnapshotService.getStatement(ACCOUNT, DAY.plusDays(10), DAY.plusDays(11)).getOpeningBalance())
+                .isEqualByComparingTo("1000.00");
+        assertThat(balanceSnapshotService.getStatement(OTHER, DAY.plusDays(10), DAY.plusDays(11)).getOpeningBalance())
+                .isEqualByComparingTo("145.00");
+    }
+
+    @Test
+    void openingBalancesResumeAfterTheLastSeededAccount() {
+        jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id IN (?, ?)", new BigDecimal("50.00"),
+                account.getId(), other.getId());
+        resetOpeningBalances();
+        // Uma execução anterior parou depois da primeira conta
+        Account first = account.getId() < other.getId() ? account : other;
+        jdbcTemplate.update("UPDATE balance_snapshot_checkpoint SET opening_balances_after_id = ?", first.getId());
+
+        assertThat(balanceSnapshotService.seedOpeningBalances()).isEqualTo(1);
+        assertThat(snapshotRepository.findAll()).singleElement()
+                .satisfies(snapshot -> assertThat(snapshot.getAccount().getId()).isNotEqualTo(first.getId()));
+    }
+
+    @Test
+    void snapshotsOutsideRetentionArePrunedWhenSuperseded() {
+        seedHistory();
+        jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id = ?", new BigDecimal("1000.00"), account.getId());
+        jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id = ?", new BigDecimal("145.00"), other.getId());
+        resetOpeningBalances();
+        assertThat(balanceSnapshotService.seedOpeningBalances()).isEqualTo(1);
+        assertThat(balanceSnapshotService.buildSnapshots()).isEqualTo(6);
+        insert(ACCOUNT, ACCOUNT, "25.00", DAY.plusDays(7), "DEPOSIT", "COMPLETED");
+        assertThat(balanceSnapshotService.buildSnapshots()).isEqualTo(1);
+        // Abertura de ACCOUNT + dois snapshots de ACCOUNT + um de OTHER
+        assertThat(snapshotRepository.count()).isEqualTo(4);
+        AccountStatementDTO before = balanceSnapshotService.getStatement(ACCOUNT, DAY.plusDays(6).plusHours(1), DAY.plusDays(8));
+
+        assertThat(balanceSnapshotService.pruneSnapshots()).isZero();
+        jdbcTemplate.update("UPDATE balance_snapshots SET created_at = ?", LocalDateTime.now().minusDays(31));
+
+        // Só o snapshot substituído de ACCOUNT sai: o de abertura e os mais recentes ficam
+        assertThat(balanceSnapshotService.pruneSnapshots()).isEqualTo(1);
+        assertThat(snapshotRepository.count()).isEqualTo(3);
+        assertThat(balanceSnapshotService.getStatement(ACCOUNT, DAY.plusDays(6).plusHours(1), DAY.plusDays(8))).isEqualTo(before);
+        assertThat(before.getOpeningBalance()).isEqualByComparingTo("1000.00");
+        assertThat(before.getClosingBalance()).isEqualByComparingTo("1025.00");
+    }
+
+    @Test
+    void invalidPeriodIsRejected() {
+        assertThatThrownBy(() -> balanceSnapshotService.getStatement(ACCOUNT, DAY, DAY.minusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Saldo final: conta 755.00, contraparte 145.00
+    // Como num banco anterior às aberturas: o preenchimento ainda não rodou
+    private void resetOpeningBalances() {
+        jdbcTemplate.update("UPDATE balance_snapshot_checkpoint SET opening_balances_seeded_at = NULL, opening_balances_after_id = 0");
+    }
+
+    private void seedHistory() {
+        insert(ACCOUNT, ACCOUNT, "1000.00", DAY, "DEPOSIT", "COMPLETED");
+        insert(ACCOUNT, OTHER, "200.00", DAY.plusDays(1), "TRANSFER", "COMPLETED");
+        insert(OTHER, ACCOUNT, "50.00", DAY.plusDays(2), "TRANSFER", "COMPLETED");
+        insert(ACCOUNT, ACCOUNT, "100.00", DAY.plusDays(3), "WITHDRAWAL", "COMPLETED");
+        insert(ACCOUNT, OTHER, "30.00", DAY.plusDays(4), "TRANSFER", "FAILED");
+        insert(ACCOUNT, ACCOUNT, "10.00", DAY.plusDays(5), "TRANSFER", "COMPLETED");
+        insert(OTHER, ACCOUNT, "5.00", DAY.plusDays(6), "TRANSFER", "COMPLETED");
+    }
+
+    private long insert(String source, String target, String amount, LocalDateTime date, String type, String status) {
+        long id = nextId++;
+        jdbcTemplate.update("INSERT INTO transactions (id, source_account_id, target_account_id, amount, transaction_date, " +
+                        "transaction_type, description, status) VALUES (?, ?, ?, ?, ?, ?, 'extrato', ?)",
+                id, accountId(source), accountId(target), new BigDecimal(amount), date, type, status);
+        return id;
+    }
+
+    private Long accountId(String accountNumber) {
+        return accountNumber.equals(ACCOUNT) ? account.getId() : other.getId();
+    }
+}
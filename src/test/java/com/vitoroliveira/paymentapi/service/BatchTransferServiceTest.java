@@ -0,0 +1,140 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.BatchTransferItemResult;
+import com.vitoroliveira.paymentapi.dto.BatchTransferRequest;
+import com.vitoroliveira.paymentapi.dto.BatchTransferResponse;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class BatchTransferServiceTest {
+
+    @Autowired
+    private BatchTransferService batchTransferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountLockManager accountLockManager;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Pagador em Lote", "lote@teste.com", "11122233344");
+
+        fixtures.createAccount(user, "1000000001", new BigDecimal("100.00"));
+        fixtures.createAccount(user, "1000000002", new BigDecimal("50.00"));
+        fixtures.createAccount(user, "1000000003", BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void bestEffortAppliesValidItemsAndReportsFailures() {
+        BatchTransferResponse response = batchTransferService.transferBatch(new BatchTransferRequest(List.of(
+                transfer("1000000001", "1000000003", "30.00"),
+                transfer("1000000002", "1000000003", "80.00"),
+                transfer("1000000009", "1000000003", "1.00"),
+                transfer("1000000003", "1000000002", "30.00")
+        ), BatchTransferRequest.BatchMode.BEST_EFFORT));
+
+        assertThat(response.getCompleted()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(BatchTransferItemResult::getStatus).containsExactly(
+                BatchTransferItemResult.ItemStatus.COMPLETED,
+                BatchTransferItemResult.ItemStatus.FAILED,
+                BatchTransferItemResult.ItemStatus.FAILED,
+                BatchTransferItemResult.ItemStatus.COMPLETED);
+        assertThat(response.getResults().get(2).getError()).isEqualTo("Conta de origem não encontrada");
+        assertThat(response.getResults().get(3).getTransaction().getId()).isNotNull();
+
+        assertThat(balance("1000000001")).isEqualByComparingTo("70.00");
+        assertThat(balance("1000000002")).isEqualByComparingTo("80.00");
+        assertThat(balance("1000000003")).isEqualByComparingTo("0.00");
+        assertThat(transactionRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void allOrNothingRollsBackEveryItemOnFailure() {
+        BatchTransferResponse response = batchTransferService.transferBatch(new BatchTransferRequest(List.of(
+                transfer("1000000001", "1000000003", "30.00"),
+                transfer("1000000002", "1000000003", "80.00"),
+                transfer("1000000001", "1000000002", "10.00")
+        ), BatchTransferRequest.BatchMode.ALL_OR_NOTHING));
+
+        assertThat(response.getCompleted()).isZero();
+        assertThat(response.getResults()).extracting(BatchTransferItemResult::getStatus).containsExactly(
+                BatchTransferItemResult.ItemStatus.ROLLED_BACK,
+                BatchTransferItemResult.ItemStatus.FAILED,
+                BatchTransferItemResult.ItemStatus.ROLLED_BACK);
+
+        assertThat(balance("1000000001")).isEqualByComparingTo("100.00");
+        assertThat(balance("1000000002")).isEqualByComparingTo("50.00");
+        assertThat(balance("1000000003")).isEqualByComparingTo("0.00");
+        assertThat(transactionRepository.count()).isZero();
+    }
+
+    // O lote usa só os locks de linha: listras ocupadas por transferências avulsas em outras
+    // threads não o fazem esperar nem desistir com 409
+    @Test
+    void batchDoesNotWaitForInMemoryLocks() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> accountLockManager.withLocks(
+                List.of("1000000001", "1000000003"), () -> {
+                    held.countDown();
+                    try {
+                        release.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }));
+        try {
+            assertThat(held.await(10, TimeUnit.SECONDS)).isTrue();
+
+            BatchTransferResponse response = batchTransferService.transferBatch(new BatchTransferRequest(List.of(
+                    transfer("1000000001", "1000000003", "30.00")
+            ), BatchTransferRequest.BatchMode.ALL_OR_NOTHING));
+
+            assertThat(response.getCompleted()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        }
+        assertThat(balance("1000000003")).isEqualByComparingTo("30.00");
+    }
+
+    private TransferDTO transfer(String source, String target, String amount) {
+        return new TransferDTO(source, target, new BigDecimal(amount), "lote");
+    }
+
+    private BigDecimal balance(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance();
+    }
+}
@@ -0,0 +1,185 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.exception.IdempotencyKeyReuseException;
+import com.vitoroliveira.paymentapi.model.IdempotencyRecord;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.IdempotencyRecordRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class IdempotencyServiceTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Cliente Impaciente", "retry@teste.com", "44455566677");
+
+        fixtures.createAccount(user, "4000000001", new BigDecimal("100.00"));
+        fixtures.createAccount(user, "4000000002", BigDecimal.ZERO);
+
+        User other = fixtures.createUser("Outro Cliente", "outro-retry@teste.com", "44455566688");
+        fixtures.createAccount(other, "4000000003", new BigDecimal("100.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        recentTransfers().clear();
+        recordRepository.deleteAll();
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void retryReturnsOriginalTransferWithoutMovingMoneyAgain() {
+        IdempotencyService.IdempotentTransfer first = idempotencyService.transferMoney("chave-1", transfer("10.00"));
+        IdempotencyService.IdempotentTransfer retry = idempotencyService.transferMoney("chave-1", transfer("10"));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.transaction()).isEqualTo(first.transaction());
+        assertThat(balance("4000000001")).isEqualByComparingTo("90.00");
+        assertThat(transactionRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void replaysFromPersistentStoreWhenCacheIsCold() {
+        TransactionDTO original = idempotencyService.transferMoney("chave-2", transfer("25.00")).transaction();
+        recentTransfers().clear();
+
+        IdempotencyService.IdempotentTransfer retry = idempotencyService.transferMoney("chave-2", transfer("25.00"));
+
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.transaction()).isEqualTo(original);
+        assertThat(balance("4000000001")).isEqualByComparingTo("75.00");
+    }
+
+    @Test
+    void rejectsSameKeyWithDifferentRequest() {
+        idempotencyService.transferMoney("chave-3", transfer("10.00"));
+
+        assertThatThrownBy(() -> idempotencyService.transferMoney("chave-3", transfer("11.00")))
+                .isInstanceOf(IdempotencyKeyReuseException.class);
+        recentTransfers().clear();
+        assertThatThrownBy(() -> idempotencyService.transferMoney("chave-3", transfer("11.00")))
+                .isInstanceOf(IdempotencyKeyReuseException.class);
+        assertThat(balance("4000000001")).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void concurrentDuplicatesExecuteOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<IdempotencyService.IdempotentTransfer>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return idempotencyService.transferMoney("chave-4", transfer("5.00"));
+                }));
+            }
+            start.countDown();
+
+            List<IdempotencyService.IdempotentTransfer> results = new ArrayList<>();
+            for (Future<IdempotencyService.IdempotentTransfer> future : futures) {
+                results.add(future.get());
+            }
+            assertThat(results).extracting(result -> result.transaction().getId()).containsOnly(results.get(0).transaction().getId());
+            assertThat(results).filteredOn(result -> !result.replayed()).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(balance("4000000001")).isEqualByComparingTo("95.00");
+        assertThat(transactionRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredKeyIsPurgedAndCanBeReused() {
+        idempotencyService.transferMoney("chave-5", transfer("10.00"));
+        IdempotencyRecord record = recordRepository.findBySourceAccountNumberAndIdempotencyKey("4000000001", "chave-5").orElseThrow();
+        record.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        recordRepository.save(record);
+        recentTransfers().clear();
+
+        IdempotencyService.IdempotentTransfer again = idempotencyService.transferMoney("chave-5", transfer("10.00"));
+        assertThat(again.replayed()).isFalse();
+        assertThat(balance("4000000001")).isEqualByComparingTo("80.00");
+
+        record = recordRepository.findBySourceAccountNumberAndIdempotencyKey("4000000001", "chave-5").orElseThrow();
+        record.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        recordRepository.save(record);
+        idempotencyService.purgeExpired();
+        assertThat(recordRepository.count()).isZero();
+    }
+
+    // Outro cliente escolhendo a mesma chave recebe a própria transferência, nunca a gravada para o primeiro
+    @Test
+    void sameKeyFromAnotherSourceAccountIsIndependent() {
+        TransactionDTO mine = idempotencyService.transferMoney("chave-6", transfer("10.00")).transaction();
+
+        IdempotencyService.IdempotentTransfer theirs = idempotencyService.transferMoney("chave-6",
+                new TransferDTO("4000000003", "4000000002", new BigDecimal("30.00"), "outro"));
+        assertThat(theirs.replayed()).isFalse();
+        assertThat(theirs.transaction().getId()).isNotEqualTo(mine.getId());
+        assertThat(theirs.transaction().getSourceAccountNumber()).isEqualTo("4000000003");
+
+        // Também depois de um reinício, vindo da tabela
+        recentTransfers().clear();
+        assertThat(idempotencyService.transferMoney("chave-6", transfer("10.00")).transaction()).isEqualTo(mine);
+        assertThat(balance("4000000001")).isEqualByComparingTo("90.00");
+        assertThat(balance("4000000003")).isEqualByComparingTo("70.00");
+        assertThat(recordRepository.count()).isEqualTo(2);
+    }
+
+    private TransferDTO transfer(String amount) {
+        return new TransferDTO("4000000001", "4000000002", new BigDecimal(amount), "retry");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> recentTransfers() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(idempotencyService, "recentTransfers");
+    }
+
+    private BigDecimal balance(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance();
+    }
+}
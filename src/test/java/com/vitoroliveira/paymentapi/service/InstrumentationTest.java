@@ -0,0 +1,229 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.config.MetricsConfig;
+import com.vitoroliveira.paymentapi.dto.BatchTransferRequest;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.security.JwtRequestFilter;
+import com.vitoroliveira.paymentapi.security.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Instrumentação dos caminhos quentes: resultados e fases das transferências, validação de JWT e
+// métodos de repositório, com histogramas exportáveis. O custo da instrumentação é medido no
+// TransferMetricsBenchmark (JMH), não aqui
+@SpringBootTest
+class InstrumentationTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BatchTransferService batchTransferService;
+
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    @Autowired
+    private JwtRequestFilter jwtRequestFilter;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Account source;
+    private Account target;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Métricas", "metricas@teste.com", "44455566677");
+
+        source = fixtures.createAccount(user, "4000000001", new BigDecimal("1000000.00"));
+        target = fixtures.createAccount(user, "4000000002", BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void transfersAreCountedByOutcomeAndTimedByPhase() {
+        double completed = outcome("completed");
+        double insufficientFunds = outcome("insufficient_funds");
+        double accountNotFound = outcome("account_not_found");
+        long latency = timer("payment.transfer.latency").count();
+        long lockWait = phase("lock_wait").count();
+        long database = phase("db").count();
+        long commit = phase("commit").count();
+
+        transactionService.transferMoney(transfer(source, target.getAccountNumber(), "10.00"));
+        assertThatThrownBy(() -> transactionService.transferMoney(transfer(target, source.getAccountNumber(), "999.00")))
+                .hasMessage("Saldo insuficiente para realizar a transferência");
+        assertThatThrownBy(() -> transactionService.transferMoney(transfer(source, "9999999999", "1.00")))
+                .isInstanceOf(EntityNotFoundException.class);
+
+        assertThat(outcome("completed")).isEqualTo(completed + 1);
+        assertThat(outcome("insufficient_funds")).isEqualTo(insufficientFunds + 1);
+        assertThat(outcome("account_not_found")).isEqualTo(accountNotFound + 1);
+        assertThat(timer("payment.transfer.latency").count()).isEqualTo(latency + 3);
+        // Modo PESSIMISTIC: as três passam pelos locks em memória; só a concluída chega ao commit
+        assertThat(phase("lock_wait").count()).isEqualTo(lockWait + 3);
+        assertThat(phase("db").count()).isEqualTo(database + 1);
+        assertThat(phase("commit").count()).isEqualTo(commit + 1);
+
+        // Os buckets do histograma só aparecem no registro do Prometheus (teste do scrape abaixo)
+        assertThat(timer("payment.transfer.latency").takeSnapshot().percentileValues())
+                .extracting(ValueAtPercentile::percentile).containsExactly(0.5, 0.99, 0.999);
+    }
+
+    @Test
+    void batchAndAsyncItemsAreCountedByOutcome() throws InterruptedException {
+        double completed = outcome("completed");
+        double insufficientFunds = outcome("insufficient_funds");
+        double accountNotFound = outcome("account_not_found");
+        double rolledBack = outcome("rolled_back");
+        long latency = timer("payment.transfer.latency").count();
+
+        batchTransferService.transferBatch(new BatchTransferRequest(List.of(
+                transfer(source, target.getAccountNumber(), "10.00"),
+                transfer(target, source.getAccountNumber(), "999.00"),
+                new TransferDTO("9999999999", target.getAccountNumber(), new BigDecimal("1.00"), "métricas")
+        ), BatchTransferRequest.BatchMode.BEST_EFFORT));
+        batchTransferService.transferBatch(new BatchTransferRequest(List.of(
+                transfer(source, target.getAccountNumber(), "1.00"),
+                transfer(target, source.getAccountNumber(), "999.00")
+        ), BatchTransferRequest.BatchMode.ALL_OR_NOTHING));
+
+        assertThat(outcome("completed")).isEqualTo(completed + 1);
+        assertThat(outcome("insufficient_funds")).isEqualTo(insufficientFunds + 2);
+        assertThat(outcome("account_not_found")).isEqualTo(accountNotFound + 1);
+        assertThat(outcome("rolled_back")).isEqualTo(rolledBack + 1);
+
+        TransactionDTO pending = asyncTransferService.submitTransfer(transfer(source, target.getAccountNumber(), "1.00"));
+        // O contador é incrementado logo depois do commit que grava COMPLETED
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (outcome("completed") < completed + 2) {
+            assertThat(System.currentTimeMillis()).as("liquidação contada dentro do prazo").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+        assertThat(asyncTransferService.getTransferStatus(pending.getId()).getStatus()).isEqualTo("COMPLETED");
+        // Latência e fases continuam exclusivas da transferência individual
+        assertThat(timer("payment.transfer.latency").count()).isEqualTo(latency);
+    }
+
+    @Test
+    void jwtValidationAndRepositoryMethodsAreTimed() throws Exception {
+        String token = jwtUtil.generateToken(new org.springframework.security.core.userdetails.User(
+                "metricas@teste.com", "", List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        long authenticated = jwtTimer("authenticated").count();
+        long rejected = jwtTimer("rejected").count();
+
+        filter("Bearer " + token);
+        filter("Bearer token-invalido");
+        filter(null);
+
+        assertThat(jwtTimer("authenticated").count()).isEqualTo(authenticated + 1);
+        assertThat(jwtTimer("rejected").count()).isEqualTo(rejected + 1);
+
+        transactionService.transferMoney(transfer(source, target.getAccountNumber(), "1.00"));
+        Timer findKeys = meterRegistry.get("spring.data.repository.invocations")
+                .tag("repository", "AccountRepository")
+                .tag("method", "findKeysByAccountNumberIn")
+                .timer();
+        assertThat(findKeys.count()).isPositive();
+        assertThat(findKeys.takeSnapshot().percentileValues()).hasSize(3);
+    }
+
+    @Test
+    void prometheusScrapeCarriesBucketsAndPercentiles() {
+        PrometheusMeterRegistry prometheus = prometheusRegistry();
+        TransferMetrics transferMetrics = new TransferMetrics(prometheus);
+        record(transferMetrics, 10);
+
+        String scrape = prometheus.scrape();
+        assertThat(scrape)
+                .contains("payment_transfer_latency_seconds_bucket{le=")
+                .contains("payment_transfer_latency_seconds{quantile=\"0.999\"")
+                .contains("payment_transfer_phase_seconds_bucket{phase=\"lock_wait\"")
+                .contains("payment_transfer_outcomes_total{outcome=\"completed\"");
+    }
+
+    // Registro com a mesma configuração da aplicação (histograma e p50/p99/p999)
+    private static PrometheusMeterRegistry prometheusRegistry() {
+        PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        prometheus.config().meterFilter(MetricsConfig.latencyDistribution(true, 0.5, 0.99, 0.999));
+        return prometheus;
+    }
+
+    // O que uma transferência concluída no modo PESSIMISTIC registra
+    private static void record(TransferMetrics transferMetrics, int transfers) {
+        for (int i = 0; i < transfers; i++) {
+            TransferMetrics.Phases phases = transferMetrics.start();
+            phases.locked();
+            phases.bodyStarted();
+            phases.bodyEnded();
+            phases.committed();
+            phases.completed();
+        }
+    }
+
+    private void filter(String authorization) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/accounts/my-accounts");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        jwtRequestFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("payment.transfer.outcomes").tag("outcome", outcome).counter().count();
+    }
+
+    private Timer phase(String phase) {
+        return meterRegistry.get("payment.transfer.phase").tag("phase", phase).timer();
+    }
+
+    private Timer jwtTimer(String result) {
+        return meterRegistry.get("payment.jwt.validation").tag("result", result).timer();
+    }
+
+    private Timer timer(String name) {
+        return meterRegistry.get(name).timer();
+    }
+
+    private static TransferDTO transfer(Account from, String toAccountNumber, String amount) {
+        return new TransferDTO(from.getAccountNumber(), toAccountNumber, new BigDecimal(amount), "métricas");
+    }
+}
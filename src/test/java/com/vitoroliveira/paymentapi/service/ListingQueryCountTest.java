@@ -0,0 +1,177 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.AccountDTO;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.Transaction;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Listagens com número constante de comandos SQL: com 5 ou 50 linhas, cada listagem prepara
+// os mesmos comandos, no máximo MAX_STATEMENTS. Um N+1 (contas ou usuário carregados por linha)
+// faz a contagem crescer com o número de linhas e derruba o build
+@SpringBootTest
+class ListingQueryCountTest {
+
+    private static final int MAX_STATEMENTS = 3;
+    private static final String ACCOUNT = "7100000000";
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Statistics statistics;
+    private User user;
+    private Account account;
+    private int counterparties;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        user = fixtures.createUser("Listagens", "listagens@teste.com", "77788899900");
+
+        account = createAccount(ACCOUNT);
+        counterparties = 0;
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        fixtures.deleteAll("account_balance_shards");
+    }
+
+    @Test
+    void accountTransactionListings() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now().plusDays(1);
+        PageRequest firstPage = PageRequest.of(0, 3, Sort.by(Sort.Order.desc("transactionDate"), Sort.Order.desc("id")));
+
+        addTransactions(5);
+        long list = statements(() -> transactionService.getAccountTransactions(ACCOUNT));
+        long paged = statements(() -> transactionService.getAccountTransactionsPaged(ACCOUNT, firstPage));
+        long cursor = statements(() -> transactionService.getAccountTransactionsByCursor(ACCOUNT, null, 10));
+        long dateRange = statements(() -> transactionService.getTransactionsByDateRange(start, end));
+
+        addTransactions(45);
+        assertConstant("lista", list, () -> transactionService.getAccountTransactions(ACCOUNT));
+        assertConstant("paginada", paged, () -> transactionService.getAccountTransactionsPaged(ACCOUNT, firstPage));
+        assertConstant("cursor", cursor, () -> transactionService.getAccountTransactionsByCursor(ACCOUNT, null, 10));
+        assertConstant("período", dateRange, () -> transactionService.getTransactionsByDateRange(start, end));
+
+        List<TransactionDTO> transactions = transactionService.getAccountTransactions(ACCOUNT);
+        assertThat(transactions).hasSize(50);
+        assertThat(transactions).allSatisfy(transaction -> {
+            assertThat(List.of(transaction.getSourceAccountNumber(), transaction.getTargetAccountNumber())).contains(ACCOUNT);
+            assertThat(transaction.getType()).isEqualTo("TRANSFER");
+            assertThat(transaction.getStatus()).isEqualTo("COMPLETED");
+        });
+
+        Long id = transactions.get(0).getId();
+        assertThat(statements(() -> transactionService.getTransactionById(id))).isEqualTo(1);
+        assertThat(transactionService.getTransactionById(id)).isEqualTo(transactions.get(0));
+    }
+
+    @Test
+    void userAccountListing() {
+        accountService.configureBalanceShards(ACCOUNT, 4);
+        addCounterparties(4);
+        long small = statements(() -> accountService.getUserAccounts(user.getId()));
+
+        addCounterparties(45);
+        assertConstant("contas do usuário", small, () -> accountService.getUserAccounts(user.getId()));
+
+        List<AccountDTO> accounts = accountService.getUserAccounts(user.getId());
+        assertThat(accounts).hasSize(50);
+        assertThat(accounts).allSatisfy(dto -> assertThat(dto.getUserId()).isEqualTo(user.getId()));
+        assertThat(accounts).filteredOn(dto -> dto.getAccountNumber().equals(ACCOUNT))
+                .singleElement()
+                .satisfies(dto -> {
+                    assertThat(dto.getBalanceShards()).isEqualTo(4);
+                    assertThat(dto.getBalance()).isEqualByComparingTo("1000.00");
+                });
+
+        // Sem cache: uma consulta pela conta e uma pelos buckets
+        assertThat(statements(() -> accountService.getAccountByNumber(counterpartyNumber(1)))).isLessThanOrEqualTo(1);
+        assertThat(statements(() -> accountService.getAccountByNumber(ACCOUNT))).isLessThanOrEqualTo(2);
+    }
+
+    private void assertConstant(String listing, long expected, Supplier<?> call) {
+        long actual = statements(call);
+        assertThat(actual).as("comandos na listagem %s", listing).isEqualTo(expected);
+        assertThat(actual).as("comandos na listagem %s", listing).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    private long statements(Supplier<?> call) {
+        statistics.clear();
+        call.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Cada transação com uma contraparte diferente, alternando enviadas e recebidas
+    private void addTransactions(int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        List<Account> accounts = addCounterparties(count);
+        for (int i = 0; i < accounts.size(); i++) {
+            Account counterparty = accounts.get(i);
+            boolean sent = i % 2 == 0;
+            Transaction transaction = new Transaction();
+            transaction.setSourceAccount(sent ? account : counterparty);
+            transaction.setTargetAccount(sent ? counterparty : account);
+            transaction.setAmount(BigDecimal.ONE);
+            transaction.setType(Transaction.TransactionType.TRANSFER);
+            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            transaction.setDescription("listagem");
+            transactions.add(transaction);
+        }
+        transactionRepository.saveAll(transactions);
+    }
+
+    private List<Account> addCounterparties(int count) {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            counterparties++;
+            accounts.add(createAccount(counterpartyNumber(counterparties)));
+        }
+        return accounts;
+    }
+
+    private static String counterpartyNumber(int index) {
+        return String.valueOf(7_100_000_000L + index);
+    }
+
+    private Account createAccount(String accountNumber) {
+        return fixtures.createAccount(user, accountNumber, new BigDecimal("1000.00"));
+    }
+}
@@ -0,0 +1,190 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.exception.LoginThrottledException;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class LoginServiceTest {
+
+    private static final String PASSWORD = "senha-correta";
+
+    @Autowired
+    private LoginService loginService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void hashWithoutAlgorithmPrefixIsUpgradedOnLogin() {
+        // Formato gravado antes do DelegatingPasswordEncoder: BCrypt puro
+        createUser("legado@teste.com", "11122233301", new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        login("legado@teste.com", PASSWORD, "10.0.0.1");
+
+        String stored = userRepository.findByEmail("legado@teste.com").orElseThrow().getPassword();
+        assertThat(stored).startsWith("{bcrypt}$2a$10$");
+        assertThat(passwordEncoder.matches(PASSWORD, stored)).isTrue();
+        login("legado@teste.com", PASSWORD, "10.0.0.1");
+    }
+
+    @Test
+    void weakerBcryptCostIsUpgradedOnLogin() {
+        createUser("custo@teste.com", "11122233302", "{bcrypt}" + new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        login("custo@teste.com", PASSWORD, "10.0.0.2");
+
+        assertThat(userRepository.findByEmail("custo@teste.com").orElseThrow().getPassword()).startsWith("{bcrypt}$2a$10$");
+    }
+
+    @Test
+    void repeatedFailuresForAnEmailAreRejectedBeforeHashing() {
+        createUser("alvo@teste.com", "11122233303", passwordEncoder.encode(PASSWORD));
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> login("alvo@teste.com", "errada", "10.0.0.3"))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+        double rejectedBefore = rejected("failures");
+
+        // Do mesmo IP nem a senha certa passa, e o email não diferencia maiúsculas
+        assertThatThrownBy(() -> login("ALVO@teste.com", PASSWORD, "10.0.0.3"))
+                .isInstanceOf(LoginThrottledException.class);
+        assertThat(rejected("failures") - rejectedBefore).isEqualTo(1);
+    }
+
+    @Test
+    void failuresFromAnotherIpDoNotLockTheOwnerOut() {
+        createUser("titular@teste.com", "11122233305", passwordEncoder.encode(PASSWORD));
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> login("titular@teste.com", "errada", "10.0.0.8"))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+        assertThatThrownBy(() -> login("titular@teste.com", PASSWORD, "10.0.0.8"))
+                .isInstanceOf(LoginThrottledException.class);
+
+        assertThat(login("titular@teste.com", PASSWORD, "10.0.0.9").isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void repeatedFailuresFromAnIpAreRejectedForAnyEmail() {
+        for (int i = 0; i < 20; i++) {
+            String email = "inexistente" + i + "@teste.com";
+            assertThatThrownBy(() -> login(email, "qualquer", "10.0.0.5"))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+        createUser("vizinho@teste.com", "11122233304", passwordEncoder.encode(PASSWORD));
+
+        assertThatThrownBy(() -> login("vizinho@teste.com", PASSWORD, "10.0.0.5"))
+                .isInstanceOf(LoginThrottledException.class);
+        assertThat(login("vizinho@teste.com", PASSWORD, "10.0.0.6").isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void saturatedLoginPoolRejectsImmediately() {
+        CountDownLatch release = new CountDownLatch(1);
+        // Uma thread verificando e uma vaga na fila
+        LoginService saturated = new LoginService(blockingHash(release), new SimpleMeterRegistry(), 1, 1, 10_000, 5, 20, 15);
+        try {
+            // Quem chama não espera pela verificação: os dois primeiros logins devolvem o futuro na hora
+            List<CompletableFuture<Authentication>> pending = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                pending.add(saturated.authenticate("fila" + i + "@teste.com", "x", "10.0.1." + i));
+            }
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> saturated.authenticate("terceiro@teste.com", "x", "10.0.0.7"))
+                    .isInstanceOf(LoginThrottledException.class);
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+
+            release.countDown();
+            for (CompletableFuture<Authentication> future : pending) {
+                assertThatThrownBy(future::join).hasCauseInstanceOf(BadCredentialsException.class);
+            }
+        } finally {
+            release.countDown();
+            saturated.destroy();
+        }
+    }
+
+    @Test
+    void slowVerificationFailsTheFutureWithoutBlockingTheCaller() {
+        CountDownLatch release = new CountDownLatch(1);
+        LoginService slow = new LoginService(blockingHash(release), new SimpleMeterRegistry(), 1, 1, 200, 5, 20, 15);
+        try {
+            long start = System.nanoTime();
+            CompletableFuture<Authentication> result = slow.authenticate("lento@teste.com", "x", "10.0.2.1");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(150);
+
+            assertThatThrownBy(result::join).hasCauseInstanceOf(LoginThrottledException.class);
+        } finally {
+            release.countDown();
+            slow.destroy();
+        }
+    }
+
+    // Verificação de senha que só termina (com senha errada) quando o latch é liberado
+    private static AuthenticationManager blockingHash(CountDownLatch release) {
+        return authentication -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new BadCredentialsException("senha errada");
+        };
+    }
+
+    // Espera o login e relança a falha como o controller a recebe
+    private Authentication login(String email, String password, String clientIp) {
+        try {
+            return loginService.authenticate(email, password, clientIp).join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private void createUser(String email, String cpf, String encodedPassword) {
+        User user = new User();
+        user.setName("Usuário de Login");
+        user.setEmail(email);
+        user.setCpf(cpf);
+        user.setPassword(encodedPassword);
+        userRepository.save(user);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("payment.login.rejected").tag("reason", reason).counter().count();
+    }
+}
@@ -0,0 +1,116 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.model.RefreshToken;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.RefreshTokenRepository;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import com.vitoroliveira.paymentapi.security.AuthenticatedUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void loginRotatesTheExistingRowWithASingleStatement() {
+        AuthenticatedUser user = newUser("rotacao@teste.com", "10020030040");
+        String first = refreshTokenService.rotateRefreshToken(user);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        String second = refreshTokenService.rotateRefreshToken(user);
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(second).isNotEqualTo(first);
+        assertThat(refreshTokenRepository.count()).isEqualTo(1);
+        assertThat(refreshTokenRepository.findByToken(first)).isEmpty();
+        assertThat(refreshTokenRepository.findByToken(second)).isPresent();
+    }
+
+    @Test
+    void logoutRevokesAndNextLoginReactivates() {
+        AuthenticatedUser user = newUser("logout@teste.com", "20030040050");
+        String token = refreshTokenService.rotateRefreshToken(user);
+
+        refreshTokenService.revokeUserTokens(user.getUsername());
+        assertThat(refreshTokenRepository.findByToken(token)).get().extracting(RefreshToken::isRevoked).isEqualTo(true);
+
+        String next = refreshTokenService.rotateRefreshToken(user);
+        assertThat(refreshTokenRepository.findByToken(next)).get().extracting(RefreshToken::isRevoked).isEqualTo(false);
+    }
+
+    @Test
+    void sweepRemovesExpiredAndRevokedTokensInBatches() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 5; i++) {
+            saveToken(newUser("expirado" + i + "@teste.com", "3000000000" + i), now.minus(1, ChronoUnit.HOURS), false);
+        }
+        saveToken(newUser("revogado@teste.com", "40000000000"), now.plus(1, ChronoUnit.DAYS), true);
+        RefreshToken valid = saveToken(newUser("valido@teste.com", "50000000000"), now.plus(1, ChronoUnit.DAYS), false);
+        double sweptBefore = meterRegistry.counter("payment.refresh-tokens.swept").count();
+        long sweepsBefore = meterRegistry.timer("payment.refresh-tokens.sweep").count();
+
+        // Lotes de 2 para cobrir várias iterações
+        RefreshTokenService smallBatches = new RefreshTokenService(refreshTokenRepository, userRepository, meterRegistry, 604_800_000, 2);
+        int removed = smallBatches.sweepExpired();
+
+        assertThat(removed).isEqualTo(6);
+        assertThat(refreshTokenRepository.findAll()).extracting(RefreshToken::getToken).containsExactly(valid.getToken());
+        assertThat(meterRegistry.counter("payment.refresh-tokens.swept").count() - sweptBefore).isEqualTo(6);
+        assertThat(meterRegistry.timer("payment.refresh-tokens.sweep").count() - sweepsBefore).isEqualTo(1);
+    }
+
+    private AuthenticatedUser newUser(String email, String cpf) {
+        User user = fixtures.createUser("Refresh", email, cpf);
+        return new AuthenticatedUser(user.getId(), email, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    private RefreshToken saveToken(AuthenticatedUser user, Instant expiryDate, boolean revoked) {
+        String token = refreshTokenService.rotateRefreshToken(user);
+        RefreshToken refreshToken = refreshTokenRepository.findByToken(token).orElseThrow();
+        refreshToken.setExpiryDate(expiryDate);
+        refreshToken.setRevoked(revoked);
+        return refreshTokenRepository.save(refreshToken);
+    }
+}
@@ -0,0 +1,204 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.exception.ConcurrencyConflictException;
+import com.vitoroliveira.paymentapi.exception.InsufficientFundsException;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountBalanceShardRepository;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ShardedBalanceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedBalanceTest.class);
+
+    private static final int SOURCES = 32;
+    private static final int THREADS = 64;
+    private static final int TRANSFERS = 1000;
+    private static final BigDecimal SOURCE_BALANCE = new BigDecimal("100000.00");
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountBalanceShardRepository shardRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private final List<String> sources = new ArrayList<>();
+    private String hotAccount;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Lojista Quente", "lojista@teste.com", "98765432100");
+
+        hotAccount = createAccount(user, "9000000000", BigDecimal.ZERO);
+        for (int i = 0; i < SOURCES; i++) {
+            sources.add(createAccount(user, String.format("%010d", 9000000001L + i), SOURCE_BALANCE));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        shardRepository.deleteAll();
+        fixtures.deleteAll();
+        accountCache.invalidateAll();
+        sources.clear();
+    }
+
+    @Test
+    void shardedHotAccountReceivesConcurrentCreditsAndReportsSummedBalance() throws Exception {
+        CreditRun unsharded = creditHotAccount();
+        accountService.configureBalanceShards(hotAccount, 16);
+        CreditRun sharded = creditHotAccount();
+
+        log.info("Conta quente com {} threads: {} transferências/s ({} conflitos) sem buckets, {} transferências/s ({} conflitos) com 16 buckets",
+                THREADS, String.format("%.0f", unsharded.perSecond()), unsharded.conflicts(),
+                String.format("%.0f", sharded.perSecond()), sharded.conflicts());
+
+        BigDecimal expected = BigDecimal.valueOf(unsharded.completed() + sharded.completed());
+        assertThat(accountService.getAccountByNumber(hotAccount).getBalance()).isEqualByComparingTo(expected);
+        assertThat(shardRepository.sumBalanceByAccountId(accountRepository.findByAccountNumber(hotAccount)
+                .orElseThrow().getId())).isEqualByComparingTo(BigDecimal.valueOf(sharded.completed()));
+        assertThat(totalBalance()).isEqualByComparingTo(SOURCE_BALANCE.multiply(BigDecimal.valueOf(SOURCES)));
+    }
+
+    @Test
+    void debitFromShardedAccountSweepsBuckets() {
+        accountService.configureBalanceShards(hotAccount, 4);
+        for (String source : sources.subList(0, 8)) {
+            transactionService.transferMoney(new TransferDTO(source, hotAccount, new BigDecimal("10.00"), "crédito"));
+        }
+
+        // O saldo principal está zerado; o débito precisa consolidar os buckets
+        transactionService.transferMoney(new TransferDTO(hotAccount, sources.get(0), new BigDecimal("75.00"), "saque"));
+
+        Account account = accountRepository.findByAccountNumber(hotAccount).orElseThrow();
+        assertThat(account.getBalance()).isEqualByComparingTo("5.00");
+        assertThat(shardRepository.sumBalanceByAccountId(account.getId())).isEqualByComparingTo(BigDecimal.ZERO);
+
+        // Desativar o particionamento mantém o saldo total
+        transactionService.transferMoney(new TransferDTO(sources.get(1), hotAccount, new BigDecimal("1.00"), "crédito"));
+        assertThat(accountService.configureBalanceShards(hotAccount, 0).getBalance()).isEqualByComparingTo("6.00");
+        assertThat(shardRepository.count()).isZero();
+    }
+
+    // Modo ATOMIC não usa os locks em memória. A conta particionada tem ID menor e saldo principal
+    // zerado: cada débito dela consolida os buckets, que só podem ser bloqueados depois da linha da
+    // outra conta; no sentido inverso a outra conta é debitada e um bucket da particionada é creditado
+    @Test
+    void atomicTransfersBothWaysBetweenShardedAndPlainAccountDoNotDeadlock() throws Exception {
+        accountService.configureBalanceShards(hotAccount, 4);
+        String plain = sources.get(0);
+        ReflectionTestUtils.setField(transactionService, "concurrencyMode", TransactionService.ConcurrencyMode.ATOMIC);
+
+        ConcurrentLinkedQueue<RuntimeException> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                boolean toHot = i % 2 == 0;
+                TransferDTO transfer = new TransferDTO(toHot ? plain : hotAccount, toHot ? hotAccount : plain,
+                        BigDecimal.ONE, "ida e volta");
+                futures.add(executor.submit(() -> {
+                    try {
+                        transactionService.transferMoney(transfer);
+                    } catch (InsufficientFundsException e) {
+                        // A conta particionada pode ainda não ter recebido nada
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            ReflectionTestUtils.setField(transactionService, "concurrencyMode", TransactionService.ConcurrencyMode.PESSIMISTIC);
+        }
+
+        assertThat(failures).isEmpty();
+        BigDecimal hot = accountService.getAccountByNumber(hotAccount).getBalance();
+        BigDecimal other = accountService.getAccountByNumber(plain).getBalance();
+        assertThat(hot.add(other)).isEqualByComparingTo(SOURCE_BALANCE);
+    }
+
+    // Sem buckets as 64 threads disputam a listra da conta quente; sob carga uma transferência pode passar
+    // do lock-timeout-ms padrão (5s) e desistir com 409 sem mover saldo, então conflitos são contados
+    private CreditRun creditHotAccount() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < TRANSFERS; i++) {
+                String source = sources.get(i % SOURCES);
+                futures.add(executor.submit(() -> {
+                    try {
+                        transactionService.transferMoney(new TransferDTO(source, hotAccount, BigDecimal.ONE, "pagamento"));
+                        completed.incrementAndGet();
+                    } catch (ConcurrencyConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertThat(completed.get() + conflicts.get()).isEqualTo(TRANSFERS);
+            return new CreditRun(completed.get(), conflicts.get(),
+                    TRANSFERS / ((System.nanoTime() - start) / 1_000_000_000.0));
+        } finally {
+            executor.shutdownNow();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    private record CreditRun(int completed, int conflicts, double perSecond) {
+    }
+
+    private BigDecimal totalBalance() {
+        return accountRepository.findAll().stream()
+                .map(account -> accountService.getAccountByNumber(account.getAccountNumber()).getBalance())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private String createAccount(User user, String accountNumber, BigDecimal balance) {
+        return fixtures.createAccount(user, accountNumber, balance).getAccountNumber();
+    }
+}
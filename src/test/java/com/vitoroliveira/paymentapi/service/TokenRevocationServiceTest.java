@@ -0,0 +1,104 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.repository.RevokedTokenRepository;
+import com.vitoroliveira.paymentapi.security.AuthenticatedUser;
+import com.vitoroliveira.paymentapi.security.JwtRequestFilter;
+import com.vitoroliveira.paymentapi.security.JwtUtil;
+import com.vitoroliveira.paymentapi.security.TokenClaims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TokenRevocationServiceTest {
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private JwtRequestFilter jwtRequestFilter;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        revokedTokenRepository.deleteAll();
+    }
+
+    @Test
+    void revokedTokenNoLongerAuthenticates() throws Exception {
+        String token = newToken();
+        String otherToken = newToken();
+        assertThat(authenticates(token)).isTrue();
+
+        tokenRevocationService.revoke(jwtUtil.getVerifiedClaims(token));
+
+        assertThat(authenticates(token)).isFalse();
+        assertThat(authenticates(otherToken)).isTrue();
+    }
+
+    @Test
+    void revokingTwiceKeepsASingleRow() {
+        TokenClaims claims = jwtUtil.getVerifiedClaims(newToken());
+
+        tokenRevocationService.revoke(claims);
+        tokenRevocationService.revoke(claims);
+
+        assertThat(revokedTokenRepository.count()).isEqualTo(1);
+        assertThat(tokenRevocationService.isRevoked(claims)).isTrue();
+    }
+
+    @Test
+    void listIsRebuiltFromTheTableOnStartup() {
+        TokenClaims claims = jwtUtil.getVerifiedClaims(newToken());
+        tokenRevocationService.revoke(claims);
+
+        // Outra instância (ou um reinício) só conhece a tabela
+        TokenRevocationService restarted = new TokenRevocationService(revokedTokenRepository, 3_600_000, 300, 1000, 0.001, 5000);
+        assertThat(restarted.isRevoked(claims)).isFalse();
+        restarted.afterSingletonsInstantiated();
+
+        assertThat(restarted.isRevoked(claims)).isTrue();
+        assertThat(restarted.isRevoked(jwtUtil.getVerifiedClaims(newToken()))).isFalse();
+    }
+
+    @Test
+    void revocationsFromOtherInstancesArriveOnSync() {
+        TokenRevocationService otherInstance = new TokenRevocationService(revokedTokenRepository, 3_600_000, 300, 1000, 0.001, 5000);
+        otherInstance.afterSingletonsInstantiated();
+        TokenClaims claims = jwtUtil.getVerifiedClaims(newToken());
+
+        tokenRevocationService.revoke(claims);
+        assertThat(otherInstance.isRevoked(claims)).isFalse();
+        otherInstance.syncRevocations();
+
+        assertThat(otherInstance.isRevoked(claims)).isTrue();
+    }
+
+    private String newToken() {
+        return jwtUtil.generateToken(new AuthenticatedUser(1L, "revogacao@teste.com", List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    private boolean authenticates(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/accounts/my-accounts");
+        request.addHeader("Authorization", "Bearer " + token);
+        jwtRequestFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication() != null;
+    }
+}
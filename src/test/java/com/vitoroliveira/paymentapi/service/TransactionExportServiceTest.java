@@ -0,0 +1,205 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class TransactionExportServiceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionExportServiceTest.class);
+
+    private static final String ACCOUNT = "8000000001";
+    private static final String COUNTERPARTY = "8000000002";
+    private static final String OTHER = "8000000003";
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Account account;
+    private Account counterparty;
+    private Account other;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Exportação", "exportacao@teste.com", "99900011122");
+
+        account = fixtures.createAccount(user, ACCOUNT);
+        counterparty = fixtures.createAccount(user, COUNTERPARTY);
+        other = fixtures.createAccount(user, OTHER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void ndjsonExportIsOneQueryWithAccountNumbersProjected() throws Exception {
+        seed(1, account, counterparty, 0, 600);
+        seed(601, counterparty, account, 600, 400);
+        seed(1001, counterparty, other, 1000, 100);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written;
+        try {
+            written = transactionExportService.exportByAccount(ACCOUNT, TransactionExportService.ExportFormat.NDJSON)
+                    .writeTo(out);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        // Conta por número + a consulta da exportação, sem lazy loads por linha
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(written).isEqualTo(1000);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(1000);
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertThat(first.get("id").asLong()).isEqualTo(1);
+        assertThat(first.get("sourceAccountNumber").asText()).isEqualTo(ACCOUNT);
+        assertThat(first.get("targetAccountNumber").asText()).isEqualTo(COUNTERPARTY);
+        assertThat(first.get("type").asText()).isEqualTo("TRANSFER");
+        assertThat(first.get("transactionDate").asText()).isEqualTo("2026-03-01T00:00:00");
+        assertThat(objectMapper.readTree(lines.get(999)).get("sourceAccountNumber").asText()).isEqualTo(COUNTERPARTY);
+    }
+
+    @Test
+    void csvExportOfDateRangeIsOrderedAndEscaped() {
+        seed(1, account, counterparty, 0, 10);
+        jdbcTemplate.update("UPDATE transactions SET description = ? WHERE id = 2", "Aluguel, março \"pago\"");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = transactionExportService.exportByDateRange(START.plusSeconds(1), START.plusSeconds(3),
+                TransactionExportService.ExportFormat.CSV).writeTo(out);
+
+        assertThat(written).isEqualTo(3);
+        assertThat(out.toString(StandardCharsets.UTF_8).lines().toList()).containsExactly(
+                "id,sourceAccountNumber,targetAccountNumber,amount,transactionDate,type,description,status,failureReason",
+                "2,8000000001,8000000002,1.00,2026-03-01T00:00:01,TRANSFER,\"Aluguel, março \"\"pago\"\"\",COMPLETED,",
+                "3,8000000001,8000000002,1.00,2026-03-01T00:00:02,TRANSFER,exportacao,COMPLETED,",
+                "4,8000000001,8000000002,1.00,2026-03-01T00:00:03,TRANSFER,exportacao,COMPLETED,");
+    }
+
+    @Test
+    void invalidParametersFailBeforeAnythingIsWritten() {
+        assertThatThrownBy(() -> transactionExportService.exportByAccount("0000000000", TransactionExportService.ExportFormat.CSV))
+                .isInstanceOf(EntityNotFoundException.class);
+        assertThatThrownBy(() -> transactionExportService.exportByDateRange(START, START.minusDays(1),
+                TransactionExportService.ExportFormat.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TransactionExportService.ExportFormat.from("xml"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(TransactionExportService.ExportFormat.from("csv")).isEqualTo(TransactionExportService.ExportFormat.CSV);
+    }
+
+    @Test
+    void largeExportKeepsRetainedHeapFlat() {
+        int rows = 200_000;
+        seed(1, account, counterparty, 0, rows);
+        // Aquecimento
+        transactionExportService.exportByAccount(ACCOUNT, TransactionExportService.ExportFormat.NDJSON)
+                .writeTo(OutputStream.nullOutputStream());
+
+        long heapBefore = retainedHeap();
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream(8 * 1024 * 1024);
+        long start = System.nanoTime();
+        long written = transactionExportService.exportByAccount(ACCOUNT, TransactionExportService.ExportFormat.NDJSON)
+                .writeTo(out);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        long growth = out.maxRetainedHeap - heapBefore;
+        log.info("Exportação NDJSON: {} linhas ({} MB) em {} s, {} linhas/s; heap retido antes {} MB, maior crescimento {} MB",
+                written, out.bytes / (1024 * 1024), String.format("%.2f", seconds), String.format("%.0f", written / seconds),
+                heapBefore / (1024 * 1024), growth / (1024 * 1024));
+        assertThat(written).isEqualTo(rows);
+        assertThat(out.bytes).isGreaterThan(32L * 1024 * 1024);
+        // Materializar as linhas (entidades + DTOs) ocuparia várias vezes o tamanho da saída
+        assertThat(growth).isLessThan(out.bytes / 2);
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Descarta os bytes e mede o heap retido (após GC) a cada sampleEvery bytes escritos
+    private static class HeapSamplingOutputStream extends OutputStream {
+
+        private final long sampleEvery;
+        private long bytes;
+        private long nextSample;
+        private long maxRetainedHeap;
+
+        private HeapSamplingOutputStream(long sampleEvery) {
+            this.sampleEvery = sampleEvery;
+            this.nextSample = sampleEvery;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            if (bytes >= nextSample) {
+                maxRetainedHeap = Math.max(maxRetainedHeap, retainedHeap());
+                nextSample += sampleEvery;
+            }
+        }
+    }
+
+    // Linhas com ids firstId.. e uma por segundo a partir de START + firstSecond
+    private void seed(long firstId, Account source, Account target, long firstSecond, int rows) {
+        jdbcTemplate.update("INSERT INTO transactions (id, source_account_id, target_account_id, amount, transaction_date, " +
+                        "transaction_type, description, status) " +
+                        "SELECT CAST(? AS BIGINT) + r.\"X\", CAST(? AS BIGINT), CAST(? AS BIGINT), 1.00, " +
+                        "DATEADD(SECOND, CAST(? AS BIGINT) + r.\"X\", CAST(? AS TIMESTAMP)), " +
+                        "'TRANSFER', 'exportacao', 'COMPLETED' " +
+                        "FROM SYSTEM_RANGE(0, CAST(? AS BIGINT) - 1) r",
+                firstId, source.getId(), target.getId(), firstSecond, START, rows);
+    }
+}
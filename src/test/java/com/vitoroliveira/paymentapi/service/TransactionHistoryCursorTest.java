@@ -0,0 +1,142 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.TransactionCursorPage;
+import com.vitoroliveira.paymentapi.dto.TransactionDTO;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.Transaction;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Histórico por cursor: percorre todas as linhas sem repetir nem pular, e uma página funda traz
+// as mesmas linhas que a paginação por OFFSET. O custo por profundidade é medido no
+// TransactionHistoryBenchmark (perfil benchmark)
+@SpringBootTest
+class TransactionHistoryCursorTest {
+
+    private static final String ACCOUNT = "7000000001";
+    private static final String COUNTERPARTY = "7000000002";
+    private static final String OTHER = "7000000003";
+
+    private static final int PAGE_SIZE = 20;
+    private static final int DEPTH = 50;
+    private static final long FIRST_SEEDED_ID = 1_000_000_000_000L;
+    private static final LocalDateTime NEWEST = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Account account;
+    private Account counterparty;
+    private Account other;
+
+    @BeforeEach
+    void setUp() {
+        User user = fixtures.createUser("Histórico Longo", "historico@teste.com", "88899900011");
+
+        account = fixtures.createAccount(user, ACCOUNT);
+        counterparty = fixtures.createAccount(user, COUNTERPARTY);
+        other = fixtures.createAccount(user, OTHER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void walksTheWholeHistoryNewestFirstWithoutGapsOrRepeats() {
+        // Várias linhas no mesmo instante: o id desempata
+        seed(0, 45, account, counterparty, 3);
+        seed(45, 30, counterparty, account, 3);
+        seed(75, 10, counterparty, other, 1);
+        seed(85, 2, account, account, 1);
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionCursorPage page = transactionService.getAccountTransactionsByCursor(ACCOUNT, cursor, 7);
+            page.getContent().forEach(transaction -> walked.add(transaction.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<Long> expected = transactionRepository.findAllByAccount(account).stream()
+                .sorted((a, b) -> {
+                    int byDate = b.getTransactionDate().compareTo(a.getTransactionDate());
+                    return byDate != 0 ? byDate : b.getId().compareTo(a.getId());
+                })
+                .map(Transaction::getId)
+                .toList();
+        assertThat(expected).hasSize(77);
+        assertThat(walked).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void invalidCursorOrPageSizeIsRejected() {
+        assertThatThrownBy(() -> transactionService.getAccountTransactionsByCursor(ACCOUNT, "nao-e-um-cursor", 20))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> transactionService.getAccountTransactionsByCursor(ACCOUNT, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> transactionService.getAccountTransactionsByCursor(ACCOUNT, null,
+                TransactionService.MAX_CURSOR_PAGE_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void deepCursorPageMatchesTheOffsetPage() {
+        int rows = DEPTH * PAGE_SIZE + PAGE_SIZE;
+        // Metade enviada, metade recebida, mais movimento de outras contas
+        seed(0, rows, account, counterparty, 1);
+        jdbcTemplate.update("UPDATE transactions SET source_account_id = ?, target_account_id = ? " +
+                "WHERE MOD(id, 2) = 1", counterparty.getId(), account.getId());
+        seed(rows, rows / 2, counterparty, other, 1);
+
+        PageRequest deepPage = PageRequest.of(DEPTH, PAGE_SIZE,
+                Sort.by(Sort.Order.desc("transactionDate"), Sort.Order.desc("id")));
+        // Última linha da página anterior: a posição que o cliente recebeu como nextCursor
+        long previousRow = (long) DEPTH * PAGE_SIZE - 1;
+        String deepCursor = TransactionService.encodeCursor(NEWEST.minusSeconds(previousRow), FIRST_SEEDED_ID + previousRow);
+
+        Page<Transaction> offsetPage = transactionRepository.findAllByAccount(account, deepPage);
+        TransactionCursorPage cursorPage = transactionService.getAccountTransactionsByCursor(ACCOUNT, deepCursor, PAGE_SIZE);
+        assertThat(cursorPage.getContent()).extracting(TransactionDTO::getId)
+                .hasSize(PAGE_SIZE)
+                .containsExactlyElementsOf(offsetPage.getContent().stream().map(Transaction::getId).toList());
+    }
+
+    // Insere direto no banco, com ids e datas decrescentes a partir de NEWEST (rowsPerInstant linhas por segundo)
+    private void seed(long firstRow, int rows, Account source, Account target, int rowsPerInstant) {
+        jdbcTemplate.update("INSERT INTO transactions (id, source_account_id, target_account_id, amount, transaction_date, " +
+                        "transaction_type, description, status) " +
+                        "SELECT CAST(? AS BIGINT) + r.\"X\", CAST(? AS BIGINT), CAST(? AS BIGINT), 1.00, " +
+                        "DATEADD(SECOND, -((CAST(? AS BIGINT) + r.\"X\") / CAST(? AS INT)), CAST(? AS TIMESTAMP)), " +
+                        "'TRANSFER', 'carga', 'COMPLETED' " +
+                        "FROM SYSTEM_RANGE(0, CAST(? AS BIGINT) - 1) r",
+                FIRST_SEEDED_ID + firstRow, source.getId(), target.getId(), firstRow, rowsPerInstant, NEWEST, rows);
+    }
+}
@@ -0,0 +1,254 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.TransferDTO;
+import com.vitoroliveira.paymentapi.exception.ConcurrencyConflictException;
+import com.vitoroliveira.paymentapi.exception.GlobalExceptionHandler;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class TransactionServiceConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionServiceConcurrencyTest.class);
+
+    private static final int ACCOUNTS = 8;
+    private static final int TRANSFERS = 1000;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AccountLockManager accountLockManager;
+
+    @Autowired
+    private ShardedBalanceService shardedBalanceService;
+
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TransferMetrics transferMetrics;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User user;
+
+    private final List<String> accountNumbers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = fixtures.createUser("Teste Concorrência", "concorrencia@teste.com", "12345678901");
+
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountNumbers.add(createAccount(String.format("%010d", i + 1)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(transactionService, "concurrencyMode", TransactionService.ConcurrencyMode.PESSIMISTIC);
+        fixtures.deleteAll();
+        accountNumbers.clear();
+    }
+
+    @ParameterizedTest(name = "{0} com {1} threads")
+    @CsvSource({
+            "PESSIMISTIC, 1", "PESSIMISTIC, 8", "PESSIMISTIC, 64",
+            "OPTIMISTIC, 1", "OPTIMISTIC, 8", "OPTIMISTIC, 64",
+            "ATOMIC, 1", "ATOMIC, 8", "ATOMIC, 64"
+    })
+    void concurrentTransfersConserveTotalBalance(TransactionService.ConcurrencyMode mode, int threads) throws Exception {
+        ReflectionTestUtils.setField(transactionService, "concurrencyMode", mode);
+        double retriesBefore = meterRegistry.counter("payment.transfer.optimistic.retries").count();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        long start = System.nanoTime();
+        long elapsedNanos;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < TRANSFERS; i++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int source = random.nextInt(ACCOUNTS);
+                    int target = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    TransferDTO transfer = new TransferDTO(accountNumbers.get(source), accountNumbers.get(target),
+                            BigDecimal.valueOf(random.nextInt(1, 200)), "stress");
+                    try {
+                        transactionService.transferMoney(transfer);
+                        completed.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        // Saldo insuficiente é um resultado válido sob concorrência
+                        rejected.incrementAndGet();
+                    } catch (ConcurrencyConflictException e) {
+                        // No modo otimista a transferência pode desistir após N tentativas; no pessimista,
+                        // após o lock-timeout-ms padrão (5s) na fila do lock. Nos dois casos a API responde 409
+                        conflicts.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            elapsedNanos = System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        List<Account> accounts = accountRepository.findAll();
+        BigDecimal total = accounts.stream()
+                .map(Account::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)));
+        assertThat(accounts).allSatisfy(account -> assertThat(account.getBalance()).isNotNegative());
+        assertThat(completed.get() + rejected.get() + conflicts.get()).isEqualTo(TRANSFERS);
+        assertThat(transactionRepository.count()).isEqualTo(completed.get());
+
+        // Apenas informativo: a vazão depende da máquina e não é verificada. Transferências que desistiram
+        // por timeout de lock entram no tempo total e aparecem como conflitos ao lado da vazão
+        double perSecond = TRANSFERS / (elapsedNanos / 1_000_000_000.0);
+        double retries = meterRegistry.counter("payment.transfer.optimistic.retries").count() - retriesBefore;
+        log.info("{} com {} threads: {} transferências ({} concluídas, {} sem saldo, {} conflitos, {} novas tentativas) a {} transferências/s",
+                mode, threads, TRANSFERS, completed.get(), rejected.get(), conflicts.get(), (long) retries,
+                String.format("%.0f", perSecond));
+    }
+
+    // Com o lock-timeout-ms padrão, uma transferência que espera mais de 5s pelas contas desiste
+    // com ConcurrencyConflictException (409) sem mover saldo
+    @Test
+    void lockTimeoutIsReportedAsConflictWithoutMovingMoney() throws Exception {
+        String source = accountNumbers.get(0);
+        String target = accountNumbers.get(1);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService holder = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holding = holder.submit(() -> accountLockManager.withLocks(List.of(source, target), () -> {
+                locked.countDown();
+                try {
+                    return release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }));
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> transactionService.transferMoney(
+                    new TransferDTO(source, target, BigDecimal.TEN, "timeout")))
+                    .isInstanceOfSatisfying(ConcurrencyConflictException.class, e ->
+                            assertThat(new GlobalExceptionHandler().handleConcurrencyConflictException(e).getStatusCode())
+                                    .isEqualTo(HttpStatus.CONFLICT));
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(5000);
+
+            release.countDown();
+            holding.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            holder.shutdownNow();
+        }
+
+        assertThat(accountRepository.findByAccountNumber(source).orElseThrow().getBalance())
+                .isEqualByComparingTo(INITIAL_BALANCE);
+        assertThat(transactionRepository.count()).isZero();
+    }
+
+    // Duas instâncias, uma PESSIMISTIC e outra ATOMIC (como durante um deploy que troca o modo), nas
+    // mesmas duas contas e nos dois sentidos. Os números estão em ordem inversa à dos IDs: se os modos
+    // bloqueassem as linhas em ordens diferentes, A→B de um e B→A do outro entrariam em deadlock
+    @Test
+    void instancesInDifferentModesLockRowsInTheSameOrder() throws Exception {
+        String lowerId = createAccount("9000000002");
+        String higherId = createAccount("9000000001");
+        TransactionService atomic = new TransactionService(transactionRepository, accountRepository, accountLockManager,
+                shardedBalanceService, accountCache, transactionTemplate, transferMetrics, meterRegistry);
+        ReflectionTestUtils.setField(atomic, "concurrencyMode", TransactionService.ConcurrencyMode.ATOMIC);
+        TransactionService[] services = {transactionService, atomic};
+
+        AtomicInteger completed = new AtomicInteger();
+        ConcurrentLinkedQueue<RuntimeException> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                TransactionService service = services[i % 2];
+                boolean forward = (i / 2) % 2 == 0;
+                TransferDTO transfer = new TransferDTO(forward ? lowerId : higherId, forward ? higherId : lowerId,
+                        BigDecimal.ONE, "modos");
+                futures.add(executor.submit(() -> {
+                    try {
+                        service.transferMoney(transfer);
+                        completed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(failures).isEmpty();
+        assertThat(completed.get()).isEqualTo(400);
+        assertThat(accountRepository.findByAccountNumber(lowerId).orElseThrow().getBalance())
+                .isEqualByComparingTo(INITIAL_BALANCE);
+    }
+
+    private String createAccount(String accountNumber) {
+        return fixtures.createAccount(user, accountNumber, INITIAL_BALANCE).getAccountNumber();
+    }
+}
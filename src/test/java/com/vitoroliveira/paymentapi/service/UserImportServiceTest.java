@@ -0,0 +1,292 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.TestFixtures;
+import com.vitoroliveira.paymentapi.dto.ImportRowError;
+import com.vitoroliveira.paymentapi.dto.UserImportJobDTO;
+import com.vitoroliveira.paymentapi.exception.ImportQueueFullException;
+import com.vitoroliveira.paymentapi.exception.ImportTooLargeException;
+import com.vitoroliveira.paymentapi.model.Account;
+import com.vitoroliveira.paymentapi.model.AccountNumbers;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.AccountRepository;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Importação de usuários por CSV: validação e duplicados (no lote, entre lotes e no banco) viram
+// erros por linha sem interromper o job, e os INSERTs saem em batch
+@SpringBootTest
+class UserImportServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountNumberGenerator accountNumberGenerator;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private final List<UserImportService> services = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(UserImportService::destroy);
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void importsValidRowsAndReportsTheOthers() throws InterruptedException {
+        fixtures.createUser("Já Cadastrado", "existente@teste.com", "99999999999");
+
+        String csv = """
+                name,email,cpf,password,accountType
+                "Silva, Ana",ana@teste.com,11111111111,senha123,SAVINGS
+                Bruno,bruno@teste.com,22222222222,senha123,
+                Carla,email-invalido,33333333333,senha123,
+                Davi,ana@teste.com,44444444444,senha123,
+                Eva,eva@teste.com,55555555555,senha123,checking
+                Fabio,fabio@teste.com,66666666666,senha123,INVALIDO
+                Gil,gil@teste.com,77777777777,senha123,
+                Gil Dois,gil@teste.com,88888888888,senha123,
+                Hugo,hugo@teste.com,99999999999,senha123,
+                "Ivo ""Jr"\"",ivo@teste.com,10101010101,"senha,123"
+
+                """;
+
+        UserImportJobDTO job = awaitCompletion(service(2, 1000), csv);
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getRowsRead()).isEqualTo(10);
+        assertThat(job.getUsersCreated()).isEqualTo(5);
+        assertThat(job.getRowsRejected()).isEqualTo(5);
+        assertThat(job.getProcessedBytes()).isEqualTo(job.getTotalBytes());
+        assertThat(job.getErrors()).extracting(ImportRowError::getLine, ImportRowError::getMessage).containsExactly(
+                tuple(4L, "Email inválido"),
+                tuple(5L, "Email já está em uso"),
+                tuple(7L, "Tipo de conta inválido: INVALIDO"),
+                tuple(9L, "Email repetido no arquivo"),
+                tuple(10L, "CPF já está em uso"));
+
+        User ana = userRepository.findByEmail("ana@teste.com").orElseThrow();
+        assertThat(ana.getName()).isEqualTo("Silva, Ana");
+        List<Account> anaAccounts = accountRepository.findByUser(ana);
+        assertThat(anaAccounts).singleElement().satisfies(account -> {
+            assertThat(account.getType()).isEqualTo(Account.AccountType.SAVINGS);
+            assertThat(AccountNumbers.isValid(account.getAccountNumber())).isTrue();
+            assertThat(account.getBalance()).isZero();
+        });
+        User ivo = userRepository.findByEmail("ivo@teste.com").orElseThrow();
+        assertThat(ivo.getName()).isEqualTo("Ivo \"Jr\"");
+        assertThat(passwordEncoder.matches("senha,123", ivo.getPassword())).isTrue();
+        assertThat(accountRepository.findByUser(ivo)).singleElement()
+                .extracting(Account::getType).isEqualTo(Account.AccountType.CHECKING);
+    }
+
+    @Test
+    void insertsAreBatchedPerChunk() throws InterruptedException {
+        StringBuilder csv = new StringBuilder("name,email,cpf,password\n");
+        for (int i = 0; i < 40; i++) {
+            csv.append("Usuário ").append(i).append(",lote").append(i).append("@teste.com,")
+                    .append(50_000_000_000L + i).append(",senha123\n");
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            UserImportJobDTO job = awaitCompletion(service(20, 1000), csv.toString());
+
+            assertThat(job.getUsersCreated()).isEqualTo(40);
+            // Por lote: duas consultas de duplicados e um batch de INSERT por tabela
+            assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2 * 4);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        assertThat(accountRepository.count()).isEqualTo(40);
+    }
+
+    @Test
+    void reportedErrorsAreCapped() throws InterruptedException {
+        String csv = "name,email,cpf,password\n"
+                + "A,x,1,1\n"
+                + "B,y,2,2\n"
+                + "C,z,3,3\n";
+
+        UserImportJobDTO job = awaitCompletion(service(10, 2), csv);
+
+        assertThat(job.getRowsRejected()).isEqualTo(3);
+        assertThat(job.getErrors()).hasSize(2);
+        assertThat(job.isErrorsTruncated()).isTrue();
+    }
+
+    @Test
+    void headerIsCheckedBeforeTheJobStarts() {
+        UserImportService service = service(10, 10);
+
+        assertThatThrownBy(() -> service.startImport(stream("name,email,password\nA,a@teste.com,senha123\n")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.startImport(stream("")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void filesOverTheSizeCapAreRejected() {
+        UserImportService service = service(10, 10, 60, 10, 1);
+        StringBuilder csv = new StringBuilder("name,email,cpf,password\n");
+        while (csv.length() <= 1024 * 1024) {
+            csv.append("Usuário,grande@teste.com,12345678901,senha123\n");
+        }
+
+        assertThatThrownBy(() -> service.startImport(stream(csv.toString())))
+                .isInstanceOf(ImportTooLargeException.class);
+    }
+
+    @Test
+    void importsBeyondTheQueueCapacityAreRefused() throws InterruptedException {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                hashing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return passwordEncoder.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return passwordEncoder.matches(rawPassword, encodedPassword);
+            }
+        };
+        UserImportService service = service(blocking, 10, 10, 60, 1, 50);
+        try {
+            service.startImport(stream("name,email,cpf,password\nAna Fila,fila1@teste.com,12121212121,senha123\n"));
+            assertThat(hashing.await(10, TimeUnit.SECONDS)).isTrue();
+            service.startImport(stream("name,email,cpf,password\nBruno Fila,fila2@teste.com,13131313131,senha123\n"));
+
+            assertThatThrownBy(() -> service.startImport(
+                    stream("name,email,cpf,password\nCarla Fila,fila3@teste.com,14141414141,senha123\n")))
+                    .isInstanceOf(ImportQueueFullException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void finishedJobsExpireAfterTheRetention() throws InterruptedException {
+        UserImportService service = service(10, 10, 0, 10, 50);
+        String id = service.startImport(stream("name,email,cpf,password\nA,x,1,1\n")).getId();
+
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (true) {
+            try {
+                service.getJob(id);
+            } catch (EntityNotFoundException e) {
+                break;
+            }
+            assertThat(System.currentTimeMillis()).as("job expirado em 60s").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void onlyConflictingRowsAreRejectedWhenTheChunkKeepsFailing() throws InterruptedException {
+        // Conflito que a rechecagem de email/CPF não enxerga: o lote falha nas duas tentativas
+        jdbcTemplate.execute("ALTER TABLE users ADD CONSTRAINT ck_import_teste CHECK (email <> 'conflito@teste.com')");
+        try {
+            String csv = """
+                    name,email,cpf,password
+                    Ana,ana@teste.com,11111111111,senha123
+                    Conflito,conflito@teste.com,22222222222,senha123
+                    Bruno,bruno@teste.com,33333333333,senha123
+                    """;
+
+            UserImportJobDTO job = awaitCompletion(service(10, 10), csv);
+
+            assertThat(job.getUsersCreated()).isEqualTo(2);
+            assertThat(job.getErrors()).extracting(ImportRowError::getLine).containsExactly(3L);
+            assertThat(userRepository.findByEmail("ana@teste.com")).isPresent();
+            assertThat(userRepository.findByEmail("bruno@teste.com")).isPresent();
+            assertThat(accountRepository.count()).isEqualTo(2);
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE users DROP CONSTRAINT ck_import_teste");
+        }
+    }
+
+    private UserImportJobDTO awaitCompletion(UserImportService service, String csv) throws InterruptedException {
+        String id = service.startImport(stream(csv)).getId();
+        long deadline = System.currentTimeMillis() + 60_000;
+        UserImportJobDTO job = service.getJob(id);
+        while (job.getStatus().equals("QUEUED") || job.getStatus().equals("RUNNING")) {
+            assertThat(System.currentTimeMillis()).as("importação concluída em 60s").isLessThan(deadline);
+            Thread.sleep(50);
+            job = service.getJob(id);
+        }
+        return job;
+    }
+
+    private UserImportService service(int chunkSize, int maxReportedErrors) {
+        return service(chunkSize, maxReportedErrors, 60, 10, 50);
+    }
+
+    private UserImportService service(int chunkSize, int maxReportedErrors, long retentionMinutes,
+                                      int queueCapacity, long maxFileSizeMb) {
+        return service(passwordEncoder, chunkSize, maxReportedErrors, retentionMinutes, queueCapacity, maxFileSizeMb);
+    }
+
+    private UserImportService service(PasswordEncoder encoder, int chunkSize, int maxReportedErrors,
+                                      long retentionMinutes, int queueCapacity, long maxFileSizeMb) {
+        UserImportService service = new UserImportService(userRepository, accountRepository, accountNumberGenerator,
+                encoder, transactionTemplate, validator, chunkSize, 4, maxReportedErrors, retentionMinutes,
+                queueCapacity, maxFileSizeMb);
+        services.add(service);
+        return service;
+    }
+
+    private static ByteArrayInputStream stream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,189 @@
+package com.vitoroliveira.paymentapi.service;
+
+import com.vitoroliveira.paymentapi.dto.UserRegistrationDTO;
+import com.vitoroliveira.paymentapi.model.User;
+import com.vitoroliveira.paymentapi.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Cadastro apoiado nas constraints únicas: um único INSERT, a violação traduzida na mesma mensagem
+// das consultas antigas e nenhum duplicado sob concorrência
+@SpringBootTest
+class UserServiceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserServiceTest.class);
+
+    private static final int THREADS = 8;
+    private static final int REGISTRATIONS = 64;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void duplicatesAreReportedFromTheConstraintWithoutPriorQueries() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            userService.registerUser(registration("primeiro@teste.com", "12312312300"));
+            assertThat(statistics.getQueryExecutionCount()).isZero();
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+            statistics.clear();
+            assertThatThrownBy(() -> userService.registerUser(registration("primeiro@teste.com", "12312312301")))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Email já está em uso");
+            assertThatThrownBy(() -> userService.registerUser(registration("segundo@teste.com", "12312312300")))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("CPF já está em uso");
+            // A constraint vem identificada pelo nome, sem as consultas de fallback
+            assertThat(statistics.getQueryExecutionCount()).isZero();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        assertThat(userRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentRegistrationsNeverDuplicate() throws Exception {
+        // Mesmo email, CPFs diferentes: só a constraint de email pode barrar
+        List<String> emailResults = race(i -> userService.registerUser(registration("disputado@teste.com", cpf(100 + i))));
+        assertThat(emailResults).containsOnlyOnce("OK").filteredOn(result -> !result.equals("OK"))
+                .hasSize(THREADS - 1).containsOnly("Email já está em uso");
+
+        // Mesmo CPF, emails diferentes
+        List<String> cpfResults = race(i -> userService.registerUser(registration("cpf" + i + "@teste.com", cpf(999))));
+        assertThat(cpfResults).containsOnlyOnce("OK").filteredOn(result -> !result.equals("OK"))
+                .hasSize(THREADS - 1).containsOnly("CPF já está em uso");
+
+        assertThat(userRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void registrationThroughputBeforeAndAfter() throws Exception {
+        // Mesmo PasswordEncoder nos dois caminhos: o custo do BCrypt é idêntico e a diferença
+        // vem só das consultas evitadas
+        throughput(i -> legacyRegister(registration("aquecimento" + i + "@teste.com", cpf(500_000 + i))), THREADS * 2);
+
+        double before = throughput(i -> legacyRegister(registration("antes" + i + "@teste.com", cpf(1_000 + i))),
+                REGISTRATIONS);
+        double after = throughput(i -> userService.registerUser(registration("depois" + i + "@teste.com", cpf(2_000 + i))),
+                REGISTRATIONS);
+
+        log.info("Cadastros/s com {} threads: {} com existsByEmail + existsByCpf + INSERT, {} só com o INSERT",
+                THREADS, String.format("%.1f", before), String.format("%.1f", after));
+        assertThat(userRepository.count()).isEqualTo(THREADS * 2 + REGISTRATIONS * 2L);
+    }
+
+    // Cadastro anterior: duas consultas antes do INSERT, sujeitas a corrida entre elas e o commit
+    private void legacyRegister(UserRegistrationDTO registrationDTO) {
+        if (userRepository.existsByEmail(registrationDTO.getEmail())) {
+            throw new IllegalStateException("Email já está em uso");
+        }
+        if (userRepository.existsByCpf(registrationDTO.getCpf())) {
+            throw new IllegalStateException("CPF já está em uso");
+        }
+        User user = new User();
+        user.setName(registrationDTO.getName());
+        user.setEmail(registrationDTO.getEmail());
+        user.setCpf(registrationDTO.getCpf());
+        user.setPassword(passwordEncoder.encode(registrationDTO.getPassword()));
+        userRepository.save(user);
+    }
+
+    // Dispara as THREADS chamadas ao mesmo tempo e devolve "OK" ou a mensagem de erro de cada uma
+    private List<String> race(Consumer<Integer> registration) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int index = t;
+                futures.add(executor.submit((Callable<String>) () -> {
+                    start.await();
+                    try {
+                        registration.accept(index);
+                        return "OK";
+                    } catch (IllegalStateException e) {
+                        return e.getMessage();
+                    }
+                }));
+            }
+            start.countDown();
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Cadastros por segundo com THREADS threads dividindo os índices
+    private double throughput(Consumer<Integer> registration, int count) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger next = new AtomicInteger();
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                        registration.accept(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return count / ((System.nanoTime() - start) / 1_000_000_000.0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static UserRegistrationDTO registration(String email, String cpf) {
+        return new UserRegistrationDTO("Usuário Teste", cpf, email, "senha123");
+    }
+
+    private static String cpf(int value) {
+        return String.format("%011d", value);
+    }
+}